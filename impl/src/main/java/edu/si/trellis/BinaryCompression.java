@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The {@link ChunkCompression} with which to record binary chunks.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface BinaryCompression {
+
+    /**
+     * Default compression.
+     */
+    public static final String value = "NONE";
+}
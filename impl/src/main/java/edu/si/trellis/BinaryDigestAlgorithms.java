@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The names of the {@link java.security.MessageDigest} algorithms with which to digest every binary as it is recorded.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface BinaryDigestAlgorithms {
+
+    /**
+     * Default digest algorithms, comma-separated.
+     */
+    public static final String value = "SHA-256";
+}
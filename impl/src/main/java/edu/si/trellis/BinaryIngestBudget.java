@@ -0,0 +1,23 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The number of bytes of binary content that may be held in memory at once across all uploads, or {@code 0} for no
+ * limit.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface BinaryIngestBudget {
+
+    /**
+     * Default budget, 256 MiB.
+     */
+    public static final String value = "268435456";
+}
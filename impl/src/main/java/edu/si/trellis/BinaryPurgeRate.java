@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * How many deferred purges of binaries to carry out each second at most.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface BinaryPurgeRate {
+
+    /**
+     * Default rate, 10 purges per second.
+     */
+    public static final String value = "10";
+}
@@ -2,6 +2,7 @@ package edu.si.trellis;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.Buffer;
 
@@ -13,6 +14,8 @@ class ByteBufferInputStream extends InputStream {
 
     private static final int ENDOFSTREAM = -1;
 
+    private static final int TRANSFER_BUFFER_SIZE = 8192;
+
     private final ByteBuffer buffer;
 
     private int readLimit, readSinceMark;
@@ -72,4 +75,28 @@ class ByteBufferInputStream extends InputStream {
         readSinceMark += availableLength;
         return availableLength;
     }
+
+    /**
+     * Writes all remaining bytes to {@code out}, without copying when the buffer is backed by an accessible array.
+     * 
+     * @param out where to write
+     * @return the number of bytes written
+     * @throws IOException if writing fails
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] transfer = new byte[Math.min(length, TRANSFER_BUFFER_SIZE)];
+            while (buffer.hasRemaining()) {
+                int transferLength = Math.min(transfer.length, buffer.remaining());
+                buffer.get(transfer, 0, transferLength);
+                out.write(transfer, 0, transferLength);
+            }
+        }
+        readSinceMark += length;
+        return length;
+    }
 }
@@ -0,0 +1,51 @@
+package edu.si.trellis;
+
+/**
+ * A range of bytes of a binary, from its first byte to its last, inclusive, as in an HTTP {@code Range} header.
+ */
+public final class ByteRange {
+
+    private final long from, to;
+
+    /**
+     * @param from the first byte of the range, counting from zero
+     * @param to the last byte of the range, inclusive
+     */
+    public ByteRange(long from, long to) {
+        if (from < 0) throw new IllegalArgumentException("Range begins before zero!");
+        if (to < from) throw new IllegalArgumentException("Range ends before it begins!");
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @return the first byte of the range, counting from zero
+     */
+    public long getFrom() {
+        return from;
+    }
+
+    /**
+     * @return the last byte of the range, inclusive
+     */
+    public long getTo() {
+        return to;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ByteRange)) return false;
+        ByteRange other = (ByteRange) o;
+        return from == other.from && to == other.to;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(from) * 31 + Long.hashCode(to);
+    }
+
+    @Override
+    public String toString() {
+        return from + "-" + to;
+    }
+}
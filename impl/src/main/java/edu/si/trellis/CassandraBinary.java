@@ -1,5 +1,9 @@
 package edu.si.trellis;
 
+import static java.lang.Math.min;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Locale.ROOT;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 
 import edu.si.trellis.query.binary.Read;
@@ -8,22 +12,39 @@ import edu.si.trellis.query.binary.ReadRange;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletionStage;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.input.ClosedInputStream;
 import org.apache.commons.rdf.api.IRI;
+import org.reactivestreams.Publisher;
 import org.trellisldp.api.Binary;
 
 /**
- * Simple implementation of {@link Binary} that pulls content from Cassandra on demand.
+ * Simple implementation of {@link Binary} that pulls content from Cassandra on demand, as a stream or without
+ * blocking.
  *
  */
-public class CassandraBinary implements Binary {
+public class CassandraBinary implements ReactiveBinary {
 
     private final IRI id;
 
     private final int chunkLength;
 
+    private final int chunkCount;
+
+    private final int chunksPerBucket;
+
+    private final long size;
+
+    private final Map<String, byte[]> digests;
+
     private final Read read;
 
     private final ReadRange readRange;
@@ -33,27 +54,69 @@ public class CassandraBinary implements Binary {
      * @param read a {@link Read} query to use
      * @param readRange a {@link ReadRange} query to use
      * @param chunkLength the length of chunk to use reading bits from Cassandra
+     * @param chunkCount the number of chunks in this binary from its manifest, or a negative number if it was recorded
+     *            without one
+     * @param chunksPerBucket how many chunks of this binary are in each bucket, or {@code 0} if they are not bucketed
+     * @param size the length in bytes of this binary from its manifest, or a negative number if it was recorded without
+     *            one
+     * @param digests digests of this binary from its manifest, keyed by algorithm name
      */
-    public CassandraBinary(IRI id, Read read, ReadRange readRange, int chunkLength) {
+    public CassandraBinary(IRI id, Read read, ReadRange readRange, int chunkLength, int chunkCount,
+                    int chunksPerBucket, long size, Map<String, byte[]> digests) {
         this.id = id;
         this.read = read;
         this.readRange = readRange;
         if (chunkLength < 1) throw new IllegalArgumentException("Chunk length < 1!");
         this.chunkLength = chunkLength;
+        this.chunkCount = chunkCount;
+        this.chunksPerBucket = chunksPerBucket;
+        this.size = size;
+        this.digests = digests;
+    }
+
+    /**
+     * @return the length in bytes of this binary, known without retrieving any content, or empty if this binary was
+     *         recorded without a manifest
+     */
+    public Optional<Long> getSize() {
+        return size < 0 ? Optional.empty() : Optional.of(size);
+    }
+
+    private boolean hasManifest() {
+        return chunkCount >= 0;
+    }
+
+    /**
+     * @param algorithm the name of a {@link java.security.MessageDigest} algorithm
+     * @return the digest of this binary computed with that algorithm when it was recorded, or empty if it was not
+     */
+    public Optional<byte[]> getDigest(String algorithm) {
+        byte[] digest = digests.get(algorithm.toUpperCase(ROOT));
+        return digest == null ? Optional.empty() : Optional.of(digest.clone());
     }
 
     @Override
     public CompletionStage<InputStream> getContent() {
-        return completedFuture(read.execute(id));
+        return completedFuture(hasManifest() ? read.execute(id, chunkLength, chunkCount, chunksPerBucket)
+                        : read.execute(id));
     }
 
+    /**
+     * If the size of this binary is known, a range beginning past its end yields no bytes and a range ending past its
+     * end is shortened, both without querying for chunks that do not exist.
+     */
     @Override
-    public CompletionStage<InputStream> getContent(int from, int to) {
+    public CompletionStage<InputStream> getContent(int from, int requestedTo) {
+        if (size >= 0 && from >= size) return completedFuture(ClosedInputStream.CLOSED_INPUT_STREAM);
+        long to = size >= 0 ? min(requestedTo, size - 1) : requestedTo;
         int firstChunk = from / chunkLength;
-        int lastChunk = to / chunkLength;
+        int lastChunk = (int) (to / chunkLength);
         int chunkStreamStart = from % chunkLength;
-        int rangeSize = to - from + 1; // +1 because range is inclusive
-        InputStream retrieve = readRange.execute(id, firstChunk, lastChunk);
+        long rangeSize = to - from + 1; // +1 because range is inclusive
+        InputStream retrieve = hasManifest()
+                        ? readRange.execute(id, firstChunk, min(lastChunk, chunkCount - 1), chunkLength,
+                                        chunksPerBucket)
+                        : readRange.execute(id, firstChunk, lastChunk);
         // skip to fulfill lower end of range
         try {
             retrieve.skip(chunkStreamStart);
@@ -62,4 +125,55 @@ public class CassandraBinary implements Binary {
         } // we needn't check the result; see BinaryReadQuery#retrieve
         return completedFuture(new BoundedInputStream(retrieve, rangeSize)); // apply limit for upper end of range
     }
+
+    /**
+     * A binary recorded without a manifest has its chunks listed before this method returns.
+     */
+    @Override
+    public Publisher<ByteBuffer> getContentPublisher() {
+        return hasManifest() ? read.publish(id, chunkCount, chunksPerBucket) : read.publish(id);
+    }
+
+    /**
+     * A binary recorded without a manifest has the chunks in the range listed before this method returns.
+     * 
+     * @see #getContent(int, int)
+     */
+    @Override
+    public Publisher<ByteBuffer> getContentPublisher(int from, int requestedTo) {
+        if (size >= 0 && from >= size) return ChunkPublisher.empty();
+        long to = size >= 0 ? min(requestedTo, size - 1) : requestedTo;
+        int firstChunk = from / chunkLength;
+        int lastChunk = (int) (to / chunkLength);
+        int chunkStart = from % chunkLength;
+        long rangeSize = to - from + 1; // +1 because range is inclusive, and in long so an open range cannot overflow
+        return hasManifest()
+                        ? readRange.publish(id, firstChunk, min(lastChunk, chunkCount - 1), chunksPerBucket,
+                                        chunkStart, rangeSize)
+                        : readRange.publish(id, firstChunk, lastChunk, chunkStart, rangeSize);
+    }
+
+    /**
+     * A binary recorded without a manifest has its ranges read one at a time, and copied, before this method returns,
+     * since which of its chunks are present is not known without listing them. Such a binary is read by {@code int}
+     * offsets, so a range that begins past {@link Integer#MAX_VALUE} is rejected with an
+     * {@link IllegalArgumentException}.
+     */
+    @Override
+    public CompletionStage<List<List<ByteBuffer>>> getContentRanges(List<ByteRange> ranges) {
+        if (hasManifest()) return readRange.readRanges(id, ranges, size, chunkLength, chunksPerBucket);
+        List<List<ByteBuffer>> read = new ArrayList<>(ranges.size());
+        for (ByteRange range : ranges) {
+            if (range.getFrom() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Range " + range + " begins past what " + id + " can be read to!");
+            int to = (int) min(range.getTo(), Integer.MAX_VALUE);
+            try (InputStream content = getContent((int) range.getFrom(), to).toCompletableFuture().join()) {
+                byte[] bytes = IOUtils.toByteArray(content);
+                read.add(bytes.length == 0 ? emptyList() : singletonList(ByteBuffer.wrap(bytes).asReadOnlyBuffer()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return completedFuture(read);
+    }
 }
@@ -1,19 +1,54 @@
 package edu.si.trellis;
 
-import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.System.nanoTime;
+import static java.util.Arrays.copyOf;
+import static java.util.Locale.ROOT;
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.function.Function.identity;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.stream.Collectors.toCollection;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import com.datastax.driver.core.Row;
+
 import edu.si.trellis.query.binary.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import javax.inject.Inject;
 
-import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.rdf.api.IRI;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 import org.slf4j.Logger;
 import org.trellisldp.api.*;
 
@@ -25,91 +60,809 @@ public class CassandraBinaryService implements BinaryService {
 
     private static final Logger log = getLogger(CassandraBinaryService.class);
 
-    @SuppressWarnings("boxing")
-    private static final CompletableFuture<Long> DONE = completedFuture(-1L);
-
     // package-private for testing
     static final String CASSANDRA_CHUNK_HEADER_NAME = "Cassandra-Chunk-Size";
 
+    /**
+     * The algorithm by which content-defined chunks are addressed.
+     */
+    private static final String CHUNK_HASH_ALGORITHM = "SHA-256";
+
     private final IdentifierService idService;
 
-    private final int defaultChunkLength;
+    private final ChunkSizePolicy chunkSizes;
+
+    private final int chunkWriteWindow;
+
+    private final IngestBudget ingestBudget;
+
+    private final Set<String> digestAlgorithms;
+
+    private final boolean contentDefinedChunking;
+
+    private final int inlineThreshold;
+
+    private final boolean deferredPurge;
 
-    private final GetChunkSize get;
+    private final GetManifest get;
 
     private final Insert insert;
 
+    private final RecordManifest recordManifest;
+
     private final Delete delete;
 
     private final Read read;
 
     private final ReadRange readRange;
 
+    private final StoredChunks storedChunks;
+
+    private final ReadStoredChunks readStoredChunks;
+
+    private final PurgeQueue purgeQueue;
+
     /**
      * @param idService {@link IdentifierService} to use for binaries
-     * @param chunkLength the maximum size of any chunk in this service
-     * @param get a {@link GetChunkSize} query to use
+     * @param chunkSizes the {@link ChunkSizePolicy} by which to choose the length of chunk for each binary
+     * @param chunkWriteWindow the maximum number of chunk writes in flight at once for any one binary
+     * @param ingestBudget the maximum number of bytes of content held in memory at once across all uploads, or
+     *            {@code 0} for no limit
+     * @param digestAlgorithms names of the {@link MessageDigest} algorithms with which to digest binaries as they are
+     *            recorded
+     * @param contentDefinedChunking whether to cut new binaries into content-defined chunks stored by content hash
+     * @param inlineThreshold the length in bytes up to which to record binaries whole in their manifests, or
+     *            {@code 0} never to inline binaries
+     * @param deferredPurge whether to queue purges to be carried out in the background rather than carrying them out
+     *            as they are requested
+     * @param get a {@link GetManifest} query to use
      * @param insert a {@link Insert} query to use
+     * @param recordManifest a {@link RecordManifest} query to use
      * @param delete a {@link Delete} query to use
      * @param read a {@link Read} query to use
      * @param readRange a {@link ReadRange} query to use
+     * @param storedChunks a {@link StoredChunks} query to use
+     * @param readStoredChunks a {@link ReadStoredChunks} query to use
+     * @param purgeQueue a {@link PurgeQueue} query to use
      */
     @Inject
-    public CassandraBinaryService(IdentifierService idService, @DefaultChunkSize int chunkLength, GetChunkSize get,
-                    Insert insert, Delete delete, Read read, ReadRange readRange) {
+    public CassandraBinaryService(IdentifierService idService, ChunkSizePolicy chunkSizes,
+                    @ChunkWriteWindow int chunkWriteWindow, @BinaryIngestBudget long ingestBudget,
+                    @BinaryDigestAlgorithms List<String> digestAlgorithms,
+                    @ContentDefinedChunking boolean contentDefinedChunking,
+                    @InlineBinaryThreshold int inlineThreshold, @DeferredBinaryPurge boolean deferredPurge,
+                    GetManifest get, Insert insert, RecordManifest recordManifest, Delete delete, Read read,
+                    ReadRange readRange, StoredChunks storedChunks, ReadStoredChunks readStoredChunks,
+                    PurgeQueue purgeQueue) {
         this.idService = idService;
-        this.defaultChunkLength = chunkLength;
-        log.info("Using configured default chunk length: {}", chunkLength);
+        this.chunkSizes = chunkSizes;
+        if (chunkWriteWindow < 1) throw new IllegalArgumentException("Chunk write window < 1!");
+        this.chunkWriteWindow = chunkWriteWindow;
+        log.info("Using configured chunk write window: {}", chunkWriteWindow);
+        this.ingestBudget = new IngestBudget(ingestBudget);
+        log.info("Using configured binary ingest budget: {}", ingestBudget);
+        Set<String> algorithms = digestAlgorithms.stream().map(a -> a.toUpperCase(ROOT))
+                        .collect(toCollection(LinkedHashSet::new));
+        this.digestAlgorithms = unmodifiableSet(algorithms);
+        this.digestAlgorithms.forEach(CassandraBinaryService::digest); // fail fast on unsupported algorithms
+        log.info("Using configured binary digest algorithms: {}", this.digestAlgorithms);
+        this.contentDefinedChunking = contentDefinedChunking;
+        log.info("Using configured content-defined chunking: {}", contentDefinedChunking);
+        if (inlineThreshold < 0) throw new IllegalArgumentException("Inline binary threshold < 0!");
+        this.inlineThreshold = inlineThreshold;
+        log.info("Using configured inline binary threshold: {}", inlineThreshold);
+        this.deferredPurge = deferredPurge;
+        log.info("Using configured deferred binary purge: {}", deferredPurge);
         this.get = get;
         this.insert = insert;
+        this.recordManifest = recordManifest;
         this.delete = delete;
         this.read = read;
         this.readRange = readRange;
+        this.storedChunks = storedChunks;
+        this.readStoredChunks = readStoredChunks;
+        this.purgeQueue = purgeQueue;
+    }
+
+    /**
+     * @return the budget of bytes shared by all uploads to this service, through which its use may be monitored
+     */
+    public IngestBudget ingestBudget() {
+        return ingestBudget;
     }
 
     @Override
     public CompletableFuture<Binary> get(IRI id) {
         log.debug("Retrieving binary content from: {}", id);
-        return get.execute(id).thenApply(r -> new CassandraBinary(id, read, readRange, r.getInt("chunkSize")));
+        return get.execute(id).thenApply(r -> binary(id, r));
+    }
+
+    private Binary binary(IRI id, Row manifest) {
+        if (!manifest.isNull("content")) return new InlineBinary(id, manifest.getBytes("content"), digests(manifest));
+        if (manifest.isNull("chunkHashes"))
+            return new CassandraBinary(id, read, readRange,
+                            manifest.getInt(manifest.isNull("chunkLength") ? "chunkSize" : "chunkLength"),
+                            manifest.isNull("chunkCount") ? -1 : manifest.getInt("chunkCount"),
+                            chunksPerBucket(manifest),
+                            manifest.isNull("length") ? -1 : manifest.getLong("length"), digests(manifest));
+        return new ContentAddressedBinary(id, readStoredChunks, manifest.getList("chunkHashes", ByteBuffer.class),
+                        manifest.getList("chunkLengths", Integer.class), digests(manifest));
+    }
+
+    /**
+     * @param id the {@link IRI} of a binary
+     * @param algorithm the name of a {@link MessageDigest} algorithm
+     * @return the digest of that binary computed with that algorithm when it was recorded, read from its manifest
+     *         without retrieving any content, or empty if it was not digested with that algorithm
+     */
+    public CompletableFuture<Optional<byte[]>> getDigest(IRI id, String algorithm) {
+        log.debug("Retrieving {} digest for binary: {}", algorithm, id);
+        return get.execute(id).thenApply(r -> Optional.ofNullable(digests(r).get(algorithm.toUpperCase(ROOT))));
+    }
+
+    /**
+     * @return the names of the {@link MessageDigest} algorithms with which binaries are digested as they are recorded
+     */
+    public Set<String> supportedAlgorithms() {
+        return digestAlgorithms;
+    }
+
+    private static Map<String, byte[]> digests(Row manifest) {
+        Map<String, byte[]> digests = new HashMap<>();
+        manifest.getMap("digests", String.class, ByteBuffer.class).forEach((algorithm, digest) -> {
+            byte[] bytes = new byte[digest.remaining()];
+            digest.duplicate().get(bytes);
+            digests.put(algorithm, bytes);
+        });
+        return digests;
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported binary digest algorithm: " + algorithm, e);
+        }
+    }
+
+    /**
+     * @param id the {@link IRI} of a binary
+     * @return the length in bytes of that binary, read from its manifest without retrieving any content, or empty if
+     *         the binary was recorded without a manifest
+     */
+    public CompletableFuture<Optional<Long>> getSize(IRI id) {
+        log.debug("Retrieving binary size for: {}", id);
+        return get.execute(id).thenApply(r -> Optional.ofNullable(r.isNull("length") ? null : r.getLong("length")));
     }
 
     @Override
     public CompletableFuture<Void> setContent(BinaryMetadata meta, InputStream stream) {
         log.debug("Recording binary content under: {}", meta.getIdentifier());
-        final int chunkSize;
-        if (meta.getHints() == null) chunkSize = defaultChunkLength;
-        else {
-            List<String> headers = meta.getHints().get(CASSANDRA_CHUNK_HEADER_NAME);
-            if (headers == null) chunkSize = defaultChunkLength;
-            else if (headers.size() > 1)
-                throw new RuntimeTrellisException("Too many " + CASSANDRA_CHUNK_HEADER_NAME + " headers!");
-            else chunkSize = Integer.parseInt(headers.get(0));
+        final int chunkSize = chunkLength(meta);
+        final boolean provisional = provisional(meta, chunkSize);
+        IRI id = meta.getIdentifier();
+        return supplyAsync(() -> record(id, stream, chunkSize, provisional), insert).thenCompose(identity())
+                        .thenAccept(dummy -> log.debug("Recorded binary content under: {}", id));
+    }
+
+    /**
+     * Records binary content published without blocking, such as an asynchronous request body, so that a slow upload
+     * holds no thread while it waits for its client. Arriving buffers are assembled into chunks, which are written as
+     * for {@link #setContent(BinaryMetadata, InputStream)}, and no more content is requested while
+     * {@link #chunkWriteWindow} writes are in flight or the {@link #ingestBudget} is spent. Binaries recorded this way
+     * are cut into fixed-length chunks even if content-defined chunking is configured, because finding content-defined
+     * boundaries needs a blocking stream.
+     *
+     * @param meta metadata for the binary
+     * @param content the content of the binary
+     * @return whether and when it has been recorded
+     */
+    public CompletableFuture<Void> setContent(BinaryMetadata meta, Publisher<ByteBuffer> content) {
+        log.debug("Recording published binary content under: {}", meta.getIdentifier());
+        IRI id = meta.getIdentifier();
+        final int chunkLength = chunkLength(meta);
+        ChunkAssembler assembler = new ChunkAssembler(id, chunkLength, provisional(meta, chunkLength));
+        content.subscribe(assembler);
+        return assembler.recorded.thenAccept(dummy -> log.debug("Recorded binary content under: {}", id));
+    }
+
+    private int chunkLength(BinaryMetadata meta) {
+        if (meta.getHints() == null) return chunkSizes.chunkLength(meta);
+        List<String> headers = meta.getHints().get(CASSANDRA_CHUNK_HEADER_NAME);
+        if (headers == null) return chunkSizes.chunkLength(meta);
+        if (headers.size() > 1)
+            throw new RuntimeTrellisException("Too many " + CASSANDRA_CHUNK_HEADER_NAME + " headers!");
+        return Integer.parseInt(headers.get(0));
+    }
+
+    /**
+     * @param meta metadata for a binary whose content is cut into chunks without being read ahead
+     * @return the length of chunk to cut it into, which is a default chunk unless a length was asked for, since a
+     *         length chosen from a {@value ChunkSizePolicy#CONTENT_LENGTH_HINT} hint cannot be checked
+     */
+    int uncheckedChunkLength(BinaryMetadata meta) {
+        int hinted = chunkLength(meta);
+        return provisional(meta, hinted) ? chunkSizes.defaultChunkLength() : hinted;
+    }
+
+    /**
+     * @return whether {@code chunkLength} was chosen shorter than a default chunk only because a
+     *         {@value ChunkSizePolicy#CONTENT_LENGTH_HINT} hint promised a binary that short, so that it holds only if
+     *         the binary ends within it
+     */
+    private boolean provisional(BinaryMetadata meta, int chunkLength) {
+        return chunkLength < chunkSizes.defaultChunkLength()
+                        && (meta.getHints() == null || !meta.getHints().containsKey(CASSANDRA_CHUNK_HEADER_NAME));
+    }
+
+    /**
+     * @return how far to read ahead before cutting a binary into chunks, to learn whether it is small enough to inline
+     *         and whether it ends within a provisional chunk length
+     */
+    private int lookahead(int chunkLength, boolean provisional) {
+        return max(inlineThreshold, provisional ? chunkLength : 0);
+    }
+
+    private CompletableFuture<Void> record(IRI id, InputStream stream, int chunkSize, boolean provisional) {
+        InputStream data = stream;
+        int chunkLength = chunkSize;
+        int lookahead = lookahead(chunkSize, provisional);
+        if (lookahead > 0) {
+            // read just past the lookahead to learn whether this binary ends within it
+            byte[] head = new byte[lookahead + 1];
+            int headLength = read(stream, head);
+            if (inlineThreshold > 0 && headLength <= inlineThreshold) return setInline(id, copyOf(head, headLength));
+            // a binary that runs past its hinted length is cut as if its length were unknown
+            if (provisional && headLength > chunkSize) chunkLength = chunkSizes.defaultChunkLength();
+            data = new SequenceInputStream(new ByteArrayInputStream(head, 0, headLength), stream);
+        }
+        return contentDefinedChunking ? setStoredChunks(id, data, chunkLength) : setChunks(id, data, chunkLength);
+    }
+
+    private CompletableFuture<Void> setInline(IRI id, byte[] content) {
+        log.debug("Recording binary content inline under: {}", id);
+        Map<String, ByteBuffer> digests = new HashMap<>();
+        digestAlgorithms.forEach(algorithm -> digests.put(algorithm,
+                        ByteBuffer.wrap(digest(algorithm).digest(content))));
+        return recordManifest.execute(id, ByteBuffer.wrap(content), digests);
+    }
+
+    private static int read(InputStream stream, byte[] buffer) {
+        return read(stream, buffer, buffer.length);
+    }
+
+    private static int read(InputStream stream, byte[] buffer, int length) {
+        try {
+            return IOUtils.read(stream, buffer, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the chunks read from {@code data} and, once all writes have settled, records its manifest with the digests
+     * computed as it was read, or after a failure, purges any chunks already recorded.
+     */
+    private CompletableFuture<Void> setChunks(IRI id, InputStream stream, int chunkLength) {
+        Map<String, MessageDigest> digests = new HashMap<>();
+        final int chunksPerBucket = insert.chunksPerBucket();
+        return writeChunks(id, digesting(stream, digests), chunkLength, 0, Integer.MAX_VALUE)
+                        .thenCompose(written -> written.failure == null
+                                        ? recordManifest.execute(id, chunkLength, chunksPerBucket, written.chunkCount,
+                                                        written.size, digested(digests))
+                                        : purgeFailed(id, bucketCount(written.chunkCount, chunksPerBucket),
+                                                        written.failure));
+    }
+
+    /**
+     * Reads chunks from {@code data} in order and writes them with up to {@link #chunkWriteWindow} writes in flight at
+     * once, until a chunk shorter than {@code chunkLength} has been written or {@code maxChunks} chunks have been.
+     * After the first failure, no further chunks are read. {@link MultipartUploads} writes each part this way.
+     * 
+     * @return the outcome, once all writes in flight have settled
+     */
+    CompletableFuture<Written> writeChunks(IRI id, InputStream data, int chunkLength, int firstChunk,
+                    int maxChunks) {
+        Semaphore window = new Semaphore(chunkWriteWindow);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        int chunkIndex = firstChunk;
+        long size = 0;
+        try {
+            long chunkBytes;
+            do {
+                window.acquire();
+                if (failure.get() != null) break;
+                // wait for room in memory before reading, so that a full budget slows the upload
+                final long budgeted = ingestBudget.acquire(chunkLength);
+                log.debug("Recording chunk {} of binary content under: {}", chunkIndex, id);
+                try {
+                    // read the whole chunk before the write is issued, so as to time only the write
+                    byte[] chunk = insert.buffer(chunkLength);
+                    final int written = read(data, chunk, chunkLength);
+                    final long started = nanoTime();
+                    CompletableFuture<Void> write = insert.execute(id, chunkLength, chunkIndex++, chunk, written);
+                    chunkBytes = written;
+                    size += chunkBytes;
+                    writes.add(write.whenComplete((dummy, e) -> {
+                        if (e != null) failure.compareAndSet(null, e);
+                        else chunkSizes.recordWrite(written, nanoTime() - started);
+                        ingestBudget.release(budgeted);
+                        window.release();
+                    }));
+                } catch (RuntimeException e) {
+                    ingestBudget.release(budgeted);
+                    throw e;
+                }
+            } while (chunkBytes == chunkLength && chunkIndex - firstChunk < maxChunks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+        final int chunkCount = chunkIndex - firstChunk;
+        final long length = size;
+        return allOf(writes.toArray(new CompletableFuture<?>[writes.size()]))
+                        .handle((dummy, e) -> new Written(chunkCount, length, failure.get())); // already recorded
+    }
+
+    /**
+     * The outcome of writing a run of chunks.
+     */
+    static final class Written {
+
+        final int chunkCount;
+
+        final long size;
+
+        /**
+         * The first failure, or {@code null} if all chunks were written.
+         */
+        final Throwable failure;
+
+        private Written(int chunkCount, long size, Throwable failure) {
+            this.chunkCount = chunkCount;
+            this.size = size;
+            this.failure = failure;
         }
-        return setChunk(meta, stream, new AtomicInteger(), chunkSize)
-                        .thenAccept(l -> log.debug("Recorded binary content under: {}", meta.getIdentifier()));
     }
 
+    /**
+     * Cuts {@code data} into content-defined chunks of at most {@code maxChunkLength} bytes and stores each by its
+     * content hash with up to {@link #chunkWriteWindow} stores in flight at once, writing only chunks not already
+     * stored for some binary. When all chunks have been stored, the manifest for the binary is recorded with the
+     * hashes and lengths of its chunks. After the first failure, no further chunks are read, and once all stores in
+     * flight have settled, the references this binary may have taken to any chunk it began to store are released.
+     */
     @SuppressWarnings("resource")
-    private CompletableFuture<Long> setChunk(BinaryMetadata meta, InputStream data, AtomicInteger chunkIndex,
-                    int chunkLength) {
-        IRI id = meta.getIdentifier();
-        log.debug("Recording chunk {} of binary content under: {}", chunkIndex.get(), id);
+    private CompletableFuture<Void> setStoredChunks(IRI id, InputStream stream, int maxChunkLength) {
+        Map<String, MessageDigest> digests = new HashMap<>();
+        ContentDefinedChunker chunker = new ContentDefinedChunker(digesting(stream, digests), maxChunkLength);
+        Semaphore window = new Semaphore(chunkWriteWindow);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        List<ByteBuffer> hashes = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        long size = 0;
+        try {
+            while (true) {
+                window.acquire();
+                if (failure.get() != null) break;
+                // wait for room in memory before reading, so that a full budget slows the upload
+                final long budgeted = ingestBudget.acquire(maxChunkLength);
+                try {
+                    byte[] chunk = chunker.next();
+                    if (chunk == null) {
+                        ingestBudget.release(budgeted);
+                        break;
+                    }
+                    ByteBuffer hash = ByteBuffer.wrap(digest(CHUNK_HASH_ALGORITHM).digest(chunk));
+                    log.debug("Storing chunk {} of binary content under: {}", hashes.size(), id);
+                    hashes.add(hash);
+                    lengths.add(chunk.length);
+                    size += chunk.length;
+                    writes.add(storedChunks.store(id, hash, chunk).whenComplete((dummy, e) -> {
+                        if (e != null) failure.compareAndSet(null, e);
+                        ingestBudget.release(budgeted);
+                        window.release();
+                    }));
+                } catch (IOException | RuntimeException e) {
+                    ingestBudget.release(budgeted);
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } catch (IOException e) {
+            failure.compareAndSet(null, new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+        final long length = size;
+        return allOf(writes.toArray(new CompletableFuture<?>[writes.size()]))
+                        .handle((dummy, e) -> failure.get()) // any failure has already been recorded
+                        .thenCompose(cause -> cause == null
+                                        ? recordManifest.execute(id, hashes, lengths, length, digested(digests))
+                                        : releaseFailed(id, hashes, cause));
+    }
+
+    /**
+     * Assembles published buffers into chunks and writes them, requesting one buffer at a time and only when there is
+     * room to take it. As for {@link #setChunks(IRI, InputStream, int)}, the binary is digested as it is assembled,
+     * after the first failure no further content is requested, and once all writes in flight have settled, any chunks
+     * already recorded are purged. A full chunk is written only when more content arrives for it, so that a binary no
+     * longer than one chunk or the {@link #inlineThreshold} is never written before its end is known.
+     * <p>
+     * All work is done in {@link #drain()}, by one thread at a time, from whichever thread delivered content, completed
+     * a write, or granted bytes from the {@link #ingestBudget}.
+     * </p>
+     */
+    private class ChunkAssembler implements Subscriber<ByteBuffer> {
+
+        private final IRI id;
+
+        /**
+         * The length of chunk to use, which is replaced by the default if it proves {@link #provisional} too short.
+         */
+        private int chunkLength;
+
+        private final boolean provisional;
+
+        private final CompletableFuture<Void> recorded = new CompletableFuture<>();
+
+        private final Map<String, MessageDigest> digests = new HashMap<>();
+
+        /**
+         * Buffers delivered and not yet assembled into chunks.
+         */
+        private final Queue<ByteBuffer> delivered = new ConcurrentLinkedQueue<>();
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        /**
+         * Counts calls to {@link #drain()} in progress, so that only one runs at a time and none is lost.
+         */
+        private final AtomicInteger draining = new AtomicInteger();
+
+        private volatile Subscription subscription;
+
+        private volatile boolean upstreamDone = false;
+
+        // the fields below are used only while draining
+
+        private boolean requested = false, cancelled = false, finished = false;
+
+        /**
+         * Whether content is still being gathered to learn whether this binary is small enough to inline or ends
+         * within a provisional chunk length.
+         */
+        private boolean heading;
+
+        private byte[] head;
+
+        private int headLength = 0;
+
+        /**
+         * The gathered start of a binary too long to inline, still to be assembled into chunks.
+         */
+        private ByteBuffer overflow;
+
+        private byte[] chunk;
+
+        private int filled;
+
+        private long budgeted;
+
+        private CompletableFuture<Long> grant;
+
+        private int chunkIndex = 0;
+
+        private long size = 0;
+
+        private ChunkAssembler(IRI id, int chunkLength, boolean provisional) {
+            this.id = id;
+            this.chunkLength = chunkLength;
+            this.provisional = provisional;
+            this.heading = lookahead(chunkLength, provisional) > 0;
+            digestAlgorithms.forEach(algorithm -> digests.put(algorithm, digest(algorithm)));
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (subscription != null) {
+                s.cancel();
+                return;
+            }
+            subscription = s;
+            drain();
+        }
+
+        @Override
+        public void onNext(ByteBuffer buffer) {
+            delivered.add(buffer);
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            failure.compareAndSet(null, e);
+            upstreamDone = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            upstreamDone = true;
+            drain();
+        }
+
+        private void drain() {
+            int missed = draining.incrementAndGet();
+            if (missed != 1) return; // the drain in progress will make another pass
+            do {
+                try {
+                    pass();
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    draining.incrementAndGet(); // pass again to clean up
+                }
+                missed = draining.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void pass() {
+            while (!finished) {
+                Throwable cause = failure.get();
+                if (cause != null) {
+                    abandon();
+                    if (inFlight.get() > 0) return; // the last write to settle will drain again
+                    finish(() -> purgeFailed(id, bucketCount(chunkIndex, insert.chunksPerBucket()), cause));
+                    return;
+                }
+                ByteBuffer next = overflow != null && overflow.hasRemaining() ? overflow : delivered.peek();
+                if (next == null && upstreamDone && heading) {
+                    endHeading();
+                    continue;
+                }
+                if (next == null) {
+                    if (upstreamDone) complete();
+                    else if (!requested && subscription != null) {
+                        requested = true;
+                        subscription.request(1);
+                    }
+                    return;
+                }
+                requested = false;
+                if (!next.hasRemaining()) delivered.remove();
+                else if (heading) gather(next);
+                else if (chunk != null && filled == chunkLength) write(); // more content, so this chunk is done
+                else if (chunk != null || reserve()) assemble(next);
+                else return; // a settling write or a grant of budget will drain again
+            }
+        }
+
+        private void gather(ByteBuffer buffer) {
+            if (head == null) head = new byte[lookahead(chunkLength, provisional) + 1];
+            int length = min(buffer.remaining(), head.length - headLength);
+            buffer.get(head, headLength, length);
+            headLength += length;
+            if (headLength == head.length) {
+                heading = false;
+                overflow = ByteBuffer.wrap(head);
+                // a binary that runs past its hinted length is cut as if its length were unknown
+                if (provisional && headLength > chunkLength) chunkLength = chunkSizes.defaultChunkLength();
+            }
+        }
 
-        try (NoopCloseCountingInputStream countingChunk = new NoopCloseCountingInputStream(
-                        new BoundedInputStream(data, chunkLength))) {
-            @SuppressWarnings("cast")
-            // upcast to match this object with InputStreamCodec
-            InputStream chunk = (InputStream) countingChunk;
-            return insert.execute(id, chunkLength, chunkIndex.getAndIncrement(), chunk)
-                            .thenComposeAsync(dummy -> countingChunk.getByteCount() == chunkLength
-                                            ? setChunk(meta, data, chunkIndex, chunkLength)
-                                            : DONE, insert);
+        /**
+         * Settles a binary that ended while it was being gathered, by inlining it or cutting it into chunks.
+         */
+        private void endHeading() {
+            heading = false;
+            if (inlineThreshold > 0 && headLength <= inlineThreshold) {
+                byte[] content = head == null ? new byte[0] : copyOf(head, headLength);
+                finish(() -> setInline(id, content));
+            } else if (head != null) {
+                overflow = ByteBuffer.wrap(head, 0, headLength);
+            }
         }
+
+        /**
+         * @return whether a buffer for a new chunk could be taken now
+         */
+        private boolean reserve() {
+            if (inFlight.get() >= chunkWriteWindow) return false;
+            if (grant == null) {
+                // wait for room in memory before taking more content, so that a full budget slows the upload
+                grant = ingestBudget.acquireAsync(chunkLength);
+                grant.thenRun(this::drain);
+            }
+            if (!grant.isDone()) return false;
+            budgeted = grant.join();
+            grant = null;
+            chunk = insert.buffer(chunkLength);
+            filled = 0;
+            return true;
+        }
+
+        private void assemble(ByteBuffer buffer) {
+            int length = min(buffer.remaining(), chunkLength - filled);
+            ByteBuffer part = buffer.duplicate();
+            ((Buffer) part).limit(part.position() + length); // see ByteBufferInputStream on the cast
+            digests.values().forEach(digest -> digest.update(part.duplicate()));
+            part.get(chunk, filled, length);
+            ((Buffer) buffer).position(buffer.position() + length);
+            filled += length;
+            size += length;
+        }
+
+        private void write() {
+            final byte[] written = chunk;
+            final int length = filled;
+            final long budget = budgeted;
+            final int index = chunkIndex++;
+            chunk = null;
+            budgeted = 0;
+            log.debug("Recording chunk {} of binary content under: {}", index, id);
+            inFlight.incrementAndGet();
+            final CompletableFuture<Void> write;
+            try {
+                write = insert.execute(id, chunkLength, index, written, length);
+            } catch (RuntimeException e) {
+                ingestBudget.release(budget);
+                inFlight.decrementAndGet();
+                throw e;
+            }
+            final long started = nanoTime();
+            write.whenComplete((dummy, e) -> {
+                if (e != null) failure.compareAndSet(null, e);
+                else chunkSizes.recordWrite(length, nanoTime() - started);
+                ingestBudget.release(budget);
+                inFlight.decrementAndGet();
+                drain();
+            });
+        }
+
+        private void complete() {
+            if (chunk != null) write();
+            else if (chunkIndex == 0) { // record an empty binary as one empty chunk
+                chunk = insert.buffer(chunkLength);
+                filled = 0;
+                write();
+            }
+            if (inFlight.get() > 0) return; // the last write to settle will drain again
+            final int chunkCount = chunkIndex;
+            finish(() -> recordManifest.execute(id, chunkLength, insert.chunksPerBucket(), chunkCount, size,
+                            digested(digests)));
+        }
+
+        /**
+         * Stops taking content after a failure.
+         */
+        private void abandon() {
+            if (!cancelled && !upstreamDone && subscription != null) subscription.cancel();
+            cancelled = true;
+            delivered.clear();
+            chunk = null; // left for collection rather than pooled, since it may never be written
+            ingestBudget.release(budgeted);
+            budgeted = 0;
+            if (grant != null) grant.thenAccept(ingestBudget::release);
+            grant = null;
+        }
+
+        private void finish(Supplier<CompletableFuture<Void>> outcome) {
+            finished = true;
+            try {
+                outcome.get().whenComplete((dummy, e) -> {
+                    if (e == null) recorded.complete(null);
+                    else recorded.completeExceptionally(e);
+                });
+            } catch (RuntimeException e) {
+                recorded.completeExceptionally(e);
+            }
+        }
+    }
+
+    private CompletableFuture<Void> releaseFailed(IRI id, List<ByteBuffer> hashes, Throwable cause) {
+        log.error("Failed to record binary content under: {}, releasing stored chunks.", id);
+        CompletableFuture<Void> released = new CompletableFuture<>();
+        storedChunks.release(id, hashes).whenComplete((dummy, releaseFailure) -> {
+            if (releaseFailure != null) cause.addSuppressed(releaseFailure);
+            released.completeExceptionally(cause);
+        });
+        return released;
     }
 
+    /**
+     * @param data a stream to digest
+     * @param digests receives a {@link MessageDigest} for each of {@link #digestAlgorithms}, keyed by algorithm name
+     * @return a stream that updates those digests as it is read
+     */
+    private InputStream digesting(InputStream data, Map<String, MessageDigest> digests) {
+        InputStream digesting = data;
+        for (String algorithm : digestAlgorithms) {
+            MessageDigest digest = digest(algorithm);
+            digests.put(algorithm, digest);
+            digesting = new DigestInputStream(digesting, digest);
+        }
+        return digesting;
+    }
+
+    private static Map<String, ByteBuffer> digested(Map<String, MessageDigest> digests) {
+        Map<String, ByteBuffer> digested = new HashMap<>();
+        digests.forEach((algorithm, digest) -> digested.put(algorithm, ByteBuffer.wrap(digest.digest())));
+        return digested;
+    }
+
+    private CompletableFuture<Void> purgeFailed(IRI id, int bucketCount, Throwable cause) {
+        log.error("Failed to record binary content under: {}, purging partial content.", id);
+        CompletableFuture<Void> purged = new CompletableFuture<>();
+        delete.execute(id, bucketCount).whenComplete((dummy, purgeFailure) -> {
+            if (purgeFailure != null) cause.addSuppressed(purgeFailure);
+            purged.completeExceptionally(cause);
+        });
+        return purged;
+    }
+
+    /**
+     * If purges are deferred, queues the purge to be carried out in the background by a {@link DeferredPurger}, and
+     * otherwise carries it out at once.
+     *
+     * @see #purgeContentNow(IRI)
+     */
     @Override
     public CompletableFuture<Void> purgeContent(IRI identifier) {
-        return delete.execute(identifier);
+        return deferredPurge ? purgeQueue.enqueue(identifier) : purgeContentNow(identifier);
+    }
+
+    /**
+     * Releases the references held by a binary cut into content-defined chunks before deleting it, so that they are
+     * found again in its manifest if the deletion fails. Releasing is idempotent, so a purge may be repeated. Its
+     * chunks are left stored, because other binaries may share them, to be reclaimed by an {@link OrphanSweeper} once
+     * no binary refers to them. The buckets of a binary whose chunks were bucketed are deleted with it.
+     *
+     * @param identifier the {@link IRI} of a binary to purge
+     * @return whether and when it has been purged
+     */
+    public CompletableFuture<Void> purgeContentNow(IRI identifier) {
+        return get.execute(identifier)
+                        .handle((manifest, e) -> manifest) // a binary without a manifest may still have chunks
+                        .thenCompose(manifest -> storedChunks.release(identifier, chunkHashes(manifest))
+                                        .thenCompose(dummy -> delete.execute(identifier, bucketCount(manifest))));
+    }
+
+    /**
+     * @param manifest the manifest of a binary
+     * @return how many chunks of that binary are in each bucket, or {@code 0} if they are not bucketed
+     */
+    private static int chunksPerBucket(Row manifest) {
+        return manifest.isNull("chunksPerBucket") ? 0 : manifest.getInt("chunksPerBucket");
+    }
+
+    /**
+     * @param manifest the manifest of a binary, or {@code null} if none was found
+     * @return how many buckets of chunks that binary has, or {@code 0} if its chunks are not bucketed
+     */
+    private static int bucketCount(Row manifest) {
+        if (manifest == null || manifest.isNull("chunkCount")) return 0;
+        return bucketCount(manifest.getInt("chunkCount"), chunksPerBucket(manifest));
+    }
+
+    static int bucketCount(int chunkCount, int chunksPerBucket) {
+        return chunksPerBucket > 0 ? (chunkCount + chunksPerBucket - 1) / chunksPerBucket : 0;
+    }
+
+    /**
+     * @param manifest the manifest of a binary, or {@code null} if none was found
+     * @return the hashes of the content-defined chunks of that binary, or none if it was not cut into them
+     */
+    private static List<ByteBuffer> chunkHashes(Row manifest) {
+        if (manifest == null || manifest.isNull("chunkHashes")) return emptyList();
+        return manifest.getList("chunkHashes", ByteBuffer.class);
     }
 
     @Override
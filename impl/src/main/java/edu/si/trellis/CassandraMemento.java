@@ -1,9 +1,12 @@
 package edu.si.trellis;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
 import edu.si.trellis.query.rdf.ImmutableRetrieve;
 import edu.si.trellis.query.rdf.MementoMutableRetrieve;
 
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import org.apache.commons.rdf.api.IRI;
@@ -24,12 +27,12 @@ class CassandraMemento extends CassandraResource {
     }
 
     @Override
-    protected Stream<Quad> mutableQuads() {
+    protected CompletableFuture<Stream<Quad>> mutableQuads() {
         return mementoMutableRetrieve.execute(getIdentifier(), getModified());
     }
 
     @Override
-    protected Stream<Quad> basicContainmentQuads() {
-        return Stream.empty();
+    protected CompletableFuture<Stream<Quad>> basicContainmentQuads() {
+        return completedFuture(Stream.empty());
     }
 }
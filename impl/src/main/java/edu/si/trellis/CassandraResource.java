@@ -1,6 +1,11 @@
 package edu.si.trellis;
 
-import static java.util.stream.Stream.concat;
+import static java.util.Collections.emptyIterator;
+import static java.util.Collections.singleton;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+import static java.util.Spliterators.spliteratorUnknownSize;
+import static java.util.concurrent.CompletableFuture.anyOf;
 import static org.slf4j.LoggerFactory.getLogger;
 import static org.trellisldp.api.BinaryMetadata.builder;
 import static org.trellisldp.vocabulary.LDP.Container;
@@ -8,6 +13,7 @@ import static org.trellisldp.vocabulary.LDP.NonRDFSource;
 import static org.trellisldp.vocabulary.LDP.PreferContainment;
 import static org.trellisldp.vocabulary.LDP.contains;
 import static org.trellisldp.vocabulary.LDP.getSuperclassOf;
+import static org.trellisldp.vocabulary.Trellis.PreferAudit;
 
 import com.datastax.driver.core.Row;
 
@@ -16,8 +22,17 @@ import edu.si.trellis.query.rdf.ImmutableRetrieve;
 import edu.si.trellis.query.rdf.MutableRetrieve;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -101,44 +116,130 @@ class CassandraResource implements Resource {
         return Optional.ofNullable(binary);
     }
 
+    /**
+     * All the queries needed are started at once, and the quads of each are streamed in whatever order the queries
+     * return, so that the stream begins as soon as any query returns, and ends no later than the slowest.
+     */
     @Override
     public Stream<Quad> stream() {
         log.trace("Retrieving quad stream for resource {}", getIdentifier());
-        Stream<Quad> quads = concat(mutableQuads(), immutableQuads());
-        if (isContainer) {
-            Stream<Quad> containmentQuads = basicContainmentQuads();
-            quads = concat(quads, containmentQuads);
+        List<CompletableFuture<Stream<Quad>>> queries = new ArrayList<>(3);
+        queries.add(mutableQuads());
+        queries.add(immutableQuads());
+        if (isContainer) queries.add(basicContainmentQuads());
+        return asReturned(queries);
+    }
+
+    private static Stream<Quad> asReturned(List<CompletableFuture<Stream<Quad>>> queries) {
+        Iterator<Quad> quads = new Iterator<Quad>() {
+
+            private Iterator<Quad> current = emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && !queries.isEmpty()) current = returned(queries).iterator();
+                return current.hasNext();
+            }
+
+            @Override
+            public Quad next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current.next();
+            }
+        };
+        return StreamSupport.stream(spliteratorUnknownSize(quads, ORDERED | NONNULL), false);
+    }
+
+    /**
+     * @param queries queries yet to be streamed, from which the one returned is removed
+     * @return the quads of a query that has returned, waiting for one if none has
+     */
+    private static Stream<Quad> returned(List<CompletableFuture<Stream<Quad>>> queries) {
+        try {
+            anyOf(queries.toArray(new CompletableFuture<?>[queries.size()])).join();
+        } catch (CompletionException e) {
+            // rethrown below from the query that failed
         }
-        return quads;
+        for (Iterator<CompletableFuture<Stream<Quad>>> i = queries.iterator(); i.hasNext();) {
+            CompletableFuture<Stream<Quad>> query = i.next();
+            if (query.isDone()) {
+                i.remove();
+                return await(query);
+            }
+        }
+        throw new IllegalStateException("No query has returned!");
     }
 
     /**
-     * @return the quads stored via mutable data paths, either current or Memento
+     * @param query a query
+     * @return its results, waiting for them if need be, and failing as the query failed
      */
-    protected Stream<Quad> mutableQuads() {
+    private static <T> T await(CompletableFuture<T> query) {
+        try {
+            return query.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    /**
+     * @return the quads stored via mutable data paths, either current or Memento, once they have been queried
+     */
+    protected CompletableFuture<Stream<Quad>> mutableQuads() {
         return mutable.execute(getIdentifier());
     }
 
-    private Stream<Quad> immutableQuads() {
+    private CompletableFuture<Stream<Quad>> immutableQuads() {
         return immutable.execute(getIdentifier());
     }
 
-    protected Stream<Quad> basicContainmentQuads() {
-        Spliterator<Row> rows = bcontainment.execute(getIdentifier()).spliterator();
-        Stream<IRI> contained = StreamSupport.stream(rows, false).map(r -> r.get("contained", IRI.class));
-        return contained.distinct().map(c -> rdfFactory.createQuad(PreferContainment, getIdentifier(), contains, c))
-                        .peek(t -> log.trace("Built containment quad: {}", t));
+    /**
+     * @return the containment quads of this resource, once they have been queried
+     */
+    protected CompletableFuture<Stream<Quad>> basicContainmentQuads() {
+        return bcontainment.execute(getIdentifier()).thenApply(results -> {
+            Spliterator<Row> rows = results.spliterator();
+            Stream<IRI> contained = StreamSupport.stream(rows, false).map(r -> r.get("contained", IRI.class));
+            return contained.distinct()
+                            .map(c -> rdfFactory.createQuad(PreferContainment, getIdentifier(), contains, c))
+                            .peek(t -> log.trace("Built containment quad: {}", t));
+        });
     }
     
     /**
      * If there are mutable triples stored in the PreferContainment named graph, they will <i>not</i> be returned here.
      * Our assumption is that no user will intentionally use that URI as a name for a graph.
      *
-     * @see org.trellisldp.api.Resource#stream(org.apache.commons.rdf.api.IRI)
+     * @see #stream(Collection)
      */
     @Override
     public Stream<Quad> stream(IRI graphName) {
-        if (graphName.equals(PreferContainment)) return basicContainmentQuads();
-        return Resource.super.stream(graphName);
+        return stream(singleton(graphName));
+    }
+
+    /**
+     * Only the queries that can hold quads in the graphs asked for are run, so that, for instance, audit history is not
+     * read unless it is asked for. Our assumptions are that immutable data holds only quads in the PreferAudit graph,
+     * which mutable data does not use, and that no mutable triples are stored in the PreferContainment graph, as for
+     * {@link #stream(IRI)}.
+     *
+     * @see org.trellisldp.api.Resource#stream(java.util.Collection)
+     */
+    @Override
+    public Stream<Quad> stream(Collection<IRI> graphNames) {
+        log.trace("Retrieving quad stream in graphs {} for resource {}", graphNames, getIdentifier());
+        List<CompletableFuture<Stream<Quad>>> queries = new ArrayList<>(3);
+        Set<IRI> mutableGraphs = new HashSet<>(graphNames);
+        mutableGraphs.remove(PreferAudit);
+        mutableGraphs.remove(PreferContainment);
+        if (!mutableGraphs.isEmpty()) queries.add(mutableQuads().thenApply(quads -> inGraphs(quads, mutableGraphs)));
+        if (graphNames.contains(PreferAudit))
+            queries.add(immutableQuads().thenApply(quads -> inGraphs(quads, singleton(PreferAudit))));
+        if (isContainer && graphNames.contains(PreferContainment)) queries.add(basicContainmentQuads());
+        return asReturned(queries);
+    }
+
+    private static Stream<Quad> inGraphs(Stream<Quad> quads, Set<IRI> graphNames) {
+        return quads.filter(quad -> quad.getGraphName().filter(graphNames::contains).isPresent());
     }
 }
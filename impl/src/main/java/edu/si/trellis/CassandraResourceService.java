@@ -28,6 +28,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -72,6 +73,8 @@ public class CassandraResourceService extends CassandraBuildingService implement
 
     private final ImmutableRetrieve immutableRetrieve;
 
+    private final ResourceCache cache;
+
     /**
      * Constructor.
      * 
@@ -83,11 +86,12 @@ public class CassandraResourceService extends CassandraBuildingService implement
      * @param mutableRetrieve {@link MutableRetrieve} to support retrieving content
      * @param immutableRetrieve {@link ImmutableRetrieve} to support retrieving content
      * @param bcontainment {@link BasicContainment} to support retrieving content
+     * @param cache {@link ResourceCache} in which to keep resources read
      */
     @Inject
     public CassandraResourceService(Delete delete, Get get, ImmutableInsert immutableInsert,
                     MutableInsert mutableInsert, Touch touch, MutableRetrieve mutableRetrieve,
-                    ImmutableRetrieve immutableRetrieve, BasicContainment bcontainment) {
+                    ImmutableRetrieve immutableRetrieve, BasicContainment bcontainment, ResourceCache cache) {
         this.delete = delete;
         this.get = get;
         this.immutableInsert = immutableInsert;
@@ -96,7 +100,7 @@ public class CassandraResourceService extends CassandraBuildingService implement
         this.mutableRetrieve = mutableRetrieve;
         this.immutableRetrieve = immutableRetrieve;
         this.bcontainment = bcontainment;
-
+        this.cache = cache;
     }
 
     /**
@@ -121,6 +125,10 @@ public class CassandraResourceService extends CassandraBuildingService implement
 
     @Override
     public CompletionStage<? extends Resource> get(final IRI id) {
+        return cache.get(id, this::read);
+    }
+
+    private CompletionStage<? extends Resource> read(IRI id) {
         return get.execute(id).thenApply(rows -> parse(rows, log, id));
     }
 
@@ -138,19 +146,19 @@ public class CassandraResourceService extends CassandraBuildingService implement
     @Override
     public CompletionStage<Void> create(Metadata meta, Dataset data) {
         log.debug("Creating {} with interaction model {}", meta.getIdentifier(), meta.getInteractionModel());
-        return write(meta, data);
+        return evicting(meta.getIdentifier(), () -> write(meta, data));
     }
 
     @Override
     public CompletionStage<Void> replace(Metadata meta, Dataset data) {
         log.debug("Replacing {} with interaction model {}", meta.getIdentifier(), meta.getInteractionModel());
-        return write(meta, data);
+        return evicting(meta.getIdentifier(), () -> write(meta, data));
     }
 
     @Override
     public CompletionStage<Void> delete(Metadata meta) {
         log.debug("Deleting {}", meta.getIdentifier());
-        return delete.execute(meta.getIdentifier());
+        return evicting(meta.getIdentifier(), () -> delete.execute(meta.getIdentifier()));
     }
 
     /*
@@ -158,7 +166,17 @@ public class CassandraResourceService extends CassandraBuildingService implement
      */
     @Override
     public CompletionStage<Void> touch(IRI id) {
-        return touch.execute(now(), id);
+        return evicting(id, () -> touch.execute(now(), id));
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource to write
+     * @param write begins the write, which is done only once the resource has been evicted from {@link #cache}
+     * @return the write, once it has ended and the resource has been evicted from {@link #cache} again
+     */
+    private CompletionStage<Void> evicting(IRI id, Supplier<CompletionStage<Void>> write) {
+        cache.evict(id);
+        return write.get().whenComplete((done, e) -> cache.evict(id));
     }
 
     @Override
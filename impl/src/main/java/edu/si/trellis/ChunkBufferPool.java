@@ -0,0 +1,50 @@
+package edu.si.trellis;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pool of buffers into which chunks are read for writing, so that each chunk write need not allocate and
+ * then discard a chunk-sized array. A buffer is taken for each chunk and given back once its write has completed. At
+ * most {@code size} idle buffers are kept; any more given back are left for collection, and when none is idle a new
+ * one is allocated.
+ * <p>
+ * Thread-safe.
+ * </p>
+ */
+public class ChunkBufferPool {
+
+    private final BlockingQueue<byte[]> idle;
+
+    /**
+     * @param size the maximum number of idle buffers to keep
+     */
+    public ChunkBufferPool(int size) {
+        if (size < 0) throw new IllegalArgumentException("Chunk buffer pool size < 0!");
+        this.idle = size > 0 ? new ArrayBlockingQueue<>(size) : null;
+    }
+
+    /**
+     * @param length the minimum length of buffer needed
+     * @return a buffer of at least that length, which should be given back with {@link #release(byte[])}
+     */
+    public byte[] acquire(int length) {
+        byte[] buffer = idle == null ? null : idle.poll();
+        // a buffer too short for this chunk is dropped, so the pool adapts to the chunk lengths in use
+        return buffer != null && buffer.length >= length ? buffer : new byte[length];
+    }
+
+    /**
+     * @param buffer a buffer taken with {@link #acquire(int)} that is no longer in use
+     */
+    public void release(byte[] buffer) {
+        if (idle != null) idle.offer(buffer);
+    }
+
+    /**
+     * @return how many idle buffers are kept
+     */
+    int idle() {
+        return idle == null ? 0 : idle.size();
+    }
+}
@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The maximum number of idle chunk buffers to keep for reuse between chunk writes.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface ChunkBufferPoolSize {
+
+    /**
+     * Default pool size.
+     */
+    public static final String value = "16";
+}
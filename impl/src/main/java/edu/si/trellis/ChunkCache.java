@@ -0,0 +1,262 @@
+package edu.si.trellis;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+
+/**
+ * A local cache of uncompressed binary chunks, so that chunks read often need not be pulled from Cassandra each time.
+ * Binaries are never changed once recorded, so a cached chunk is never stale and entries are only ever evicted, least
+ * recently used first.
+ * <p>
+ * There are two tiers. Chunks are first held in memory, on the heap, so that an evicted chunk is reclaimed like any
+ * other garbage rather than holding native memory until its buffer happens to be collected. A chunk evicted from
+ * memory is written to a file in a local directory, if one is configured, and read back from there onto the heap,
+ * which promotes it into memory again. The directory is emptied on startup, since the index of the files in
+ * it is not persisted.
+ * </p>
+ * <p>
+ * Thread-safe.
+ * </p>
+ */
+@Singleton
+public class ChunkCache {
+
+    private static final Logger log = getLogger(ChunkCache.class);
+
+    private static final String FILE_PREFIX = "chunk-";
+
+    private final long memoryCapacity, diskCapacity;
+
+    private long memoryUsed, diskUsed;
+
+    /**
+     * Cached chunks held in memory, in access order.
+     */
+    private final LinkedHashMap<String, ByteBuffer> memory = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Cached chunks written to disk, in access order.
+     */
+    private final LinkedHashMap<String, DiskEntry> disk = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Path directory;
+
+    private final AtomicLong fileCount = new AtomicLong(), memoryHits = new AtomicLong(),
+                    diskHits = new AtomicLong(), misses = new AtomicLong();
+
+    /**
+     * @param memoryCapacity how many bytes of chunks to hold in memory, or {@code 0} for none
+     * @param diskCapacity how many bytes of chunks to hold on local disk, or {@code 0} for none
+     * @param directory the directory in which to hold chunks on disk, or empty for a temporary directory
+     */
+    @Inject
+    public ChunkCache(@ChunkCacheSize long memoryCapacity, @ChunkCacheDiskSize long diskCapacity,
+                    @ChunkCacheDirectory String directory) {
+        if (memoryCapacity < 0) throw new IllegalArgumentException("Chunk cache size < 0!");
+        if (diskCapacity < 0) throw new IllegalArgumentException("Chunk cache disk size < 0!");
+        this.memoryCapacity = memoryCapacity;
+        this.diskCapacity = diskCapacity;
+        this.directory = diskCapacity > 0 ? prepare(directory) : null;
+        log.info("Caching binary chunks in {} bytes of memory and {} bytes of disk at: {}", memoryCapacity,
+                        diskCapacity, this.directory);
+    }
+
+    /**
+     * @param id the {@link IRI} of a binary recorded in fixed-length chunks
+     * @param chunkIndex the index of one of its chunks
+     * @return the key under which that chunk is cached
+     */
+    public static String key(IRI id, int chunkIndex) {
+        // no IRI contains a space, so these keys cannot collide with each other or with content-hash keys
+        return id.getIRIString() + " " + chunkIndex;
+    }
+
+    /**
+     * @param hash the content hash of a stored chunk
+     * @return the key under which that chunk is cached
+     */
+    public static String key(ByteBuffer hash) {
+        StringBuilder key = new StringBuilder("hash:");
+        for (int i = hash.position(); i < hash.limit(); i++) key.append(String.format("%02x", hash.get(i)));
+        return key.toString();
+    }
+
+    /**
+     * @param key the key of a chunk
+     * @return whether that chunk is cached, though it may be evicted before it is retrieved
+     */
+    public synchronized boolean contains(String key) {
+        return memory.containsKey(key) || disk.containsKey(key);
+    }
+
+    /**
+     * @param key the key of a chunk
+     * @return the uncompressed bytes of that chunk, or {@code null} if it is not cached
+     */
+    public ByteBuffer get(String key) {
+        DiskEntry onDisk;
+        synchronized (this) {
+            ByteBuffer inMemory = memory.get(key);
+            if (inMemory != null) {
+                memoryHits.incrementAndGet();
+                return inMemory.asReadOnlyBuffer();
+            }
+            onDisk = disk.get(key);
+        }
+        if (onDisk != null) try (FileChannel file = FileChannel.open(onDisk.file, READ)) {
+            // read onto the heap rather than mapping, so that no caller holds a file this cache may delete
+            ByteBuffer chunk = ByteBuffer.allocate(onDisk.length);
+            while (chunk.hasRemaining())
+                if (file.read(chunk) < 0) throw new EOFException();
+            ((Buffer) chunk).flip();
+            diskHits.incrementAndGet();
+            putInMemory(key, chunk);
+            return chunk.asReadOnlyBuffer();
+        } catch (IOException e) {
+            log.debug("Cached chunk {} was evicted from disk while being read", key);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @param key the key of a chunk
+     * @param chunk the uncompressed bytes of that chunk, which are copied and left unchanged
+     */
+    public void put(String key, ByteBuffer chunk) {
+        if (chunk.remaining() > memoryCapacity) {
+            putOnDisk(key, chunk);
+            return;
+        }
+        ByteBuffer copy = ByteBuffer.allocate(chunk.remaining());
+        ((Buffer) copy.put(chunk.duplicate())).flip(); // see ByteBufferInputStream on the cast
+        putInMemory(key, copy);
+    }
+
+    private void putInMemory(String key, ByteBuffer chunk) {
+        List<Map.Entry<String, ByteBuffer>> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (chunk.remaining() > memoryCapacity || memory.containsKey(key)) return;
+            memory.put(key, chunk);
+            memoryUsed += chunk.remaining();
+            Iterator<Map.Entry<String, ByteBuffer>> lru = memory.entrySet().iterator();
+            while (memoryUsed > memoryCapacity) {
+                Map.Entry<String, ByteBuffer> eldest = lru.next();
+                lru.remove();
+                memoryUsed -= eldest.getValue().remaining();
+                evicted.add(eldest);
+            }
+        }
+        // demote outside the lock, since writing files is slow
+        for (Map.Entry<String, ByteBuffer> demoted : evicted) putOnDisk(demoted.getKey(), demoted.getValue());
+    }
+
+    private void putOnDisk(String key, ByteBuffer chunk) {
+        if (directory == null || chunk.remaining() > diskCapacity) return;
+        synchronized (this) {
+            if (disk.containsKey(key)) return;
+        }
+        Path file = directory.resolve(FILE_PREFIX + fileCount.incrementAndGet());
+        try (FileChannel out = FileChannel.open(file, CREATE_NEW, WRITE)) {
+            ByteBuffer source = chunk.duplicate();
+            while (source.hasRemaining()) out.write(source);
+        } catch (IOException e) {
+            log.warn("Failed to cache chunk {} on disk: {}", key, e.getMessage());
+            delete(file);
+            return;
+        }
+        List<Path> evicted = new ArrayList<>();
+        synchronized (this) {
+            DiskEntry entry = new DiskEntry(file, chunk.remaining());
+            if (disk.putIfAbsent(key, entry) != null) evicted.add(file);
+            else diskUsed += entry.length;
+            Iterator<DiskEntry> lru = disk.values().iterator();
+            while (diskUsed > diskCapacity) {
+                DiskEntry eldest = lru.next();
+                lru.remove();
+                diskUsed -= eldest.length;
+                evicted.add(eldest.file);
+            }
+        }
+        evicted.forEach(ChunkCache::delete);
+    }
+
+    /**
+     * @return how many chunks have been served from memory
+     */
+    public long memoryHits() {
+        return memoryHits.get();
+    }
+
+    /**
+     * @return how many chunks have been served from disk
+     */
+    public long diskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * @return how many chunks were asked for and not found
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    private static Path prepare(String directory) {
+        try {
+            Path prepared = directory == null || directory.isEmpty() ? Files.createTempDirectory("trellis-chunks")
+                            : Files.createDirectories(Paths.get(directory));
+            try (DirectoryStream<Path> stale = Files.newDirectoryStream(prepared, FILE_PREFIX + "*")) {
+                for (Path file : stale) Files.delete(file);
+            }
+            return prepared;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete cached chunk file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static final class DiskEntry {
+
+        private final Path file;
+
+        private final int length;
+
+        private DiskEntry(Path file, int length) {
+            this.file = file;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The local directory in which to cache binary chunks on disk, or empty for a temporary directory.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface ChunkCacheDirectory {
+
+    /**
+     * Default directory, a temporary one.
+     */
+    public static final String value = "";
+}
@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * How many bytes of binary chunks to cache on local disk once evicted from memory, or {@code 0} for none.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface ChunkCacheDiskSize {
+
+    /**
+     * Default disk size, none.
+     */
+    public static final String value = "0";
+}
@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * How many bytes of binary chunks to cache in memory, or {@code 0} for none.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface ChunkCacheSize {
+
+    /**
+     * Default size, 64 MiB.
+     */
+    public static final String value = "67108864";
+}
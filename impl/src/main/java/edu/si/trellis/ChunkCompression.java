@@ -0,0 +1,186 @@
+package edu.si.trellis;
+
+import static java.util.Arrays.copyOf;
+
+import com.datastax.driver.core.Row;
+import com.github.luben.zstd.Zstd;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * Compressions for binary chunks. Each chunk is compressed on its own, so that any chunk can be read without any
+ * other, and its compression is recorded beside it, so that chunks recorded with any compression (or none) can be read
+ * whatever compression is currently configured.
+ */
+public enum ChunkCompression {
+
+    /**
+     * Chunks are recorded as they are.
+     */
+    NONE {
+
+        @Override
+        byte[] compress(byte[] chunk, int length) {
+            return chunk;
+        }
+
+        @Override
+        ByteBuffer decompress(ByteBuffer compressed) {
+            return compressed;
+        }
+    },
+
+    /**
+     * Chunks are compressed as LZ4 blocks, preceded by their uncompressed length. Fast, for a modest ratio.
+     */
+    LZ4 {
+
+        private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+
+        private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+        @Override
+        byte[] compress(byte[] chunk, int length) {
+            byte[] compressed = new byte[Integer.BYTES + compressor.maxCompressedLength(length)];
+            ByteBuffer.wrap(compressed).putInt(length);
+            int compressedLength = compressor.compress(chunk, 0, length, compressed, Integer.BYTES,
+                            compressed.length - Integer.BYTES);
+            return copyOf(compressed, Integer.BYTES + compressedLength);
+        }
+
+        @Override
+        ByteBuffer decompress(ByteBuffer compressed) {
+            int length = compressed.getInt(compressed.position());
+            ByteBuffer chunk = ByteBuffer.allocate(length);
+            decompressor.decompress(compressed, compressed.position() + Integer.BYTES, chunk, 0, length);
+            return chunk;
+        }
+    },
+
+    /**
+     * Chunks are compressed as Zstandard frames. Slower than {@link #LZ4}, for a better ratio.
+     */
+    ZSTD {
+
+        private static final int LEVEL = 3;
+
+        @Override
+        byte[] compress(byte[] chunk, int length) {
+            byte[] compressed = new byte[(int) Zstd.compressBound(length)];
+            long compressedLength = Zstd.compressByteArray(compressed, 0, compressed.length, chunk, 0, length, LEVEL);
+            if (Zstd.isError(compressedLength)) throw new IllegalStateException(Zstd.getErrorName(compressedLength));
+            return copyOf(compressed, (int) compressedLength);
+        }
+
+        @Override
+        ByteBuffer decompress(ByteBuffer compressed) {
+            byte[] frame = new byte[compressed.remaining()];
+            compressed.duplicate().get(frame);
+            return ByteBuffer.wrap(Zstd.decompress(frame, (int) Zstd.decompressedSize(frame)));
+        }
+    };
+
+    /**
+     * @param chunk a buffer holding the bytes of a chunk
+     * @param length how many bytes at the front of that buffer belong to the chunk
+     * @return those bytes compressed, or for {@link #NONE}, the buffer itself
+     */
+    abstract byte[] compress(byte[] chunk, int length);
+
+    /**
+     * @param compressed the bytes of a chunk compressed with this compression
+     * @return those bytes decompressed
+     */
+    abstract ByteBuffer decompress(ByteBuffer compressed);
+
+    /**
+     * A marker is recorded even for {@link #NONE}, so that a chunk written over one that was compressed does not keep
+     * the old marker.
+     *
+     * @return the marker recorded beside chunks compressed with this compression
+     */
+    public String marker() {
+        return name();
+    }
+
+    /**
+     * @param marker a marker recorded beside a chunk, or {@code null} for a chunk recorded before markers were
+     * @return the compression of that chunk
+     */
+    public static ChunkCompression forMarker(String marker) {
+        return marker == null ? NONE : valueOf(marker);
+    }
+
+    /**
+     * Compresses a chunk for recording. If compression would not make the chunk any smaller, as with data that is
+     * already compressed, the chunk is left as it is, to be recorded with the marker of {@link #NONE}.
+     * 
+     * @param chunk a buffer holding the bytes of a chunk
+     * @param length how many bytes at the front of that buffer belong to the chunk
+     * @return the bytes to record for that chunk, which share the buffer if the chunk is left as it is
+     */
+    public Compressed apply(byte[] chunk, int length) {
+        if (this != NONE) {
+            byte[] compressed = compress(chunk, length);
+            if (compressed.length < length) return new Compressed(this, compressed, compressed.length);
+        }
+        return new Compressed(NONE, chunk, length);
+    }
+
+    /**
+     * @param row a {@link Row} with the {@code chunk} of a binary and its {@code compression} marker
+     * @return the uncompressed bytes of that chunk
+     */
+    public static InputStream chunk(Row row) {
+        ChunkCompression compression = forMarker(row.getString("compression"));
+        if (compression == NONE) return row.get("chunk", InputStream.class);
+        return new ByteBufferInputStream(compression.decompress(row.getBytes("chunk")));
+    }
+
+    /**
+     * @param row a {@link Row} with the {@code chunk} of a binary and its {@code compression} marker
+     * @return the uncompressed bytes of that chunk, as a buffer that may be retained
+     */
+    public static ByteBuffer bytes(Row row) {
+        ChunkCompression compression = forMarker(row.getString("compression"));
+        ByteBuffer chunk = row.getBytes("chunk");
+        return compression == NONE ? chunk : compression.decompress(chunk);
+    }
+
+    /**
+     * The bytes to record for a chunk, with the compression that produced them.
+     */
+    public static final class Compressed {
+
+        private final ChunkCompression compression;
+
+        private final byte[] bytes;
+
+        private final int length;
+
+        private Compressed(ChunkCompression compression, byte[] bytes, int length) {
+            this.compression = compression;
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        /**
+         * @return the compression that produced these bytes
+         */
+        public ChunkCompression compression() {
+            return compression;
+        }
+
+        /**
+         * @return the bytes to record
+         */
+        public ByteBuffer bytes() {
+            return ByteBuffer.wrap(bytes, 0, length);
+        }
+    }
+}
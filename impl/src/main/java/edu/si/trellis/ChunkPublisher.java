@@ -0,0 +1,262 @@
+package edu.si.trellis;
+
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+
+/**
+ * A {@link Publisher} of the bytes of a run of binary chunks, fetched asynchronously so that no thread waits on
+ * Cassandra while a binary is streamed. Chunks are fetched only while the subscriber has demand, with at most
+ * {@code readAhead + 1} fetched ahead of the chunk next to be published, and are published in order, trimmed to the
+ * requested range. Each chunk is published as one buffer, from whichever thread completed its fetch, so subscribers
+ * should not block in {@link Subscriber#onNext(Object)}.
+ * <p>
+ * Each subscription fetches the chunks anew.
+ * </p>
+ *
+ * @see PrefetchingChunkInputStream
+ */
+public class ChunkPublisher implements Publisher<ByteBuffer> {
+
+    private static final Logger log = getLogger(ChunkPublisher.class);
+
+    private final int chunkCount;
+
+    private final IntFunction<CompletableFuture<ByteBuffer>> fetch;
+
+    private final int readAhead;
+
+    private final long skip, length;
+
+    /**
+     * @param chunkCount how many chunks to publish
+     * @param fetch fetches the uncompressed bytes of a chunk by its index in this run, cancelling the fetch if the
+     *            returned future is cancelled
+     * @param readAhead how many chunks to fetch ahead of the chunk next to be published
+     * @param skip how many bytes at the start of the first chunk to leave out
+     * @param length how many bytes to publish at most
+     */
+    public ChunkPublisher(int chunkCount, IntFunction<CompletableFuture<ByteBuffer>> fetch, int readAhead, long skip,
+                    long length) {
+        if (readAhead < 0) throw new IllegalArgumentException("Read-ahead < 0!");
+        this.chunkCount = chunkCount;
+        this.fetch = fetch;
+        this.readAhead = readAhead;
+        this.skip = skip;
+        this.length = length;
+    }
+
+    /**
+     * @return a {@link ChunkPublisher} that publishes no bytes
+     */
+    public static ChunkPublisher empty() {
+        return new ChunkPublisher(0, i -> {
+            throw new IllegalStateException("No chunk to fetch!");
+        }, 0, 0, 0);
+    }
+
+    /**
+     * Fetches one chunk.
+     *
+     * @param session the Cassandra session to use
+     * @param query a CQL query that retrieves one chunk
+     * @param cache a {@link ChunkCache} in which to look for the chunk and put it once fetched, or {@code null}
+     * @param key the cache key of the chunk
+     * @return the uncompressed bytes of the chunk
+     */
+    public static CompletableFuture<ByteBuffer> fetch(Session session, Statement query, ChunkCache cache,
+                    String key) {
+        if (cache != null) {
+            ByteBuffer cached = cache.get(key);
+            if (cached != null) return completedFuture(cached);
+        }
+        ResultSetFuture resultSet = session.executeAsync(query);
+        CompletableFuture<ByteBuffer> chunk = new CompletableFuture<>();
+        resultSet.addListener(() -> {
+            try {
+                Row row = requireNonNull(resultSet.get().one(), "Missing binary chunk!");
+                ByteBuffer bytes = ChunkCompression.bytes(row);
+                if (cache != null) cache.put(key, bytes);
+                chunk.complete(bytes);
+            } catch (ExecutionException e) {
+                chunk.completeExceptionally(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                chunk.completeExceptionally(e);
+            } catch (RuntimeException e) { // including cancellation
+                chunk.completeExceptionally(e);
+            }
+        }, Runnable::run);
+        chunk.whenComplete((bytes, e) -> {
+            if (chunk.isCancelled()) resultSet.cancel(true);
+        });
+        return chunk;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+        requireNonNull(subscriber, "Null subscriber!");
+        ChunkSubscription subscription = new ChunkSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        subscription.drain();
+    }
+
+    private class ChunkSubscription implements Subscription {
+
+        private final Subscriber<? super ByteBuffer> subscriber;
+
+        @SuppressWarnings("unchecked")
+        private final CompletableFuture<ByteBuffer>[] fetches = new CompletableFuture[chunkCount];
+
+        private final AtomicLong demand = new AtomicLong();
+
+        /**
+         * Counts calls to {@link #drain()} in progress, so that only one runs at a time and none is lost.
+         */
+        private final AtomicInteger draining = new AtomicInteger();
+
+        private volatile boolean cancelled = false;
+
+        /**
+         * An error to signal on cancelling, for a subscriber that broke the rules.
+         */
+        private volatile Throwable error;
+
+        private boolean done = false;
+
+        /**
+         * The index of the next chunk to fetch.
+         */
+        private int nextFetch = 0;
+
+        /**
+         * The index of the next chunk to publish.
+         */
+        private int nextPublish = 0;
+
+        private long toSkip = skip, remaining = length;
+
+        private ChunkSubscription(Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Subscriber requested " + n + " chunks!");
+                cancelled = true;
+                drain();
+                return;
+            }
+            demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n); // demand is capped, not overflowed
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+            int missed = draining.incrementAndGet();
+            if (missed != 1) return; // the drain in progress will make another pass
+            do {
+                pass();
+                missed = draining.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Publishes as many chunks as are fetched and demanded, fetching more as demand allows.
+         */
+        private void pass() {
+            while (!done) {
+                if (cancelled) {
+                    if (error != null) fail(error);
+                    else {
+                        done = true;
+                        cancelFetches();
+                    }
+                    return;
+                }
+                if (nextPublish == chunkCount || remaining <= 0) {
+                    done = true;
+                    cancelFetches(); // any fetched beyond the end of the range
+                    subscriber.onComplete();
+                    return;
+                }
+                if (demand.get() == 0) return;
+                int last = min(nextPublish + readAhead, chunkCount - 1);
+                for (; nextFetch <= last; nextFetch++) {
+                    log.debug("Fetching chunk: {}", nextFetch);
+                    fetches[nextFetch] = fetch.apply(nextFetch);
+                    fetches[nextFetch].whenComplete((bytes, e) -> drain());
+                }
+                CompletableFuture<ByteBuffer> fetched = fetches[nextPublish];
+                if (!fetched.isDone()) return; // its completion will drain again
+                fetches[nextPublish++] = null; // release for collection once published
+                ByteBuffer chunk;
+                try {
+                    chunk = fetched.join().duplicate();
+                } catch (RuntimeException e) {
+                    fail(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    return;
+                }
+                ByteBuffer trimmed = trim(chunk);
+                if (trimmed.hasRemaining()) {
+                    demand.decrementAndGet();
+                    subscriber.onNext(trimmed);
+                }
+            }
+        }
+
+        /**
+         * @param chunk a chunk about to be published
+         * @return the part of that chunk within the requested range
+         */
+        private ByteBuffer trim(ByteBuffer chunk) {
+            int skipped = (int) min(toSkip, chunk.remaining());
+            toSkip -= skipped;
+            // see ByteBufferInputStream on the casts
+            ((Buffer) chunk).position(chunk.position() + skipped);
+            if (chunk.remaining() > remaining) ((Buffer) chunk).limit(chunk.position() + (int) remaining);
+            remaining -= chunk.remaining();
+            return chunk.slice();
+        }
+
+        private void cancelFetches() {
+            for (int i = nextPublish; i < nextFetch; i++)
+                if (fetches[i] != null) {
+                    fetches[i].cancel(true);
+                    fetches[i] = null;
+                }
+        }
+
+        private void fail(Throwable e) {
+            done = true;
+            cancelFetches();
+            subscriber.onError(e);
+        }
+    }
+}
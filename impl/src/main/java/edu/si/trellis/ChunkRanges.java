@@ -0,0 +1,177 @@
+package edu.si.trellis;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Reads several ranges of a binary at once. The chunks the ranges need are gathered, so that a chunk needed by more
+ * than one range, or twice by one, is fetched only once, and are fetched a few at a time without blocking. Each range
+ * is then sliced out of the fetched chunks without copying.
+ * <p>
+ * All the chunks needed are held until every range has been read, so this suits a handful of modest ranges, such as
+ * a reader seeking about a document, and not ranges that together cover much of a large binary, which are better
+ * streamed one at a time.
+ * </p>
+ */
+public final class ChunkRanges {
+
+    private final IntFunction<CompletableFuture<ByteBuffer>> fetch;
+
+    private final LongToIntFunction chunkAt;
+
+    private final IntToLongFunction offsetOf;
+
+    private final long size;
+
+    private final int window;
+
+    /**
+     * @param fetch fetches the uncompressed bytes of a chunk by its index, cancelling the fetch if the returned future
+     *            is cancelled
+     * @param chunkAt gives the index of the chunk that holds the byte at an offset
+     * @param offsetOf gives the offset of the first byte of a chunk by its index
+     * @param size the length in bytes of the binary
+     * @param window how many chunks to fetch at once at most
+     */
+    public ChunkRanges(IntFunction<CompletableFuture<ByteBuffer>> fetch, LongToIntFunction chunkAt,
+                    IntToLongFunction offsetOf, long size, int window) {
+        if (window < 1) throw new IllegalArgumentException("Fetch window < 1!");
+        this.fetch = fetch;
+        this.chunkAt = chunkAt;
+        this.offsetOf = offsetOf;
+        this.size = size;
+        this.window = window;
+    }
+
+    /**
+     * @param ranges ranges of the binary, in any order and possibly overlapping
+     * @return for each range in turn, its bytes as read-only buffers in order, which share the fetched chunks, and
+     *         which are none for a range that begins past the end of the binary; a range that ends past the end is
+     *         shortened
+     */
+    public CompletableFuture<List<List<ByteBuffer>>> read(List<ByteRange> ranges) {
+        SortedSet<Integer> needed = new TreeSet<>();
+        for (ByteRange range : ranges)
+            if (range.getFrom() < size) {
+                int last = chunkAt.applyAsInt(min(range.getTo(), size - 1));
+                for (int chunk = chunkAt.applyAsInt(range.getFrom()); chunk <= last; chunk++) needed.add(chunk);
+            }
+        return new Fetch(needed).fetched.thenApply(chunks -> ranges.stream().map(range -> slice(range, chunks))
+                        .collect(toList()));
+    }
+
+    private List<ByteBuffer> slice(ByteRange range, Map<Integer, ByteBuffer> chunks) {
+        if (range.getFrom() >= size) return emptyList();
+        long to = min(range.getTo(), size - 1);
+        int first = chunkAt.applyAsInt(range.getFrom()), last = chunkAt.applyAsInt(to);
+        List<ByteBuffer> slices = new ArrayList<>(last - first + 1);
+        for (int chunk = first; chunk <= last; chunk++) {
+            ByteBuffer bytes = chunks.get(chunk).asReadOnlyBuffer();
+            long offset = offsetOf.applyAsLong(chunk);
+            int start = (int) (max(range.getFrom(), offset) - offset);
+            int end = (int) min(to + 1 - offset, bytes.remaining());
+            if (end <= start) continue;
+            // see ByteBufferInputStream on the casts
+            ((Buffer) bytes).limit(bytes.position() + end);
+            ((Buffer) bytes).position(bytes.position() + start);
+            slices.add(bytes.slice());
+        }
+        return slices;
+    }
+
+    /**
+     * Fetches a set of chunks, keeping at most {@link #window} fetches in flight.
+     */
+    private final class Fetch {
+
+        private final Iterator<Integer> next;
+
+        private final Map<Integer, ByteBuffer> chunks = new ConcurrentHashMap<>();
+
+        private final List<CompletableFuture<ByteBuffer>> inFlight = new ArrayList<>();
+
+        private final CompletableFuture<Map<Integer, ByteBuffer>> fetched = new CompletableFuture<>();
+
+        /**
+         * Counts calls to {@link #fill()} in progress, so that a fetch completed at once, as from a cache, does not
+         * start the next one from deeper in the stack.
+         */
+        private final AtomicInteger filling = new AtomicInteger();
+
+        private int outstanding;
+
+        private Fetch(SortedSet<Integer> needed) {
+            this.next = needed.iterator();
+            this.outstanding = needed.size();
+            if (outstanding == 0) fetched.complete(chunks);
+            else fill();
+        }
+
+        private void fill() {
+            int missed = filling.incrementAndGet();
+            if (missed != 1) return; // the fill in progress will make another pass
+            do {
+                while (startNext()) {
+                    // keep starting fetches while there is room
+                }
+                missed = filling.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * @return whether a fetch was started
+         */
+        private boolean startNext() {
+            int chunk;
+            CompletableFuture<ByteBuffer> fetching;
+            synchronized (this) {
+                if (fetched.isDone() || !next.hasNext() || inFlight.size() >= window) return false;
+                chunk = next.next();
+                try {
+                    fetching = fetch.apply(chunk);
+                } catch (RuntimeException e) {
+                    fetching = new CompletableFuture<>();
+                    fetching.completeExceptionally(e);
+                }
+                inFlight.add(fetching);
+            }
+            CompletableFuture<ByteBuffer> started = fetching;
+            started.whenComplete((bytes, e) -> fetchedOne(chunk, started, bytes, e));
+            return true;
+        }
+
+        private void fetchedOne(int chunk, CompletableFuture<ByteBuffer> fetching, ByteBuffer bytes, Throwable e) {
+            List<CompletableFuture<ByteBuffer>> abandoned = emptyList();
+            synchronized (this) {
+                inFlight.remove(fetching);
+                if (e != null) {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (fetched.completeExceptionally(cause)) abandoned = new ArrayList<>(inFlight);
+                } else {
+                    chunks.put(chunk, bytes);
+                    if (--outstanding == 0) fetched.complete(chunks);
+                }
+            }
+            abandoned.forEach(f -> f.cancel(true));
+            fill();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The number of chunks to fetch ahead of the chunk being read when streaming a binary.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface ChunkReadAhead {
+
+    /**
+     * Default number of chunks to read ahead.
+     */
+    public static final String value = "2";
+}
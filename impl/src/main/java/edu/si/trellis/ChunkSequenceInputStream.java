@@ -0,0 +1,146 @@
+package edu.si.trellis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.IntUnaryOperator;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * A single flat {@link InputStream} over a sequence of binary chunks, each opened only when reading reaches it. Every
+ * chunk but the last is expected to hold exactly as many bytes as its given length, which lets {@link #skip(long)}
+ * pass over whole chunks without retrieving them. {@link #skip(long)} is guaranteed to skip as many bytes as asked
+ * unless the end of the sequence is reached first.
+ * <p>
+ * Not thread-safe!
+ * </p>
+ */
+public abstract class ChunkSequenceInputStream extends InputStream {
+
+    private static final int ENDOFSTREAM = -1;
+
+    private final int chunkCount;
+
+    private final IntUnaryOperator chunkLengths;
+
+    /**
+     * The index of the next chunk to open.
+     */
+    private int next = 0;
+
+    private InputStream current;
+
+    /**
+     * @param chunkCount the number of chunks in this sequence
+     * @param chunkLength the length of every chunk but the last
+     */
+    protected ChunkSequenceInputStream(int chunkCount, int chunkLength) {
+        if (chunkLength < 1) throw new IllegalArgumentException("Chunk length < 1!");
+        this.chunkCount = chunkCount;
+        this.chunkLengths = index -> chunkLength;
+    }
+
+    /**
+     * @param chunkLengths the length of each chunk in this sequence, in order
+     */
+    protected ChunkSequenceInputStream(int[] chunkLengths) {
+        this.chunkCount = chunkLengths.length;
+        this.chunkLengths = index -> chunkLengths[index];
+    }
+
+    /**
+     * @param index which chunk to open
+     * @return an {@link InputStream} of the bytes of that chunk
+     * @throws IOException if the chunk cannot be retrieved
+     */
+    protected abstract InputStream chunk(int index) throws IOException;
+
+    /**
+     * @return the number of chunks in this sequence
+     */
+    protected int chunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * @return the chunk being read, opening the next one if need be, or {@code null} if no chunks remain
+     */
+    private InputStream current() throws IOException {
+        if (current == null && next < chunkCount) current = chunk(next++);
+        return current;
+    }
+
+    private void finishCurrent() throws IOException {
+        InputStream finished = current;
+        current = null;
+        if (finished != null) finished.close();
+    }
+
+    @Override
+    public int read() throws IOException {
+        for (InputStream in; (in = current()) != null; finishCurrent()) {
+            int read = in.read();
+            if (read != ENDOFSTREAM) return read;
+        }
+        return ENDOFSTREAM;
+    }
+
+    @Override
+    public int read(byte[] b, int offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || length > b.length - offset) throw new IndexOutOfBoundsException();
+        if (length == 0) return 0;
+        for (InputStream in; (in = current()) != null; finishCurrent()) {
+            int read = in.read(b, offset, length);
+            if (read > 0) return read;
+        }
+        return ENDOFSTREAM;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long toSkip = n;
+        while (toSkip > 0) {
+            if (current == null) {
+                // pass over a whole unopened chunk, but never the last, which may be short
+                if (next < chunkCount - 1 && chunkLengths.applyAsInt(next) <= toSkip) {
+                    toSkip -= chunkLengths.applyAsInt(next++);
+                    continue;
+                }
+            }
+            InputStream in = current();
+            if (in == null) break;
+            long skipped = in.skip(toSkip);
+            if (skipped < toSkip) skipped += IOUtils.skip(in, toSkip - skipped); // read any bytes we couldn't skip
+            toSkip -= skipped;
+            if (toSkip > 0) finishCurrent(); // we ran out of bytes in this chunk
+        }
+        return n > 0 ? n - toSkip : 0;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current == null ? 0 : current.available();
+    }
+
+    /**
+     * Writes all remaining bytes to {@code out} chunk by chunk, directly from the retrieved bytes where possible.
+     * 
+     * @param out where to write
+     * @return the number of bytes written
+     * @throws IOException if reading or writing fails
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        long transferred = 0;
+        for (InputStream in; (in = current()) != null; finishCurrent())
+            transferred += in instanceof ByteBufferInputStream ? ((ByteBufferInputStream) in).transferTo(out)
+                            : IOUtils.copyLarge(in, out);
+        return transferred;
+    }
+
+    @Override
+    public void close() throws IOException {
+        next = chunkCount;
+        finishCurrent();
+    }
+}
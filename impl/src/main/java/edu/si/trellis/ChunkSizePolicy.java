@@ -0,0 +1,143 @@
+package edu.si.trellis;
+
+import static java.lang.Long.highestOneBit;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Locale.ROOT;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.trellisldp.api.BinaryMetadata;
+
+/**
+ * Chooses the length of chunk into which to cut a binary, from what is known about it before it is read and from how
+ * quickly chunks have recently been written.
+ * <ul>
+ * <li>A binary of unknown size is cut into chunks of the default length.</li>
+ * <li>A binary known from a {@value #CONTENT_LENGTH_HINT} hint to fit into one default chunk is recorded in one chunk
+ * just long enough to hold it, but no shorter than the smallest chunk length, so that small binaries hold no more
+ * memory than they need. Since the hint may be wrong, that length is only provisional: a binary is read that far ahead
+ * before it is cut, and one that runs past it is cut into default chunks instead.</li>
+ * <li>A larger binary is cut into about {@value #TARGET_CHUNK_COUNT} chunks, but no fewer than default chunks would
+ * give and no longer than the largest chunk length, so that huge binaries are recorded in fewer rows. Audio and video,
+ * which are usually read in ranges, keep default chunks, as does any binary while recent writes suggest that a longer
+ * chunk would take more than {@link #TARGET_WRITE_NANOS} to write.</li>
+ * </ul>
+ * <p>
+ * Thread-safe.
+ * </p>
+ */
+public class ChunkSizePolicy {
+
+    private static final Logger log = getLogger(ChunkSizePolicy.class);
+
+    /**
+     * The hint giving the length of a binary, if known.
+     */
+    public static final String CONTENT_LENGTH_HINT = "Content-Length";
+
+    private static final long TARGET_CHUNK_COUNT = 1024;
+
+    private static final long TARGET_WRITE_NANOS = MILLISECONDS.toNanos(250);
+
+    /**
+     * The weight given to each new observation of write throughput.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    private final int defaultChunkLength, smallestChunkLength, largestChunkLength;
+
+    /**
+     * Smoothed throughput of recent chunk writes, or {@code 0} before any has been observed. Updates may race, which
+     * costs only an observation.
+     */
+    private volatile double bytesPerNano;
+
+    /**
+     * @param defaultChunkLength the length of chunk to use when nothing suggests another
+     * @param smallestChunkLength the shortest chunk length to choose, lowered to the default if longer
+     * @param largestChunkLength the longest chunk length to choose, raised to the default if shorter
+     */
+    @Inject
+    public ChunkSizePolicy(@DefaultChunkSize int defaultChunkLength, @SmallestChunkSize int smallestChunkLength,
+                    @LargestChunkSize int largestChunkLength) {
+        if (defaultChunkLength < 1) throw new IllegalArgumentException("Default chunk length < 1!");
+        if (smallestChunkLength < 1) throw new IllegalArgumentException("Smallest chunk length < 1!");
+        this.defaultChunkLength = defaultChunkLength;
+        this.smallestChunkLength = min(smallestChunkLength, defaultChunkLength);
+        this.largestChunkLength = max(largestChunkLength, defaultChunkLength);
+        log.info("Choosing chunk lengths from {} to {}, by default {}", this.smallestChunkLength,
+                        this.largestChunkLength, defaultChunkLength);
+    }
+
+    /**
+     * @return the length of chunk to use when nothing suggests another
+     */
+    public int defaultChunkLength() {
+        return defaultChunkLength;
+    }
+
+    /**
+     * @param meta metadata for a binary about to be recorded
+     * @return the length of chunk into which to cut it
+     */
+    public int chunkLength(BinaryMetadata meta) {
+        OptionalLong contentLength = contentLength(meta.getHints());
+        if (!contentLength.isPresent()) return defaultChunkLength;
+        long length = contentLength.getAsLong();
+        if (length <= defaultChunkLength) return (int) max(smallestChunkLength, length);
+        if (meta.getMimeType().map(ChunkSizePolicy::readInRanges).orElse(false)) return defaultChunkLength;
+        long wanted = roundUp((length + TARGET_CHUNK_COUNT - 1) / TARGET_CHUNK_COUNT);
+        return (int) max(defaultChunkLength, min(wanted, min(largestChunkLength, writableInTargetTime())));
+    }
+
+    /**
+     * @param bytes the length of a chunk just written
+     * @param nanos how long it took to write
+     */
+    public void recordWrite(long bytes, long nanos) {
+        if (bytes <= 0 || nanos <= 0) return;
+        double observed = (double) bytes / nanos, previous = bytesPerNano;
+        bytesPerNano = previous == 0 ? observed : previous + SMOOTHING * (observed - previous);
+    }
+
+    private long writableInTargetTime() {
+        double throughput = bytesPerNano;
+        return throughput == 0 ? Long.MAX_VALUE : (long) (throughput * TARGET_WRITE_NANOS);
+    }
+
+    /**
+     * @return the next power of two at or above {@code length}, so that chosen lengths fall on a few values
+     */
+    private static long roundUp(long length) {
+        long power = highestOneBit(length);
+        return power == length ? length : power << 1;
+    }
+
+    private static boolean readInRanges(String mimeType) {
+        String type = mimeType.toLowerCase(ROOT);
+        return type.startsWith("video/") || type.startsWith("audio/");
+    }
+
+    private static OptionalLong contentLength(Map<String, List<String>> hints) {
+        if (hints == null) return OptionalLong.empty();
+        for (Map.Entry<String, List<String>> hint : hints.entrySet())
+            if (CONTENT_LENGTH_HINT.equalsIgnoreCase(hint.getKey()) && hint.getValue() != null
+                            && hint.getValue().size() == 1) {
+                try {
+                    long length = Long.parseLong(hint.getValue().get(0).trim());
+                    if (length >= 0) return OptionalLong.of(length);
+                } catch (NumberFormatException e) {
+                    log.debug("Ignoring unparseable {} hint: {}", CONTENT_LENGTH_HINT, hint.getValue());
+                }
+            }
+        return OptionalLong.empty();
+    }
+}
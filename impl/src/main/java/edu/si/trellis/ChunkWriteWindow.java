@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The maximum number of chunk writes that may be in flight at once for any single binary.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface ChunkWriteWindow {
+
+    /**
+     * Default number of chunk writes in flight.
+     */
+    public static final String value = "4";
+}
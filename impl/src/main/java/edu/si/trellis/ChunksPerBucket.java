@@ -0,0 +1,23 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * How many chunks of a binary to record in each partition of the bucketed layout, or {@code 0} to record all the
+ * chunks of a binary in one partition.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface ChunksPerBucket {
+
+    /**
+     * Default number of chunks per bucket.
+     */
+    public static final String value = "0";
+}
@@ -0,0 +1,141 @@
+package edu.si.trellis;
+
+import static java.lang.Math.min;
+import static java.util.Arrays.binarySearch;
+import static java.util.Arrays.copyOfRange;
+import static java.util.Locale.ROOT;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import edu.si.trellis.query.binary.ReadStoredChunks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.input.ClosedInputStream;
+import org.apache.commons.rdf.api.IRI;
+import org.reactivestreams.Publisher;
+import org.trellisldp.api.Binary;
+
+/**
+ * A {@link Binary} cut into content-defined chunks, which are stored by content hash apart from it and pulled from
+ * Cassandra on demand. Because its manifest lists the length of every chunk, a range is read beginning with the chunk
+ * in which it begins, however the chunk boundaries fall.
+ */
+public class ContentAddressedBinary implements ReactiveBinary {
+
+    private final IRI id;
+
+    private final List<ByteBuffer> chunkHashes;
+
+    private final int[] chunkLengths;
+
+    /**
+     * The offset of the first byte of each chunk.
+     */
+    private final long[] chunkOffsets;
+
+    private final long size;
+
+    private final Map<String, byte[]> digests;
+
+    private final ReadStoredChunks readChunks;
+
+    /**
+     * @param id identifier for this {@link Binary}
+     * @param readChunks a {@link ReadStoredChunks} query to use
+     * @param chunkHashes the content hashes of the chunks of this binary, in order
+     * @param chunkLengths the lengths of the chunks of this binary, in order
+     * @param digests digests of this binary from its manifest, keyed by algorithm name
+     */
+    public ContentAddressedBinary(IRI id, ReadStoredChunks readChunks, List<ByteBuffer> chunkHashes,
+                    List<Integer> chunkLengths, Map<String, byte[]> digests) {
+        if (chunkHashes.size() != chunkLengths.size())
+            throw new IllegalArgumentException("Chunk hashes and lengths do not match!");
+        this.id = id;
+        this.readChunks = readChunks;
+        this.chunkHashes = chunkHashes;
+        this.chunkLengths = chunkLengths.stream().mapToInt(Integer::intValue).toArray();
+        this.chunkOffsets = new long[this.chunkLengths.length];
+        long offset = 0;
+        for (int i = 0; i < this.chunkLengths.length; i++) {
+            chunkOffsets[i] = offset;
+            offset += this.chunkLengths[i];
+        }
+        this.size = offset;
+        this.digests = digests;
+    }
+
+    /**
+     * @return the length in bytes of this binary
+     */
+    public Optional<Long> getSize() {
+        return Optional.of(size);
+    }
+
+    /**
+     * @param algorithm the name of a {@link java.security.MessageDigest} algorithm
+     * @return the digest of this binary computed with that algorithm when it was recorded, or empty if it was not
+     */
+    public Optional<byte[]> getDigest(String algorithm) {
+        byte[] digest = digests.get(algorithm.toUpperCase(ROOT));
+        return digest == null ? Optional.empty() : Optional.of(digest.clone());
+    }
+
+    @Override
+    public CompletionStage<InputStream> getContent() {
+        return completedFuture(readChunks.execute(chunkHashes, chunkLengths));
+    }
+
+    @Override
+    public CompletionStage<InputStream> getContent(int from, int requestedTo) {
+        if (from >= size) return completedFuture(ClosedInputStream.CLOSED_INPUT_STREAM);
+        long to = min(requestedTo, size - 1);
+        int firstChunk = chunkAt(from);
+        int lastChunk = chunkAt(to);
+        InputStream retrieve = readChunks.execute(chunkHashes.subList(firstChunk, lastChunk + 1),
+                        copyOfRange(chunkLengths, firstChunk, lastChunk + 1));
+        // skip to fulfill lower end of range
+        try {
+            retrieve.skip(from - chunkOffsets[firstChunk]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } // we needn't check the result; see ReadStoredChunks#execute
+        return completedFuture(new BoundedInputStream(retrieve, to - from + 1)); // apply limit for upper end of range
+    }
+
+    @Override
+    public Publisher<ByteBuffer> getContentPublisher() {
+        return readChunks.publish(chunkHashes, 0, size);
+    }
+
+    @Override
+    public Publisher<ByteBuffer> getContentPublisher(int from, int requestedTo) {
+        if (from >= size) return ChunkPublisher.empty();
+        long to = min(requestedTo, size - 1);
+        int firstChunk = chunkAt(from);
+        int lastChunk = chunkAt(to);
+        return readChunks.publish(chunkHashes.subList(firstChunk, lastChunk + 1), from - chunkOffsets[firstChunk],
+                        to - from + 1);
+    }
+
+    @Override
+    public CompletionStage<List<List<ByteBuffer>>> getContentRanges(List<ByteRange> ranges) {
+        return readChunks.readRanges(chunkHashes, chunkOffsets, size, ranges);
+    }
+
+    /**
+     * @param position an offset into this binary
+     * @return the index of the chunk that holds the byte at that offset
+     */
+    private int chunkAt(long position) {
+        int index = binarySearch(chunkOffsets, position);
+        return index >= 0 ? index : -index - 2;
+    }
+}
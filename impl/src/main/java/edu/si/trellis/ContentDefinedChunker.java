@@ -0,0 +1,90 @@
+package edu.si.trellis;
+
+import static java.util.Arrays.copyOf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+/**
+ * Cuts a stream into chunks at boundaries chosen by its content, using a gear rolling hash, so that an edit to a
+ * stream shifts only the chunk boundaries near it and leaves the chunks before and after it unchanged. Chunks are at
+ * least a quarter of {@code maxChunkLength} and at most {@code maxChunkLength} bytes long, except that the last may be
+ * shorter.
+ * <p>
+ * Not thread-safe!
+ * </p>
+ */
+public class ContentDefinedChunker {
+
+    private static final int ENDOFSTREAM = -1;
+
+    /**
+     * A fixed table of random values, one per byte value. It must never change, or the chunks cut from the same
+     * content would change with it.
+     */
+    private static final long[] GEAR = new Random(0x5EEDL).longs(256).toArray();
+
+    private final InputStream in;
+
+    private final int minChunkLength;
+
+    private final long boundaryMask;
+
+    private final byte[] buffer;
+
+    /**
+     * How many bytes at the front of {@link #buffer} have been read but not yet returned.
+     */
+    private int buffered = 0;
+
+    private boolean exhausted = false;
+
+    /**
+     * @param in the stream to cut into chunks
+     * @param maxChunkLength the maximum length of any chunk
+     */
+    public ContentDefinedChunker(InputStream in, int maxChunkLength) {
+        if (maxChunkLength < 4) throw new IllegalArgumentException("Maximum chunk length < 4!");
+        this.in = in;
+        this.minChunkLength = maxChunkLength / 4;
+        // boundaries fall on average every half of the maximum past the minimum
+        this.boundaryMask = Integer.highestOneBit(maxChunkLength / 2) - 1L;
+        this.buffer = new byte[maxChunkLength];
+    }
+
+    /**
+     * @return the next chunk, or {@code null} if the stream is exhausted
+     * @throws IOException if the stream cannot be read
+     */
+    public byte[] next() throws IOException {
+        fill();
+        if (buffered == 0) return null;
+        int cut = boundary();
+        byte[] chunk = copyOf(buffer, cut);
+        buffered -= cut;
+        System.arraycopy(buffer, cut, buffer, 0, buffered);
+        return chunk;
+    }
+
+    private void fill() throws IOException {
+        while (!exhausted && buffered < buffer.length) {
+            int read = in.read(buffer, buffered, buffer.length - buffered);
+            if (read == ENDOFSTREAM) exhausted = true;
+            else buffered += read;
+        }
+    }
+
+    /**
+     * @return the length of the chunk at the front of {@link #buffer}
+     */
+    private int boundary() {
+        if (buffered <= minChunkLength) return buffered;
+        long hash = 0;
+        for (int i = 0; i < buffered; i++) {
+            hash = (hash << 1) + GEAR[buffer[i] & 0xFF];
+            if (i >= minChunkLength && (hash & boundaryMask) == 0) return i + 1;
+        }
+        return buffered;
+    }
+}
@@ -0,0 +1,23 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * Whether to cut new binaries into content-defined chunks, stored once each by content hash and shared among binaries,
+ * instead of fixed-length chunks stored per binary.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface ContentDefinedChunking {
+
+    /**
+     * Default setting.
+     */
+    public static final String value = "false";
+}
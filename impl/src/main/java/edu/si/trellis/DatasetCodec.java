@@ -1,78 +1,63 @@
 package edu.si.trellis;
 
+import static edu.si.trellis.DatasetFormat.NQUADS;
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static org.apache.jena.riot.Lang.NQUADS;
-import static org.apache.jena.riot.RDFDataMgr.read;
-import static org.apache.jena.riot.RDFDataMgr.writeQuads;
 
 import com.datastax.driver.core.DataType;
 import com.datastax.driver.core.ProtocolVersion;
 import com.datastax.driver.core.TypeCodec;
-import com.datastax.driver.core.exceptions.InvalidTypeException;
-import com.datastax.driver.core.utils.Bytes;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 
 import org.apache.commons.rdf.api.Dataset;
 import org.apache.commons.rdf.jena.JenaRDF;
-import org.apache.jena.query.DatasetFactory;
-import org.apache.jena.riot.RiotException;
 
+/**
+ * Reads quads recorded in any {@link DatasetFormat}, by the marker with which they begin, and writes them in one
+ * chosen format.
+ */
 class DatasetCodec extends TypeCodec<Dataset> {
-    
-    static final DatasetCodec datasetCodec = new DatasetCodec();
+
+    static final DatasetCodec datasetCodec = new DatasetCodec(NQUADS);
 
     private static final JenaRDF rdf = new JenaRDF();
-    
-    private DatasetCodec() {
+
+    private final DatasetFormat format;
+
+    private DatasetCodec(DatasetFormat format) {
         super(DataType.text(), Dataset.class);
+        this.format = format;
+    }
+
+    /**
+     * @param format the format in which to write quads
+     * @return a codec that writes quads in that format
+     */
+    static DatasetCodec writing(DatasetFormat format) {
+        return format == NQUADS ? datasetCodec : new DatasetCodec(format);
     }
 
     @Override
     public ByteBuffer serialize(Dataset dataset, ProtocolVersion protocolVersion) {
         if (dataset == null || dataset.size() == 0) return null;
-        return ByteBuffer.wrap(toNQuads(dataset));
-    }
-
-    private byte[] toNQuads(Dataset dataset) {
-        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream()) {
-            writeQuads(bytes, dataset.stream().map(rdf::asJenaQuad).iterator());
-            return bytes.toByteArray();
-        } catch (RiotException e) {
-            throw new InvalidTypeException("Dataset is impossible to serialize!", e);
-        } catch (IOException e) {
-            throw new UncheckedIOException("Dataset could not be serialized!", e);
-        } 
+        return ByteBuffer.wrap(format.write(dataset));
     }
 
     @Override
     public Dataset deserialize(ByteBuffer bytes, ProtocolVersion protocolVersion) {
-        return bytes == null ? rdf.createDataset() : fromNQuads(Bytes.getArray(bytes));
-    }
-
-    private Dataset fromNQuads(byte[] bytes) {
-        org.apache.jena.query.Dataset dataset = DatasetFactory.create();
-        try {
-            read(dataset, new ByteArrayInputStream(bytes), null, NQUADS);
-            return rdf.asDataset(dataset);
-        } catch (RiotException e) {
-            throw new InvalidTypeException("Dataset is impossible to deserialize!", e);
-        }
+        return bytes == null ? rdf.createDataset() : DatasetFormat.of(bytes).read(bytes);
     }
 
     @Override
     public Dataset parse(String quads) {
         if (quads == null || quads.isEmpty()) return rdf.createDataset();
-        return fromNQuads(quads.getBytes(UTF_8));
+        ByteBuffer bytes = ByteBuffer.wrap(quads.getBytes(UTF_8));
+        return DatasetFormat.of(bytes).read(bytes);
     }
 
     @Override
     public String format(Dataset dataset) {
         if (dataset == null || dataset.size() == 0) return null;
-        return new String(toNQuads(dataset), UTF_8);
+        return new String(format.write(dataset), UTF_8);
     }
 }
@@ -0,0 +1,149 @@
+package edu.si.trellis;
+
+import static java.util.Collections.emptyIterator;
+import static org.apache.jena.riot.RDFDataMgr.writeQuads;
+
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+import com.datastax.driver.core.utils.Bytes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.jena.JenaRDF;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RiotException;
+
+/**
+ * Formats in which to record the quads of resources. Rows in any format can be read, whichever format is currently
+ * configured for writing, so that a resource recorded in one format moves to another the next time it is written.
+ */
+public enum DatasetFormat {
+
+    /**
+     * Quads are recorded as N-Quads. Every row recorded before formats could be chosen is in this format.
+     */
+    NQUADS {
+
+        @Override
+        byte[] write(Dataset dataset) {
+            try (ByteArrayOutputStream bytes = new ByteArrayOutputStream()) {
+                writeQuads(bytes, dataset.stream().map(rdf::asJenaQuad).iterator());
+                return bytes.toByteArray();
+            } catch (RiotException e) {
+                throw new InvalidTypeException("Dataset is impossible to serialize!", e);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Dataset could not be serialized!", e);
+            }
+        }
+
+        @Override
+        Dataset read(ByteBuffer bytes) {
+            org.apache.jena.query.Dataset dataset = DatasetFactory.create();
+            try {
+                RDFDataMgr.read(dataset, new ByteArrayInputStream(Bytes.getArray(bytes)), null, Lang.NQUADS);
+                return rdf.asDataset(dataset);
+            } catch (RiotException e) {
+                throw new InvalidTypeException("Dataset is impossible to deserialize!", e);
+            }
+        }
+
+        @Override
+        Iterator<Quad> quads(ByteBuffer bytes) {
+            Iterator<org.apache.jena.sparql.core.Quad> quads = RDFDataMgr
+                            .createIteratorQuads(new ByteBufferInputStream(bytes.duplicate()), Lang.NQUADS, null);
+            return new Iterator<Quad>() {
+
+                @Override
+                public boolean hasNext() {
+                    try {
+                        return quads.hasNext();
+                    } catch (RiotException e) {
+                        throw new InvalidTypeException("Dataset is impossible to deserialize!", e);
+                    }
+                }
+
+                @Override
+                public Quad next() {
+                    try {
+                        return rdf.asQuad(quads.next());
+                    } catch (RiotException e) {
+                        throw new InvalidTypeException("Dataset is impossible to deserialize!", e);
+                    }
+                }
+            };
+        }
+    },
+
+    /**
+     * Quads are recorded as a {@link TermTable}, in which each distinct term is written only once, so that a row is
+     * smaller and much cheaper to read back than N-Quads. Instances that predate this format cannot read it, so it
+     * should be chosen only once all instances sharing a keyspace can.
+     */
+    TERM_TABLE {
+
+        @Override
+        byte[] write(Dataset dataset) {
+            return TermTable.write(dataset.stream());
+        }
+
+        @Override
+        Dataset read(ByteBuffer bytes) {
+            Dataset dataset = rdf.createDataset();
+            quads(bytes).forEachRemaining(dataset::add);
+            return dataset;
+        }
+
+        @Override
+        Iterator<Quad> quads(ByteBuffer bytes) {
+            return TermTable.read(bytes, rdf);
+        }
+    };
+
+    private static final JenaRDF rdf = new JenaRDF();
+
+    /**
+     * @param dataset a non-empty dataset
+     * @return the quads of that dataset in this format
+     */
+    abstract byte[] write(Dataset dataset);
+
+    /**
+     * @param bytes quads in this format
+     * @return a dataset of those quads
+     */
+    abstract Dataset read(ByteBuffer bytes);
+
+    /**
+     * @param bytes quads in this format, which are neither copied nor moved
+     * @return those quads, each parsed only as it is reached
+     */
+    abstract Iterator<Quad> quads(ByteBuffer bytes);
+
+    /**
+     * Decodes quads as they are consumed, without building a dataset of them, so that a large resource can be
+     * streamed out with little held in memory. Unlike a dataset, the quads are not checked for duplicates, of which
+     * a row written from a dataset has none.
+     *
+     * @param bytes quads recorded in any format, or {@code null} for none
+     * @return those quads, each parsed only as it is reached
+     */
+    public static Iterator<Quad> decode(ByteBuffer bytes) {
+        return bytes == null ? emptyIterator() : of(bytes).quads(bytes);
+    }
+
+    /**
+     * @param bytes quads recorded in any format
+     * @return the format in which they were recorded, by its marker
+     */
+    static DatasetFormat of(ByteBuffer bytes) {
+        return bytes.hasRemaining() && bytes.get(bytes.position()) == TermTable.MARKER ? TERM_TABLE : NQUADS;
+    }
+}
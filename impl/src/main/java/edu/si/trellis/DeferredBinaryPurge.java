@@ -0,0 +1,23 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * Whether to defer purges of binaries to a background worker, which carries them out at a controlled rate, rather
+ * than carrying them out as they are requested.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface DeferredBinaryPurge {
+
+    /**
+     * By default, purges are carried out as they are requested.
+     */
+    public static final String value = "false";
+}
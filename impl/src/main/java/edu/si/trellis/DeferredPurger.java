@@ -0,0 +1,193 @@
+package edu.si.trellis;
+
+import static edu.si.trellis.query.binary.PurgeQueue.RETENTION_DAYS;
+import static edu.si.trellis.query.binary.PurgeQueue.day;
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.utils.UUIDs;
+
+import edu.si.trellis.query.binary.PurgeQueue;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+
+/**
+ * Carries out the purges of binaries that a {@link CassandraBinaryService} has deferred to its {@link PurgeQueue}, in
+ * order of request and at a controlled rate, so that the tombstones a purge leaves are not all laid down at once in
+ * the request path. Once a second, the next few requests are taken from the queue and carried out, and how far the
+ * queue has been drained is recorded, so that draining picks up where it left off after a restart.
+ * <p>
+ * Requests are taken from the queue only once they are a few seconds old, so that one whose write is still arriving
+ * is not passed over. A purge that fails is queued again, to be retried once the requests queued meanwhile have been
+ * carried out, until it has been attempted {@value #MAX_ATTEMPTS} times, after which it is logged as abandoned. If
+ * draining itself fails, or more than one instance drains the same queue, a purge may be carried out more than once.
+ * That is safe, since {@link CassandraBinaryService#purgeContentNow(IRI)} can be repeated.
+ * </p>
+ */
+@Singleton
+public class DeferredPurger {
+
+    private static final Logger log = getLogger(DeferredPurger.class);
+
+    private static final long TICK_MILLIS = SECONDS.toMillis(1);
+
+    /**
+     * How old a request must be before it is taken from the queue.
+     */
+    private static final long SETTLE_MILLIS = SECONDS.toMillis(10);
+
+    /**
+     * How many times to attempt a purge before abandoning it.
+     */
+    static final int MAX_ATTEMPTS = 5;
+
+    private final PurgeQueue queue;
+
+    private final CassandraBinaryService binaryService;
+
+    private final boolean deferred;
+
+    private final int rate;
+
+    private final AtomicLong purged = new AtomicLong(), failures = new AtomicLong();
+
+    private Timer timer;
+
+    private boolean positioned = false;
+
+    /**
+     * The day whose requests are being carried out.
+     */
+    private volatile int day;
+
+    /**
+     * The last request carried out, or {@code null} if none has been from the current day.
+     */
+    private volatile UUID after;
+
+    /**
+     * The time, in milliseconds since the epoch, up to which requests have been carried out.
+     */
+    private volatile long drainedTo = currentTimeMillis();
+
+    /**
+     * @param queue the {@link PurgeQueue} to drain
+     * @param binaryService the {@link CassandraBinaryService} with which to carry out purges
+     * @param deferred whether purges are deferred, without which there is nothing to drain
+     * @param rate how many purges to carry out each second at most
+     */
+    @Inject
+    public DeferredPurger(PurgeQueue queue, CassandraBinaryService binaryService,
+                    @DeferredBinaryPurge boolean deferred, @BinaryPurgeRate int rate) {
+        if (rate < 1) throw new IllegalArgumentException("Binary purge rate < 1!");
+        this.queue = queue;
+        this.binaryService = binaryService;
+        this.deferred = deferred;
+        this.rate = rate;
+    }
+
+    /**
+     * Starts draining, if purges are deferred.
+     */
+    @PostConstruct
+    void start() {
+        if (!deferred) return;
+        log.info("Carrying out deferred binary purges at {} per second", rate);
+        timer = new Timer("Deferred Binary Purger", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, TICK_MILLIS, TICK_MILLIS);
+    }
+
+    /**
+     * Stops draining.
+     */
+    @PreDestroy
+    void stop() {
+        if (timer != null) timer.cancel();
+    }
+
+    /**
+     * Carries out the next requests in the queue, as many as the rate allows.
+     */
+    void drain() {
+        long settled = currentTimeMillis() - SETTLE_MILLIS;
+        try {
+            if (!positioned) {
+                // requests older than this have expired
+                moveTo(day(settled) - RETENTION_DAYS);
+                positioned = true;
+            }
+            List<Row> page = queue.next(day, after, settled, rate).join();
+            for (Row row : page) {
+                IRI id = row.get("identifier", IRI.class);
+                try {
+                    binaryService.purgeContentNow(id).join();
+                    purged.incrementAndGet();
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                    int attempts = row.getInt("attempts") + 1;
+                    if (attempts < MAX_ATTEMPTS) {
+                        log.warn("Failed to carry out deferred purge of binary {}, will try again: {}", id,
+                                        e.getMessage());
+                        queue.enqueue(id, attempts).join();
+                    } else {
+                        log.error("Abandoning deferred purge of binary {} after {} attempts: {}", id, attempts,
+                                        e.getMessage());
+                    }
+                }
+                after = row.getUUID("requested");
+                drainedTo = UUIDs.unixTimestamp(after);
+            }
+            if (!page.isEmpty()) queue.markDrained(day, after).join();
+            if (page.size() < rate) {
+                if (day < day(settled)) moveTo(day + 1);
+                else drainedTo = settled;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to drain deferred binary purges, will try again: {}", e.getMessage());
+        }
+    }
+
+    private void moveTo(int nextDay) {
+        after = queue.drained(nextDay).join();
+        day = nextDay;
+    }
+
+    /**
+     * @return how many deferred purges have been carried out
+     */
+    public long purged() {
+        return purged.get();
+    }
+
+    /**
+     * @return how many attempts at deferred purges have failed
+     */
+    public long failures() {
+        return failures.get();
+    }
+
+    /**
+     * @return how far, in milliseconds, draining lags behind the present
+     */
+    public long lag() {
+        return currentTimeMillis() - drainedTo;
+    }
+}
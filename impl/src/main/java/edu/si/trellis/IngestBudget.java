@@ -0,0 +1,211 @@
+package edu.si.trellis;
+
+import static java.lang.Math.min;
+import static java.lang.System.nanoTime;
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A budget of bytes shared by all uploads, from which each chunk's bytes are taken while it is in memory and to which
+ * they are given back when its write has completed. An upload that finds the budget spent waits, and so stops reading
+ * from its client, until other writes give bytes back. Uploads that must not block a thread are granted bytes
+ * asynchronously instead. Requests of both kinds wait in one line and are granted in the order in which they were
+ * made, so that neither kind can overtake the other.
+ * <p>
+ * A request for more than the whole budget takes the whole budget, so that no single chunk can wait forever.
+ * </p>
+ */
+public class IngestBudget {
+
+    private final long capacity;
+
+    private long available;
+
+    private final Lock lock = new ReentrantLock();
+
+    private final Condition released = lock.newCondition();
+
+    private final AtomicLong waits = new AtomicLong(), waitedNanos = new AtomicLong();
+
+    /**
+     * Requests for bytes not yet granted, in the order in which they were made.
+     */
+    private final Queue<Grant> grants = new ArrayDeque<>();
+
+    /**
+     * @param capacity the number of bytes in this budget, or {@code 0} for no limit
+     */
+    public IngestBudget(long capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("Ingest budget < 0!");
+        this.capacity = capacity;
+        this.available = capacity;
+    }
+
+    /**
+     * Takes bytes from this budget, waiting until enough are available and all earlier requests have been granted.
+     * 
+     * @param bytes how many bytes to take
+     * @return how many bytes were actually taken, which is what should be given back to {@link #release(long)}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public long acquire(long bytes) throws InterruptedException {
+        if (capacity == 0) return 0;
+        List<Grant> granted = emptyList();
+        lock.lockInterruptibly();
+        try {
+            Grant grant = request(min(bytes, capacity));
+            try {
+                while (!grant.done) released.await();
+            } catch (InterruptedException e) {
+                // give up this place in line, or the bytes if they were granted meanwhile
+                if (grant.done) available += grant.bytes;
+                else grants.remove(grant);
+                granted = grantWaiting();
+                throw e;
+            }
+            return grant.bytes;
+        } finally {
+            lock.unlock();
+            complete(granted);
+        }
+    }
+
+    /**
+     * Takes bytes from this budget without blocking.
+     * 
+     * @param bytes how many bytes to take
+     * @return how many bytes were actually taken, which is what should be given back to {@link #release(long)}, once
+     *         enough are available and all earlier requests have been granted
+     */
+    public CompletableFuture<Long> acquireAsync(long bytes) {
+        if (capacity == 0) return completedFuture(0L);
+        lock.lock();
+        try {
+            return request(min(bytes, capacity)).granted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param bytes bytes to give back, as returned from {@link #acquire(long)} or {@link #acquireAsync(long)}
+     */
+    public void release(long bytes) {
+        if (bytes == 0) return;
+        List<Grant> granted;
+        lock.lock();
+        try {
+            available += bytes;
+            granted = grantWaiting();
+        } finally {
+            lock.unlock();
+        }
+        complete(granted);
+    }
+
+    /**
+     * Grants a request at once if none is waiting and enough bytes are available, or else puts it in line. Must be
+     * called holding {@link #lock}.
+     */
+    private Grant request(long bytes) {
+        Grant grant = new Grant(bytes);
+        if (grants.isEmpty() && available >= bytes) {
+            available -= bytes;
+            grant.done = true;
+            grant.granted.complete(bytes);
+        } else {
+            waits.incrementAndGet();
+            grants.add(grant);
+        }
+        return grant;
+    }
+
+    /**
+     * Grants waiting requests in order for as long as enough bytes are available. Must be called holding
+     * {@link #lock}.
+     *
+     * @return the requests granted, which must be completed once the lock is released
+     */
+    private List<Grant> grantWaiting() {
+        List<Grant> granted = new ArrayList<>();
+        while (!grants.isEmpty() && available >= grants.peek().bytes) {
+            Grant grant = grants.remove();
+            available -= grant.bytes;
+            grant.done = true;
+            granted.add(grant);
+        }
+        if (!granted.isEmpty()) released.signalAll();
+        return granted;
+    }
+
+    /**
+     * Completes requests outside the lock, since completing runs any upload waiting asynchronously.
+     */
+    private void complete(List<Grant> granted) {
+        for (Grant grant : granted) {
+            waitedNanos.addAndGet(nanoTime() - grant.requested);
+            grant.granted.complete(grant.bytes);
+        }
+    }
+
+    /**
+     * @return the number of bytes in this budget, or {@code 0} for no limit
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of bytes currently taken from this budget
+     */
+    public long inUse() {
+        lock.lock();
+        try {
+            return capacity - available;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return how many times an upload has had to wait for bytes
+     */
+    public long waits() {
+        return waits.get();
+    }
+
+    /**
+     * @return the total time in nanoseconds uploads have spent waiting for bytes
+     */
+    public long waitedNanos() {
+        return waitedNanos.get();
+    }
+
+    private static final class Grant {
+
+        private final long bytes;
+
+        private final long requested = nanoTime();
+
+        private final CompletableFuture<Long> granted = new CompletableFuture<>();
+
+        /**
+         * Whether the bytes have been granted, which is read and written only holding {@link IngestBudget#lock}.
+         */
+        private boolean done;
+
+        private Grant(long bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package edu.si.trellis;
+
+import static java.lang.Math.min;
+import static java.util.Locale.ROOT;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+
+import org.apache.commons.io.input.ClosedInputStream;
+import org.apache.commons.rdf.api.IRI;
+import org.reactivestreams.Publisher;
+import org.trellisldp.api.Binary;
+
+/**
+ * A {@link Binary} small enough to have been recorded whole in its manifest, so that it is read along with the
+ * manifest and never pulled from Cassandra on its own.
+ */
+public class InlineBinary implements ReactiveBinary {
+
+    private final IRI id;
+
+    private final ByteBuffer content;
+
+    private final Map<String, byte[]> digests;
+
+    /**
+     * @param id identifier for this {@link Binary}
+     * @param content the whole content of this binary
+     * @param digests digests of this binary from its manifest, keyed by algorithm name
+     */
+    public InlineBinary(IRI id, ByteBuffer content, Map<String, byte[]> digests) {
+        this.id = id;
+        this.content = content;
+        this.digests = digests;
+    }
+
+    /**
+     * @return the length in bytes of this binary
+     */
+    public Optional<Long> getSize() {
+        return Optional.of((long) content.remaining());
+    }
+
+    /**
+     * @param algorithm the name of a {@link java.security.MessageDigest} algorithm
+     * @return the digest of this binary computed with that algorithm when it was recorded, or empty if it was not
+     */
+    public Optional<byte[]> getDigest(String algorithm) {
+        byte[] digest = digests.get(algorithm.toUpperCase(ROOT));
+        return digest == null ? Optional.empty() : Optional.of(digest.clone());
+    }
+
+    @Override
+    public CompletionStage<InputStream> getContent() {
+        return completedFuture(stream(0, content.remaining()));
+    }
+
+    @Override
+    public CompletionStage<InputStream> getContent(int from, int to) {
+        if (from >= content.remaining()) return completedFuture(ClosedInputStream.CLOSED_INPUT_STREAM);
+        return completedFuture(stream(from, min(to, content.remaining() - 1) - from + 1));
+    }
+
+    @Override
+    public Publisher<ByteBuffer> getContentPublisher() {
+        return getContentPublisher(0, content.remaining() - 1);
+    }
+
+    @Override
+    public Publisher<ByteBuffer> getContentPublisher(int from, int to) {
+        if (from >= content.remaining()) return ChunkPublisher.empty();
+        // an open range ends at Integer.MAX_VALUE, so count in long
+        long length = min(to, content.remaining() - 1L) - from + 1;
+        return new ChunkPublisher(1, i -> completedFuture(content.asReadOnlyBuffer()), 0, from, length);
+    }
+
+    @Override
+    public CompletionStage<List<List<ByteBuffer>>> getContentRanges(List<ByteRange> ranges) {
+        return new ChunkRanges(i -> completedFuture(content), position -> 0, i -> 0, content.remaining(), 1)
+                        .read(ranges);
+    }
+
+    private InputStream stream(int from, int length) {
+        if (content.hasArray())
+            return new ByteArrayInputStream(content.array(), content.arrayOffset() + content.position() + from, length);
+        byte[] bytes = new byte[length];
+        ByteBuffer source = content.duplicate();
+        ((Buffer) source).position(source.position() + from); // see ByteBufferInputStream on the cast
+        source.get(bytes);
+        return new ByteArrayInputStream(bytes);
+    }
+}
@@ -0,0 +1,23 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The length in bytes up to which a binary is recorded whole in its manifest rather than in chunks, or {@code 0} never
+ * to inline binaries.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface InlineBinaryThreshold {
+
+    /**
+     * Default threshold, 32 KiB.
+     */
+    public static final String value = "32768";
+}
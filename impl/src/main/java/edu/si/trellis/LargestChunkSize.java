@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The largest size of chunk that will be chosen for a binary, however large, unless a client asks for one.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface LargestChunkSize {
+
+    /**
+     * Default largest chunk size.
+     */
+    public static final String value = "8388608";
+}
@@ -0,0 +1,221 @@
+package edu.si.trellis;
+
+import static edu.si.trellis.CassandraBinaryService.bucketCount;
+import static java.util.Collections.emptyMap;
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.driver.core.Row;
+
+import edu.si.trellis.query.binary.Delete;
+import edu.si.trellis.query.binary.Insert;
+import edu.si.trellis.query.binary.RecordManifest;
+import edu.si.trellis.query.binary.UploadParts;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+import org.trellisldp.api.BinaryMetadata;
+import org.trellisldp.api.RuntimeTrellisException;
+
+/**
+ * Carries out multipart uploads, so that a large binary can be sent in parts, in parallel and in any order, and a
+ * failed part sent again without starting over. Each part is cut into chunks at the chunk indexes its number fixes,
+ * so parts need no reassembly, and its chunks are written as a {@link CassandraBinaryService} writes those of any
+ * binary. Once all parts have landed, {@link #completeUpload(IRI)} records the manifest. Binaries uploaded in parts are
+ * recorded without digests, since their content is never read in order.
+ * <p>
+ * A part written again over chunks it wrote before may be cut into fewer chunks, as may a last part, and a part may be
+ * begun and never land. Chunks so left past the end of a binary are never read, since reads stop at the chunk count in
+ * its manifest. Those in the binary's own partition or in its buckets are purged along with it, and any in buckets past
+ * its last are deleted as the upload completes.
+ * </p>
+ */
+@Singleton
+public class MultipartUploads {
+
+    private static final Logger log = getLogger(MultipartUploads.class);
+
+    private final CassandraBinaryService binaryService;
+
+    private final UploadParts uploadParts;
+
+    private final Insert insert;
+
+    private final RecordManifest recordManifest;
+
+    private final Delete delete;
+
+    /**
+     * @param binaryService the {@link CassandraBinaryService} with which to write the chunks of parts
+     * @param uploadParts a {@link UploadParts} query to use
+     * @param insert the {@link Insert} query with which {@code binaryService} writes chunks
+     * @param recordManifest a {@link RecordManifest} query to use
+     * @param delete a {@link Delete} query to use
+     */
+    @Inject
+    public MultipartUploads(CassandraBinaryService binaryService, UploadParts uploadParts, Insert insert,
+                    RecordManifest recordManifest, Delete delete) {
+        this.binaryService = binaryService;
+        this.uploadParts = uploadParts;
+        this.insert = insert;
+        this.recordManifest = recordManifest;
+        this.delete = delete;
+    }
+
+    /**
+     * Starts a multipart upload, whose parts may then be written.
+     *
+     * @param meta metadata for the binary, from which its chunk length is chosen as for
+     *            {@link CassandraBinaryService#setContent(BinaryMetadata, InputStream)}
+     * @param partLength the length in bytes wanted for each part but the last
+     * @return the length in bytes each part but the last must have, which is {@code partLength} rounded up to whole
+     *         chunks
+     */
+    public CompletableFuture<Long> startUpload(BinaryMetadata meta, long partLength) {
+        if (partLength < 1) throw new IllegalArgumentException("Part length < 1!");
+        IRI id = meta.getIdentifier();
+        // parts are not read ahead, so a hinted length cannot be checked
+        final int chunkLength = binaryService.uncheckedChunkLength(meta);
+        long chunksPerPart = (partLength + chunkLength - 1) / chunkLength;
+        if (chunksPerPart > Integer.MAX_VALUE) throw new IllegalArgumentException("Part length too long!");
+        log.debug("Starting upload in parts of {} chunks under: {}", chunksPerPart, id);
+        return uploadParts.start(id, chunkLength, (int) chunksPerPart, insert.chunksPerBucket())
+                        .thenApply(dummy -> chunksPerPart * chunkLength);
+    }
+
+    /**
+     * Writes one part of a multipart upload, replacing it if it was written before. Parts may be written at the same
+     * time. A part that fails is not recorded as landed and may be written again.
+     *
+     * @param id the {@link IRI} of a binary being uploaded
+     * @param part the number of the part, counting from zero
+     * @param content the content of the part, as long as the part length returned from
+     *            {@link #startUpload(BinaryMetadata, long)} unless it is the last part, which may be shorter
+     * @return whether and when the part has landed
+     */
+    public CompletableFuture<Void> uploadPart(IRI id, int part, InputStream content) {
+        if (part < 0) throw new IllegalArgumentException("Part number < 0!");
+        return uploadParts.get(id).thenCompose(rows -> {
+            Row upload = upload(id, rows);
+            int chunkLength = upload.getInt("chunkLength"), chunksPerPart = upload.getInt("chunksPerPart");
+            if (upload.getInt("chunksPerBucket") != insert.chunksPerBucket())
+                throw new RuntimeTrellisException("Chunks per bucket changed during upload under: " + id);
+            if ((long) part * chunksPerPart + chunksPerPart > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Part number too high!");
+            log.debug("Recording part {} of upload under: {}", part, id);
+            return uploadParts.begin(id, part)
+                            .thenComposeAsync(dummy -> binaryService.writeChunks(id, content, chunkLength,
+                                            part * chunksPerPart, chunksPerPart), insert)
+                            .thenCompose(written -> {
+                                if (written.failure != null) throw new CompletionException(written.failure);
+                                if (written.chunkCount == chunksPerPart && read(content) != -1)
+                                    throw new IllegalArgumentException("Part " + part + " longer than part length!");
+                                return uploadParts.record(id, part, written.size, written.chunkCount);
+                            });
+        });
+    }
+
+    /**
+     * @param id the {@link IRI} of a binary being uploaded
+     * @return the lengths in bytes of the parts that have landed, by part number
+     */
+    public CompletableFuture<SortedMap<Integer, Long>> uploadedParts(IRI id) {
+        return uploadParts.get(id).thenApply(rows -> {
+            upload(id, rows);
+            SortedMap<Integer, Long> parts = new TreeMap<>();
+            for (Row row : rows)
+                if (!row.isNull("length")) parts.put(row.getInt("part"), row.getLong("length"));
+            return parts;
+        });
+    }
+
+    /**
+     * Records the manifest of a binary once all of its parts have landed, which makes it readable, and deletes any
+     * buckets past its last that parts begun may have written to.
+     *
+     * @param id the {@link IRI} of a binary being uploaded
+     * @return whether and when the binary has been recorded
+     */
+    public CompletableFuture<Void> completeUpload(IRI id) {
+        return uploadParts.get(id).thenCompose(rows -> {
+            Row upload = upload(id, rows);
+            int chunkLength = upload.getInt("chunkLength"), chunksPerPart = upload.getInt("chunksPerPart");
+            int chunksPerBucket = upload.getInt("chunksPerBucket");
+            long partLength = (long) chunkLength * chunksPerPart, size = 0;
+            int chunkCount = 0;
+            List<Row> landed = rows.stream().filter(row -> !row.isNull("length")).collect(toList());
+            if (landed.isEmpty()) throw new RuntimeTrellisException("No part has landed in upload under: " + id);
+            for (int part = 0; part < landed.size(); part++) {
+                Row row = landed.get(part);
+                if (row.getInt("part") != part)
+                    throw new RuntimeTrellisException("Part " + part + " has not landed in upload under: " + id);
+                if (part < landed.size() - 1 && row.getLong("length") != partLength)
+                    throw new RuntimeTrellisException("Part " + part + " is shorter than the part length in upload"
+                                    + " under: " + id);
+                size += row.getLong("length");
+                chunkCount += row.getInt("chunkCount");
+            }
+            log.debug("Completing upload of {} parts under: {}", landed.size(), id);
+            int bucketCount = bucketCount(chunkCount, chunksPerBucket),
+                            bucketsBegun = bucketCount(chunksBegun(upload, rows), chunksPerBucket);
+            return recordManifest.execute(id, chunkLength, chunksPerBucket, chunkCount, size, emptyMap())
+                            .thenCompose(dummy -> allOf(range(bucketCount, bucketsBegun)
+                                            .mapToObj(bucket -> delete.executeBucket(id, bucket))
+                                            .toArray(CompletableFuture<?>[]::new)))
+                            .thenCompose(dummy -> uploadParts.end(id));
+        });
+    }
+
+    /**
+     * Abandons a multipart upload, purging any parts already written.
+     *
+     * @param id the {@link IRI} of a binary being uploaded
+     * @return whether and when the upload has been abandoned
+     */
+    public CompletableFuture<Void> abortUpload(IRI id) {
+        return uploadParts.get(id).thenCompose(rows -> {
+            Row upload = upload(id, rows);
+            int chunkCount = chunksBegun(upload, rows);
+            log.debug("Abandoning upload under: {}", id);
+            return delete.execute(id, bucketCount(chunkCount, upload.getInt("chunksPerBucket")))
+                            .thenCompose(dummy -> uploadParts.end(id));
+        });
+    }
+
+    /**
+     * @return how many chunks the parts begun may have written, counting from the first, since every part begun may
+     *         have written chunks, even if it never landed
+     */
+    private static int chunksBegun(Row upload, List<Row> rows) {
+        return rows.stream().filter(row -> !row.isNull("part"))
+                        .mapToInt(row -> (row.getInt("part") + 1) * upload.getInt("chunksPerPart")).max().orElse(0);
+    }
+
+    private static Row upload(IRI id, List<Row> rows) {
+        if (rows.isEmpty() || rows.get(0).isNull("chunkLength"))
+            throw new RuntimeTrellisException("No upload in progress under: " + id.getIRIString());
+        return rows.get(0);
+    }
+
+    private static int read(InputStream stream) {
+        try {
+            return stream.read();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * Whether to cache that a resource is missing, as well as resources that are found.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface NegativeResourceCaching {
+
+    /**
+     * By default, only resources that are found are cached.
+     */
+    public static final String value = "false";
+}
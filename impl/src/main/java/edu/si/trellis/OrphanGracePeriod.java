@@ -0,0 +1,23 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * How long, in seconds, a binary must have gone unwritten before it may be purged as an orphan, so that a binary
+ * just recorded is not purged before the resource that refers to it is.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface OrphanGracePeriod {
+
+    /**
+     * Default period, one day.
+     */
+    public static final String value = "86400";
+}
@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * How many binaries per second to examine at most when sweeping for orphaned binaries, or {@code 0} not to sweep.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface OrphanSweepRate {
+
+    /**
+     * Default rate, {@code 0}, not to sweep.
+     */
+    public static final String value = "0";
+}
@@ -0,0 +1,289 @@
+package edu.si.trellis;
+
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.utils.Bytes;
+import com.datastax.driver.core.utils.UUIDs;
+
+import edu.si.trellis.query.binary.Delete;
+import edu.si.trellis.query.binary.OrphanScan;
+import edu.si.trellis.query.binary.StoredChunks;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+
+/**
+ * Sweeps away binaries that no resource refers to, such as those left by failed uploads or by resources whose content
+ * was replaced and whose Mementos have since been deleted. Once a second, the sweeper examines the next few
+ * partitions of {@code binarydata}, then of {@code binarybuckets}, and then of {@code chunkstore}, in token order, and
+ * purges each binary that no live resource or Memento refers to, that no multipart upload is in progress for, and that
+ * has gone unwritten for the grace period. Having reached the end of the ring, it starts over.
+ * <p>
+ * A bucket of chunks is purged on its own only if its binary has no partition in {@code binarydata}, which is so only
+ * for a binary whose chunks were bucketed and which failed before its manifest was recorded. A stored content-defined
+ * chunk is reclaimed once no binary refers to it and it has gone untouched for the grace period, through
+ * {@link StoredChunks#reclaim}, which leaves it in place if a new binary has taken it up meanwhile.
+ * </p>
+ * <p>
+ * References are found through the {@code binaryreferences} and {@code mementobinaryreferences} materialized views.
+ * </p>
+ */
+@Singleton
+public class OrphanSweeper {
+
+    private static final Logger log = getLogger(OrphanSweeper.class);
+
+    private static final long TICK_MILLIS = SECONDS.toMillis(1);
+
+    /**
+     * How far the token ring reaches, as a {@code double}.
+     */
+    private static final double RING = -2.0 * Long.MIN_VALUE;
+
+    private final OrphanScan scan;
+
+    private final CassandraBinaryService binaryService;
+
+    private final Delete delete;
+
+    private final StoredChunks storedChunks;
+
+    private final long gracePeriodMillis;
+
+    private final int rate;
+
+    private final AtomicLong scanned = new AtomicLong(), purged = new AtomicLong(), failures = new AtomicLong(),
+                    passes = new AtomicLong();
+
+    private Timer timer;
+
+    /**
+     * The table the current pass has reached.
+     */
+    private volatile Table table = Table.BINARIES;
+
+    /**
+     * The token of the last partition examined in the current pass.
+     */
+    private volatile long cursor = Long.MIN_VALUE;
+
+    private volatile long passStarted = nanoTime(), passScanned = 0;
+
+    /**
+     * @param scan queries with which to find orphaned binaries
+     * @param binaryService the {@link CassandraBinaryService} with which to purge them
+     * @param delete a {@link Delete} query with which to purge buckets of chunks left without a binary
+     * @param storedChunks a {@link StoredChunks} query with which to reclaim stored chunks that no binary refers to
+     * @param gracePeriod how long, in seconds, a binary must have gone unwritten before it may be purged
+     * @param rate how many binaries to examine each second at most, or {@code 0} not to sweep
+     */
+    @Inject
+    public OrphanSweeper(OrphanScan scan, CassandraBinaryService binaryService, Delete delete,
+                    StoredChunks storedChunks, @OrphanGracePeriod long gracePeriod, @OrphanSweepRate int rate) {
+        if (gracePeriod < 0) throw new IllegalArgumentException("Orphan grace period < 0!");
+        if (rate < 0) throw new IllegalArgumentException("Orphan sweep rate < 0!");
+        this.scan = scan;
+        this.binaryService = binaryService;
+        this.delete = delete;
+        this.storedChunks = storedChunks;
+        this.gracePeriodMillis = SECONDS.toMillis(gracePeriod);
+        this.rate = rate;
+    }
+
+    /**
+     * Starts sweeping, if a rate is configured.
+     */
+    @PostConstruct
+    void start() {
+        if (rate == 0) {
+            log.info("Not sweeping orphaned binaries");
+            return;
+        }
+        log.info("Sweeping orphaned binaries unwritten for {} s, at {} binaries per second", gracePeriodMillis / 1000,
+                        rate);
+        timer = new Timer("Orphaned Binary Sweeper", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                sweep();
+            }
+        }, TICK_MILLIS, TICK_MILLIS);
+    }
+
+    /**
+     * Stops sweeping.
+     */
+    @PreDestroy
+    void stop() {
+        if (timer != null) timer.cancel();
+    }
+
+    /**
+     * Examines the next partitions in the current pass, as many as the rate allows.
+     */
+    void sweep() {
+        List<Row> page;
+        try {
+            page = page().join();
+        } catch (RuntimeException e) {
+            log.warn("Failed to scan for orphaned binaries, will try again: {}", e.getMessage());
+            return;
+        }
+        for (Row row : page) {
+            try {
+                if (sweep(row)) purged.incrementAndGet();
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+                log.warn("Failed to sweep {}: {}", describe(row), e.getMessage());
+            }
+            scanned.incrementAndGet();
+            passScanned++;
+            cursor = row.getLong("token");
+        }
+        if (page.size() < rate) {
+            cursor = Long.MIN_VALUE;
+            if (table == Table.CHUNKS) endPass();
+            table = Table.values()[(table.ordinal() + 1) % Table.values().length];
+        }
+    }
+
+    private CompletableFuture<List<Row>> page() {
+        switch (table) {
+        case BUCKETS:
+            return scan.scanBuckets(cursor, rate);
+        case CHUNKS:
+            return scan.scanChunks(cursor, rate);
+        default:
+            return scan.scan(cursor, rate);
+        }
+    }
+
+    private boolean sweep(Row row) {
+        switch (table) {
+        case BUCKETS:
+            return sweep(row.get("identifier", IRI.class), row.getInt("bucket"));
+        case CHUNKS:
+            return sweep(row.getBytes("hash"), row.getUUID("touched"));
+        default:
+            return sweep(row.get("identifier", IRI.class));
+        }
+    }
+
+    private String describe(Row row) {
+        return table == Table.CHUNKS ? "chunk " + Bytes.toHexString(row.getBytes("hash"))
+                        : "binary " + row.get("identifier", IRI.class);
+    }
+
+    private boolean sweep(IRI id) {
+        OptionalLong written = scan.lastWritten(id).join();
+        if (!written.isPresent() || !expired(written.getAsLong()) || scan.referenced(id).join()) return false;
+        log.info("Purging orphaned binary: {}", id);
+        binaryService.purgeContentNow(id).join();
+        return true;
+    }
+
+    private boolean sweep(IRI id, int bucket) {
+        // a bucket of a binary with a partition in binarydata is purged along with it
+        if (scan.lastWritten(id).join().isPresent()) return false;
+        OptionalLong written = scan.lastWritten(id, bucket).join();
+        if (!written.isPresent() || !expired(written.getAsLong()) || scan.referenced(id).join()) return false;
+        log.info("Purging orphaned bucket {} of binary: {}", bucket, id);
+        delete.executeBucket(id, bucket).join();
+        return true;
+    }
+
+    private boolean sweep(ByteBuffer hash, UUID touched) {
+        // a chunk never touched was stored before chunks were
+        if (touched != null && !expired(MILLISECONDS.toMicros(UUIDs.unixTimestamp(touched)))) return false;
+        if (scan.chunkReferenced(hash).join()) return false;
+        log.info("Reclaiming unreferenced chunk: {}", Bytes.toHexString(hash));
+        return storedChunks.reclaim(hash, touched).join();
+    }
+
+    /**
+     * @param writtenMicros when a binary was last written, in microseconds since the epoch
+     * @return whether the grace period has passed since then
+     */
+    private boolean expired(long writtenMicros) {
+        return currentTimeMillis() - MICROSECONDS.toMillis(writtenMicros) >= gracePeriodMillis;
+    }
+
+    private void endPass() {
+        passes.incrementAndGet();
+        log.info("Finished sweep {} for orphaned binaries, examining {} partitions at {} per second; {} purged so far",
+                        passes.get(), passScanned, String.format("%.1f", rate()), purged.get());
+        passStarted = nanoTime();
+        passScanned = 0;
+    }
+
+    /**
+     * @return how many partitions have been examined
+     */
+    public long scanned() {
+        return scanned.get();
+    }
+
+    /**
+     * @return how many binaries, buckets of chunks, and stored chunks have been purged
+     */
+    public long purged() {
+        return purged.get();
+    }
+
+    /**
+     * @return how many partitions could not be examined or purged, and will be examined again on the next pass
+     */
+    public long failures() {
+        return failures.get();
+    }
+
+    /**
+     * @return how many passes over all binaries have been finished
+     */
+    public long passes() {
+        return passes.get();
+    }
+
+    /**
+     * @return how far the current pass has gone, from {@code 0} to {@code 1}, taking {@code binarydata},
+     *         {@code binarybuckets}, and {@code chunkstore} as a third each
+     */
+    public double progress() {
+        double ring = (cursor - (double) Long.MIN_VALUE) / RING;
+        return (table.ordinal() + ring) / Table.values().length;
+    }
+
+    /**
+     * @return how many partitions per second have been examined in the current pass
+     */
+    public double rate() {
+        double seconds = (nanoTime() - passStarted) / 1e9;
+        return seconds > 0 ? passScanned / seconds : 0;
+    }
+
+    /**
+     * The tables swept, in the order each pass sweeps them.
+     */
+    private enum Table {
+        BINARIES, BUCKETS, CHUNKS
+    }
+}
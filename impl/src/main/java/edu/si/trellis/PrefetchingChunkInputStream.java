@@ -0,0 +1,181 @@
+package edu.si.trellis;
+
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.slf4j.Logger;
+
+/**
+ * A {@link ChunkSequenceInputStream} backed by Cassandra queries that each retrieve one binary chunk. Queries for the
+ * chunks following the one being read are issued ahead, so that they arrive while it is consumed. At most
+ * {@code readAhead + 1} chunks are in flight or held unconsumed at any time. Closing cancels any fetches not yet
+ * consumed.
+ * <p>
+ * If given a {@link ChunkCache}, chunks found there are not fetched, and chunks fetched are put there.
+ * </p>
+ * <p>
+ * Not thread-safe!
+ * </p>
+ * 
+ * @see InputStreamCodec
+ * @see ChunkCompression
+ */
+public class PrefetchingChunkInputStream extends ChunkSequenceInputStream {
+
+    private static final Logger log = getLogger(PrefetchingChunkInputStream.class);
+
+    private final Session session;
+
+    private final List<? extends Statement> queries;
+
+    private final int readAhead;
+
+    private final ResultSetFuture[] fetches;
+
+    private final ChunkCache cache;
+
+    /**
+     * The cache keys of the chunks, in order, or {@code null} if there is no cache.
+     */
+    private final List<String> keys;
+
+    /**
+     * The index of the next chunk query to issue.
+     */
+    private int nextFetch = 0;
+
+    /**
+     * The index of the first chunk that may still hold an unconsumed fetch.
+     */
+    private int unconsumed = 0;
+
+    private boolean closed = false;
+
+    /**
+     * @param session The Cassandra session to use
+     * @param queries CQL queries that each retrieve one chunk, in order
+     * @param chunkLength the length of every chunk but the last
+     * @param readAhead how many chunks to fetch ahead of the chunk being read
+     */
+    public PrefetchingChunkInputStream(Session session, List<? extends Statement> queries, int chunkLength,
+                    int readAhead) {
+        this(session, queries, chunkLength, readAhead, null, null);
+    }
+
+    /**
+     * @param session The Cassandra session to use
+     * @param queries CQL queries that each retrieve one chunk, in order
+     * @param chunkLength the length of every chunk but the last
+     * @param readAhead how many chunks to fetch ahead of the chunk being read
+     * @param cache a {@link ChunkCache} in which to look for chunks and put those fetched
+     * @param keys the cache keys of the chunks, in order
+     */
+    public PrefetchingChunkInputStream(Session session, List<? extends Statement> queries, int chunkLength,
+                    int readAhead, ChunkCache cache, List<String> keys) {
+        super(queries.size(), chunkLength);
+        if (readAhead < 0) throw new IllegalArgumentException("Read-ahead < 0!");
+        if (keys != null && keys.size() != queries.size())
+            throw new IllegalArgumentException("Chunk queries and cache keys do not match!");
+        this.session = session;
+        this.queries = queries;
+        this.readAhead = readAhead;
+        this.fetches = new ResultSetFuture[queries.size()];
+        this.cache = cache;
+        this.keys = cache == null ? null : keys;
+    }
+
+    /**
+     * @param session The Cassandra session to use
+     * @param queries CQL queries that each retrieve one chunk, in order
+     * @param chunkLengths the length of each chunk, in order
+     * @param readAhead how many chunks to fetch ahead of the chunk being read
+     */
+    public PrefetchingChunkInputStream(Session session, List<? extends Statement> queries, int[] chunkLengths,
+                    int readAhead) {
+        this(session, queries, chunkLengths, readAhead, null, null);
+    }
+
+    /**
+     * @param session The Cassandra session to use
+     * @param queries CQL queries that each retrieve one chunk, in order
+     * @param chunkLengths the length of each chunk, in order
+     * @param readAhead how many chunks to fetch ahead of the chunk being read
+     * @param cache a {@link ChunkCache} in which to look for chunks and put those fetched
+     * @param keys the cache keys of the chunks, in order
+     */
+    public PrefetchingChunkInputStream(Session session, List<? extends Statement> queries, int[] chunkLengths,
+                    int readAhead, ChunkCache cache, List<String> keys) {
+        super(chunkLengths);
+        if (queries.size() != chunkLengths.length)
+            throw new IllegalArgumentException("Chunk queries and lengths do not match!");
+        if (readAhead < 0) throw new IllegalArgumentException("Read-ahead < 0!");
+        if (keys != null && keys.size() != queries.size())
+            throw new IllegalArgumentException("Chunk queries and cache keys do not match!");
+        this.session = session;
+        this.queries = queries;
+        this.readAhead = readAhead;
+        this.fetches = new ResultSetFuture[queries.size()];
+        this.cache = cache;
+        this.keys = cache == null ? null : keys;
+    }
+
+    @Override
+    protected InputStream chunk(int index) throws IOException {
+        if (closed) throw new IOException("Stream is closed!");
+        for (; unconsumed < index; unconsumed++) cancel(unconsumed); // skipped chunks will never be read
+        unconsumed = index + 1;
+        if (nextFetch < index) nextFetch = index;
+        int last = min(index + readAhead, fetches.length - 1);
+        for (; nextFetch <= last; nextFetch++) {
+            if (cache != null && cache.contains(keys.get(nextFetch))) continue;
+            log.debug("Prefetching chunk: {}", nextFetch);
+            fetches[nextFetch] = session.executeAsync(queries.get(nextFetch));
+        }
+        ResultSetFuture fetch = fetches[index];
+        fetches[index] = null; // release for collection once consumed
+        if (cache == null) return ChunkCompression.chunk(fetched(fetch));
+        ByteBuffer cached = cache.get(keys.get(index));
+        if (cached != null) {
+            if (fetch != null) fetch.cancel(true);
+            return new ByteBufferInputStream(cached);
+        }
+        // the chunk was evicted after it was passed over for prefetching
+        if (fetch == null) fetch = session.executeAsync(queries.get(index));
+        ByteBuffer chunk = ChunkCompression.bytes(fetched(fetch));
+        cache.put(keys.get(index), chunk);
+        return new ByteBufferInputStream(chunk);
+    }
+
+    private static Row fetched(ResultSetFuture fetch) {
+        return requireNonNull(fetch.getUninterruptibly().one(), "Missing binary chunk!");
+    }
+
+    private void cancel(int index) {
+        if (fetches[index] != null) {
+            fetches[index].cancel(true);
+            fetches[index] = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            super.close();
+        } finally {
+            for (int i = unconsumed; i < fetches.length; i++) cancel(i);
+        }
+    }
+}
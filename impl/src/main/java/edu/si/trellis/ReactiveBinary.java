@@ -0,0 +1,40 @@
+package edu.si.trellis;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+import org.reactivestreams.Publisher;
+import org.trellisldp.api.Binary;
+
+/**
+ * A {@link Binary} whose content can also be streamed without blocking, with backpressure, so that serving it need
+ * not hold a thread for as long as the download lasts.
+ *
+ * @see ChunkPublisher
+ */
+public interface ReactiveBinary extends Binary {
+
+    /**
+     * @return a {@link Publisher} of the content of this binary, in order
+     */
+    Publisher<ByteBuffer> getContentPublisher();
+
+    /**
+     * @param from the first byte of the range, counting from zero
+     * @param to the last byte of the range, inclusive
+     * @return a {@link Publisher} of that range of the content of this binary, in order
+     */
+    Publisher<ByteBuffer> getContentPublisher(int from, int to);
+
+    /**
+     * Reads several ranges at once, as for a {@code multipart/byteranges} response, reading the content each needs
+     * only once.
+     *
+     * @param ranges the ranges to read, in any order and possibly overlapping
+     * @return for each range in turn, its bytes as read-only buffers in order, which are none for a range that begins
+     *         past the end of this binary; a range that ends past the end is shortened
+     * @see ChunkRanges
+     */
+    CompletionStage<List<List<ByteBuffer>>> getContentRanges(List<ByteRange> ranges);
+}
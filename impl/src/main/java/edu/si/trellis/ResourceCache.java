@@ -0,0 +1,156 @@
+package edu.si.trellis;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+import static org.trellisldp.api.Resource.SpecialResources.MISSING_RESOURCE;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+import org.trellisldp.api.Resource;
+
+/**
+ * A local cache of resources as read by a {@link CassandraResourceService}, so that resources asked for on every
+ * request, such as the root container and the parents consulted in checking access, need not be read from Cassandra
+ * each time. Only a resource's metadata is held; its quads are still read afresh whenever they are streamed.
+ * <p>
+ * A resource is evicted when it is written through this instance, so it is never served stale after a change made
+ * here. A change made through another instance is seen once the cached resource has aged past the configured
+ * staleness. A read that overlaps any write through this instance is not cached, so that it cannot put back what the
+ * write evicted.
+ * </p>
+ * <p>
+ * Thread-safe.
+ * </p>
+ */
+@Singleton
+public class ResourceCache {
+
+    private static final Logger log = getLogger(ResourceCache.class);
+
+    private final int capacity;
+
+    private final long stalenessNanos;
+
+    private final boolean cacheMissing;
+
+    private final LongSupplier clock;
+
+    /**
+     * Cached resources, in access order.
+     */
+    private final LinkedHashMap<IRI, Entry> resources = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * How many evictions for writes there have been, by which a read can tell whether a write overlapped it.
+     */
+    private long writes;
+
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+
+    /**
+     * @param capacity how many resources to cache, or {@code 0} for none
+     * @param staleness how long, in milliseconds, to serve a cached resource before reading it again
+     * @param cacheMissing whether to cache that a resource is missing
+     */
+    @Inject
+    public ResourceCache(@ResourceCacheSize int capacity, @ResourceCacheStaleness long staleness,
+                    @NegativeResourceCaching boolean cacheMissing) {
+        this(capacity, staleness, cacheMissing, System::nanoTime);
+    }
+
+    ResourceCache(int capacity, long staleness, boolean cacheMissing, LongSupplier clock) {
+        if (capacity < 0) throw new IllegalArgumentException("Resource cache size < 0!");
+        if (staleness < 0) throw new IllegalArgumentException("Resource cache staleness < 0!");
+        this.capacity = capacity;
+        this.stalenessNanos = MILLISECONDS.toNanos(staleness);
+        this.cacheMissing = cacheMissing;
+        this.clock = clock;
+        if (capacity > 0) log.info("Caching up to {} resources for up to {} ms, {}", capacity, staleness,
+                        cacheMissing ? "including missing resources" : "excluding missing resources");
+    }
+
+    /**
+     * @param id the {@link IRI} of a resource
+     * @param read how to read that resource from Cassandra, if it is not cached
+     * @return the cached resource, or else the resource read, which is then cached
+     */
+    public CompletionStage<? extends Resource> get(IRI id, Function<IRI, CompletionStage<? extends Resource>> read) {
+        if (capacity == 0) return read.apply(id);
+        long writesBefore;
+        synchronized (this) {
+            Entry cached = resources.get(id);
+            if (cached != null && clock.getAsLong() - cached.read <= stalenessNanos) {
+                hits.incrementAndGet();
+                return completedFuture(cached.resource);
+            }
+            writesBefore = writes;
+        }
+        misses.incrementAndGet();
+        long readAt = clock.getAsLong();
+        return read.apply(id).thenApply(resource -> {
+            put(id, resource, readAt, writesBefore);
+            return resource;
+        });
+    }
+
+    private synchronized void put(IRI id, Resource resource, long readAt, long writesBefore) {
+        if (writes != writesBefore || (resource == MISSING_RESOURCE && !cacheMissing)) return;
+        resources.put(id, new Entry(resource, readAt));
+        Iterator<Entry> lru = resources.values().iterator();
+        while (resources.size() > capacity) {
+            lru.next();
+            lru.remove();
+        }
+    }
+
+    /**
+     * Evicts a resource that is being written. This should be done both as the write begins and once it ends, so
+     * that no read that overlaps the write is served from or put into this cache.
+     *
+     * @param id the {@link IRI} of a resource
+     */
+    public synchronized void evict(IRI id) {
+        writes++;
+        resources.remove(id);
+    }
+
+    /**
+     * @return how many resources have been served from this cache
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * @return how many resources were asked for and read from Cassandra
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    private static final class Entry {
+
+        private final Resource resource;
+
+        /**
+         * When the resource was read, on {@link ResourceCache#clock}.
+         */
+        private final long read;
+
+        private Entry(Resource resource, long read) {
+            this.resource = resource;
+            this.read = read;
+        }
+    }
+}
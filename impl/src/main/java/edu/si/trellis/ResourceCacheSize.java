@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * How many resources' metadata to cache, or {@code 0} not to cache resources.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface ResourceCacheSize {
+
+    /**
+     * By default, resources are not cached.
+     */
+    public static final String value = "0";
+}
@@ -0,0 +1,23 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * How long, in milliseconds, a cached resource may be served before it is read again, which bounds how stale a
+ * resource changed by another instance may appear.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface ResourceCacheStaleness {
+
+    /**
+     * Default staleness, five seconds.
+     */
+    public static final String value = "5000";
+}
@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The {@link DatasetFormat} in which to record the quads of resources.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface ResourceDatasetFormat {
+
+    /**
+     * Default format.
+     */
+    public static final String value = "NQUADS";
+}
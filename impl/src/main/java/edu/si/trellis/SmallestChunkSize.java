@@ -0,0 +1,22 @@
+package edu.si.trellis;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javax.inject.Qualifier;
+
+/**
+ * The smallest size of chunk that will be chosen for a binary, however small.
+ */
+@Documented
+@Retention(RUNTIME)
+@Qualifier
+public @interface SmallestChunkSize {
+
+    /**
+     * Default smallest chunk size.
+     */
+    public static final String value = "4096";
+}
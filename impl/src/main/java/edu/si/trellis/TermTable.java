@@ -0,0 +1,249 @@
+package edu.si.trellis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.BlankNode;
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Literal;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.api.RDFTerm;
+
+/**
+ * A compact encoding of quads as UTF-8 text, so that it can be kept in the same {@code text} columns as N-Quads. It
+ * begins with {@link #MARKER}, which cannot begin N-Quads, followed by a table of the distinct terms of the quads, one
+ * to a line and each only once, and an empty line. Then come the quads, one to a line, each as the indexes in the
+ * table of its subject, predicate, object and (unless it is in the default graph) graph name, separated by spaces.
+ * <p>
+ * A term is written as {@code <} and its IRI, {@code _} for a blank node (a new one for each line, since each is in
+ * the table only once), {@code "} and the lexical form of a plain string literal, {@code @} and a language tag, a space
+ * and the lexical form of a language-tagged literal, or {@code ^} and the index of a datatype, a space and the lexical
+ * form of any other literal. Backslashes, line feeds and carriage returns in IRIs and lexical forms are escaped as in
+ * N-Triples. Reading the quads back costs a parse of each distinct term once, and of a few integers for each quad.
+ * </p>
+ */
+final class TermTable {
+
+    /**
+     * The first byte of a term table, a control character with which N-Quads never begin.
+     */
+    static final byte MARKER = 0x01;
+
+    private static final String XSD_STRING = "http://www.w3.org/2001/XMLSchema#string";
+
+    private TermTable() {}
+
+    /**
+     * @param quads the quads to encode
+     * @return those quads as a term table
+     */
+    static byte[] write(Stream<? extends Quad> quads) {
+        Map<RDFTerm, Integer> indexes = new HashMap<>();
+        StringBuilder terms = new StringBuilder().append((char) MARKER), rows = new StringBuilder();
+        quads.forEach(quad -> {
+            rows.append(index(quad.getSubject(), indexes, terms)).append(' ')
+                            .append(index(quad.getPredicate(), indexes, terms)).append(' ')
+                            .append(index(quad.getObject(), indexes, terms));
+            Optional<BlankNodeOrIRI> graphName = quad.getGraphName();
+            if (graphName.isPresent()) rows.append(' ').append(index(graphName.get(), indexes, terms));
+            rows.append('\n');
+        });
+        return terms.append('\n').append(rows).toString().getBytes(UTF_8);
+    }
+
+    private static int index(RDFTerm term, Map<RDFTerm, Integer> indexes, StringBuilder terms) {
+        Integer index = indexes.get(term);
+        if (index != null) return index;
+        if (term instanceof IRI) escape(terms.append('<'), ((IRI) term).getIRIString());
+        else if (term instanceof BlankNode) terms.append('_');
+        else {
+            Literal literal = (Literal) term;
+            Optional<String> language = literal.getLanguageTag();
+            if (language.isPresent()) terms.append('@').append(language.get()).append(' ');
+            else if (XSD_STRING.equals(literal.getDatatype().getIRIString())) terms.append('"');
+            else {
+                // the datatype goes into the table first, on a line of its own
+                int datatype = index(literal.getDatatype(), indexes, terms);
+                terms.append('^').append(datatype).append(' ');
+            }
+            escape(terms, literal.getLexicalForm());
+        }
+        terms.append('\n');
+        indexes.put(term, indexes.size());
+        return indexes.size() - 1;
+    }
+
+    private static void escape(StringBuilder terms, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '\\':
+                terms.append("\\\\");
+                break;
+            case '\n':
+                terms.append("\\n");
+                break;
+            case '\r':
+                terms.append("\\r");
+                break;
+            default:
+                terms.append(c);
+            }
+        }
+    }
+
+    /**
+     * @param bytes a term table, which is read from its position without being copied or moved
+     * @param rdf the {@link RDF} with which to create terms and quads
+     * @return the quads of that term table, in order, each decoded as it is reached
+     */
+    static Iterator<Quad> read(ByteBuffer bytes, RDF rdf) {
+        return new Reader(bytes, rdf);
+    }
+
+    private static final class Reader implements Iterator<Quad> {
+
+        private final ByteBuffer bytes;
+
+        private final RDF rdf;
+
+        private final List<RDFTerm> terms = new ArrayList<>();
+
+        private final int limit;
+
+        private int position;
+
+        private Reader(ByteBuffer bytes, RDF rdf) {
+            this.bytes = bytes;
+            this.rdf = rdf;
+            this.limit = bytes.limit();
+            this.position = bytes.position();
+            if (position >= limit || bytes.get(position) != MARKER) throw malformed("no marker");
+            position++;
+            for (int end = lineEnd(); end > position; end = lineEnd()) {
+                terms.add(term(line(position, end)));
+                position = end + 1;
+            }
+            position++;
+        }
+
+        private int lineEnd() {
+            // a line feed byte never occurs within a multibyte UTF-8 sequence
+            for (int i = position; i < limit; i++)
+                if (bytes.get(i) == '\n') return i;
+            throw malformed("unterminated line");
+        }
+
+        private String line(int from, int to) {
+            if (bytes.hasArray()) return new String(bytes.array(), bytes.arrayOffset() + from, to - from, UTF_8);
+            byte[] line = new byte[to - from];
+            for (int i = from; i < to; i++) line[i - from] = bytes.get(i);
+            return new String(line, UTF_8);
+        }
+
+        private RDFTerm term(String line) {
+            try {
+                switch (line.charAt(0)) {
+                case '<':
+                    return rdf.createIRI(unescape(line.substring(1)));
+                case '_':
+                    return rdf.createBlankNode();
+                case '"':
+                    return rdf.createLiteral(unescape(line.substring(1)));
+                case '@': {
+                    int space = line.indexOf(' ');
+                    return rdf.createLiteral(unescape(line.substring(space + 1)), line.substring(1, space));
+                }
+                case '^': {
+                    int space = line.indexOf(' ');
+                    IRI datatype = (IRI) terms.get(Integer.parseInt(line.substring(1, space)));
+                    return rdf.createLiteral(unescape(line.substring(space + 1)), datatype);
+                }
+                default:
+                    throw malformed("unknown term " + line);
+                }
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | ClassCastException e) {
+                throw malformed("bad term " + line, e);
+            }
+        }
+
+        private static String unescape(String value) {
+            if (value.indexOf('\\') < 0) return value;
+            StringBuilder unescaped = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c != '\\') unescaped.append(c);
+                else switch (value.charAt(++i)) {
+                case 'n':
+                    unescaped.append('\n');
+                    break;
+                case 'r':
+                    unescaped.append('\r');
+                    break;
+                default:
+                    unescaped.append(value.charAt(i));
+                }
+            }
+            return unescaped.toString();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < limit;
+        }
+
+        @Override
+        public Quad next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            try {
+                BlankNodeOrIRI subject = (BlankNodeOrIRI) terms.get(number());
+                expect(' ');
+                IRI predicate = (IRI) terms.get(number());
+                expect(' ');
+                RDFTerm object = terms.get(number());
+                BlankNodeOrIRI graphName = null;
+                if (position < limit && bytes.get(position) == ' ') {
+                    position++;
+                    graphName = (BlankNodeOrIRI) terms.get(number());
+                }
+                expect('\n');
+                return rdf.createQuad(graphName, subject, predicate, object);
+            } catch (IndexOutOfBoundsException | ClassCastException e) {
+                throw malformed("bad quad", e);
+            }
+        }
+
+        private int number() {
+            int start = position, number = 0;
+            for (byte digit; position < limit && (digit = bytes.get(position)) >= '0' && digit <= '9'; position++)
+                number = number * 10 + digit - '0';
+            if (position == start) throw malformed("missing index");
+            return number;
+        }
+
+        private void expect(char separator) {
+            if (position >= limit || bytes.get(position++) != separator) throw malformed("missing separator");
+        }
+    }
+
+    private static InvalidTypeException malformed(String problem) {
+        return new InvalidTypeException("Term table is malformed: " + problem + "!");
+    }
+
+    private static InvalidTypeException malformed(String problem, Throwable cause) {
+        return new InvalidTypeException("Term table is malformed: " + problem + "!", cause);
+    }
+}
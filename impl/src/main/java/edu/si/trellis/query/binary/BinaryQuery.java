@@ -12,4 +12,14 @@ abstract class BinaryQuery extends CassandraQuery {
     }
     
     static final String BINARY_TABLENAME = "binarydata";
+
+    static final String BUCKET_TABLENAME = "binarybuckets";
+
+    static final String CHUNK_TABLENAME = "chunkstore";
+
+    static final String CHUNK_REFERENCES_TABLENAME = "chunkrefs";
+
+    static final String UPLOAD_TABLENAME = "binaryuploads";
+
+    static final String PURGE_TABLENAME = "binarypurges";
 }
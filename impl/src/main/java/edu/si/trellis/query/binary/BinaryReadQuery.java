@@ -1,20 +1,29 @@
 package edu.si.trellis.query.binary;
 
-import static java.util.stream.StreamSupport.stream;
+import static java.util.Arrays.stream;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.rangeClosed;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
 
-import edu.si.trellis.LazyChunkInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
+import edu.si.trellis.ByteRange;
+import edu.si.trellis.ChunkCache;
+import edu.si.trellis.ChunkPublisher;
+import edu.si.trellis.ChunkRanges;
+import edu.si.trellis.PrefetchingChunkInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.rdf.api.IRI;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.trellisldp.api.RuntimeTrellisException;
 
@@ -25,100 +34,146 @@ abstract class BinaryReadQuery extends BinaryQuery {
 
     private static final Logger log = getLogger(BinaryReadQuery.class);
 
-    private static final String READ_CHUNK_QUERY = "SELECT chunk FROM " + BINARY_TABLENAME
+    private static final String READ_CHUNK_QUERY = "SELECT chunk, compression FROM " + BINARY_TABLENAME
                     + " WHERE identifier = :identifier and chunkIndex = :chunkIndex;";
 
-    private final PreparedStatement readChunkStatement;
+    private static final String READ_BUCKETED_CHUNK_QUERY = "SELECT chunk, compression FROM " + BUCKET_TABLENAME
+                    + " WHERE identifier = :identifier and bucket = :bucket and chunkIndex = :chunkIndex;";
 
-    BinaryReadQuery(Session session, String queryString, ConsistencyLevel consistency) {
+    private final PreparedStatement readChunkStatement, readBucketedChunkStatement;
+
+    private final int readAhead;
+
+    private final ChunkCache cache;
+
+    BinaryReadQuery(Session session, String queryString, ConsistencyLevel consistency, int readAhead,
+                    ChunkCache cache) {
         super(session, queryString, consistency);
         this.readChunkStatement = session.prepare(READ_CHUNK_QUERY);
+        this.readBucketedChunkStatement = session.prepare(READ_BUCKETED_CHUNK_QUERY);
+        this.readAhead = readAhead;
+        this.cache = cache;
     }
 
     //@formatter:off
     /**
+     * Retrieves a binary recorded without a manifest, for which the chunks present must be listed.
+     * 
      * @param id an {@link IRI} for a binary 
-     * @param statement a CQL query that retrieves the chunk indexes of chunks for {@code id}
+     * @param statement a CQL query that retrieves the chunk indexes and chunk size of chunks for {@code id}
      * @return An {@link InputStream} of bytes as requested. The {@code skip} method of this {@code InputStream} is
      *         guaranteed to skip as many bytes as asked.
      */
     protected InputStream retrieve(IRI id, Statement statement) {
-        return stream(executeSyncRead(statement).spliterator(), false)
-                        .mapToInt(r -> r.getInt("chunkIndex"))
-                        .mapToObj(chunkIndex -> readChunkStatement.bind()
-                                            .setInt("chunkIndex", chunkIndex)
-                                            .set("identifier", id, IRI.class))
-                        .peek(chunkIndex -> log.debug("Retrieving stream for chunk: {}", chunkIndex))
-                        .<InputStream> map(s -> new LazyChunkInputStream(session, s))
-                        .reduce(SequenceInputStream::new) // chunks now in one large stream
-                        .orElseThrow(() -> new RuntimeTrellisException("Binary not found under IRI: " + id.getIRIString()));
+        List<Row> rows = executeSyncRead(statement).all();
+        if (rows.isEmpty()) throw new RuntimeTrellisException("Binary not found under IRI: " + id.getIRIString());
+        int chunkLength = rows.get(0).getInt("chunkSize");
+        int[] chunkIndexes = rows.stream().mapToInt(r -> r.getInt("chunkIndex")).toArray();
+        List<Statement> chunkQueries = stream(chunkIndexes)
+                        .mapToObj(chunkIndex -> readChunk(id, chunkIndex))
+                        .collect(toList());
+        return new PrefetchingChunkInputStream(session, chunkQueries, chunkLength, readAhead, cache,
+                        keys(id, stream(chunkIndexes)));
+    }
+
+    /**
+     * Retrieves a binary recorded with a manifest, for which the chunks present are known without querying. Chunks
+     * in different buckets are in different partitions, so prefetching them spreads reads across the cluster.
+     * 
+     * @param id an {@link IRI} for a binary
+     * @param first the index of the first chunk to read
+     * @param last the index of the last chunk to read
+     * @param chunkLength the length of every chunk of this binary but the last
+     * @param chunksPerBucket how many chunks of this binary are in each bucket, or {@code 0} if they are not bucketed
+     * @return An {@link InputStream} of bytes as requested. The {@code skip} method of this {@code InputStream} is
+     *         guaranteed to skip as many bytes as asked.
+     */
+    protected InputStream retrieve(IRI id, int first, int last, int chunkLength, int chunksPerBucket) {
+        if (last < first) throw new RuntimeTrellisException("Binary not found under IRI: " + id.getIRIString());
+        List<Statement> chunkQueries = rangeClosed(first, last)
+                        .mapToObj(chunkIndex -> chunksPerBucket > 0
+                                        ? readBucketedChunk(id, chunkIndex / chunksPerBucket, chunkIndex)
+                                        : readChunk(id, chunkIndex))
+                        .collect(toList());
+        return new PrefetchingChunkInputStream(session, chunkQueries, chunkLength, readAhead, cache,
+                        keys(id, rangeClosed(first, last)));
     }
     //@formatter:on
 
+    private static List<String> keys(IRI id, IntStream chunkIndexes) {
+        return chunkIndexes.mapToObj(chunkIndex -> ChunkCache.key(id, chunkIndex)).collect(toList());
+    }
+
     /**
-     * An {@link InputStream} that sequentially streams two underlying streams. {@link #skip(long)} calls {@code skip}
-     * on the underlying streams before defaulting to using {@link IOUtils#skip(InputStream, long)}, and
-     * {@link #read(byte[], int, int)} also calls {@code read(byte[], int, int)} on the underlying streams. This is
-     * useful in particular with {@link ByteArrayInputStream}s, which have very fast
-     * {@link ByteArrayInputStream#skip(long)} and {@link ByteArrayInputStream#read(byte[], int, int)} implementations.
-     *
+     * Publishes a binary recorded without a manifest, for which the chunks present must be listed. The listing is
+     * queried before this method returns, but the chunks are fetched without blocking.
+     * 
+     * @param id an {@link IRI} for a binary
+     * @param statement a CQL query that retrieves the chunk indexes of chunks for {@code id}
+     * @param skip how many bytes at the start of the first chunk to leave out
+     * @param length how many bytes to publish at most
+     * @return a {@link Publisher} of bytes as requested
      */
-    static class SequenceInputStream extends InputStream {
-
-        private final InputStream s1, s2;
-
-        /**
-         * Changes from {@link #s1} to {@link #s2} to {@code null} via {@link #next()}.
-         */
-        private InputStream current;
-
-        public SequenceInputStream(InputStream s1, InputStream s2) {
-            this.current = (this.s1 = s1);
-            this.s2 = s2;
-        }
-
-        @Override
-        public long skip(long n) throws IOException {
-            if (current == null || n <= 0) return 0;
-            long toSkip = n;
-            toSkip -= current.skip(toSkip);
-            if (toSkip > 0) { // we ran out of bytes to skip from current
-                toSkip -= IOUtils.skip(current, toSkip); // read them instead
-                if (toSkip > 0) {
-                    next();
-                    toSkip -= skip(toSkip);
-                }
-            }
-            return n - toSkip;
-        }
-
-        @Override
-        public int read() throws IOException {
-            if (current == null) return -1;
-            int take = current.read();
-            if (take == -1) {
-                next();
-                return read();
-            }
-            return take;
-        }
-
-        @Override
-        public int read(byte[] b, int offset, int length) throws IOException {
-            if (offset < 0 || length < 0 || length > b.length - offset) throw new IndexOutOfBoundsException();
-            if (length == 0) return 0;
-            if (current == null) return -1;
-            int read = current.read(b, offset, length);
-            if (read <= 0) { // we couldn't get any bytes from current
-                next();
-                return read(b, offset, length);
-            }
-            return read;
-        }
-
-        private void next() throws IOException {
-            if (current != null) current.close();
-            current = current == s1 ? s2 : null;
-        }
+    protected Publisher<ByteBuffer> publish(IRI id, Statement statement, long skip, long length) {
+        List<Row> rows = executeSyncRead(statement).all();
+        if (rows.isEmpty()) throw new RuntimeTrellisException("Binary not found under IRI: " + id.getIRIString());
+        int[] chunkIndexes = rows.stream().mapToInt(r -> r.getInt("chunkIndex")).toArray();
+        return new ChunkPublisher(chunkIndexes.length, i -> ChunkPublisher.fetch(session,
+                        readChunk(id, chunkIndexes[i]), cache, ChunkCache.key(id, chunkIndexes[i])), readAhead,
+                        skip, length);
+    }
+
+    /**
+     * Publishes a binary recorded with a manifest, without blocking.
+     * 
+     * @param id an {@link IRI} for a binary
+     * @param first the index of the first chunk to read
+     * @param last the index of the last chunk to read
+     * @param chunksPerBucket how many chunks of this binary are in each bucket, or {@code 0} if they are not bucketed
+     * @param skip how many bytes at the start of the first chunk to leave out
+     * @param length how many bytes to publish at most
+     * @return a {@link Publisher} of bytes as requested
+     */
+    protected Publisher<ByteBuffer> publish(IRI id, int first, int last, int chunksPerBucket, long skip,
+                    long length) {
+        if (last < first) throw new RuntimeTrellisException("Binary not found under IRI: " + id.getIRIString());
+        return new ChunkPublisher(last - first + 1, i -> fetch(id, first + i, chunksPerBucket), readAhead, skip,
+                        length);
+    }
+
+    /**
+     * Reads several ranges of a binary recorded with a manifest at once, without blocking, fetching each chunk they
+     * need only once.
+     * 
+     * @param id an {@link IRI} for a binary
+     * @param ranges the ranges to read, in any order and possibly overlapping
+     * @param size the length in bytes of this binary
+     * @param chunkLength the length of every chunk of this binary but the last
+     * @param chunksPerBucket how many chunks of this binary are in each bucket, or {@code 0} if they are not bucketed
+     * @return for each range in turn, its bytes as buffers in order
+     * @see ChunkRanges
+     */
+    protected CompletableFuture<List<List<ByteBuffer>>> readRanges(IRI id, List<ByteRange> ranges, long size,
+                    int chunkLength, int chunksPerBucket) {
+        return new ChunkRanges(chunkIndex -> fetch(id, chunkIndex, chunksPerBucket),
+                        position -> (int) (position / chunkLength), chunkIndex -> (long) chunkIndex * chunkLength,
+                        size, readAhead + 1).read(ranges);
+    }
+
+    private CompletableFuture<ByteBuffer> fetch(IRI id, int chunkIndex, int chunksPerBucket) {
+        Statement query = chunksPerBucket > 0 ? readBucketedChunk(id, chunkIndex / chunksPerBucket, chunkIndex)
+                        : readChunk(id, chunkIndex);
+        return ChunkPublisher.fetch(session, query, cache, ChunkCache.key(id, chunkIndex));
+    }
+
+    private Statement readChunk(IRI id, int chunkIndex) {
+        log.debug("Retrieving stream for chunk: {}", chunkIndex);
+        return readChunkStatement.bind().setInt("chunkIndex", chunkIndex).set("identifier", id, IRI.class);
+    }
+
+    private Statement readBucketedChunk(IRI id, int bucket, int chunkIndex) {
+        log.debug("Retrieving stream for chunk: {} from bucket: {}", chunkIndex, bucket);
+        return readBucketedChunkStatement.bind().setInt("bucket", bucket).setInt("chunkIndex", chunkIndex)
+                        .set("identifier", id, IRI.class);
     }
 }
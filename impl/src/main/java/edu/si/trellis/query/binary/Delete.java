@@ -1,9 +1,15 @@
 package edu.si.trellis.query.binary;
 
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+
 import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Session;
 
 import edu.si.trellis.BinaryWriteConsistency;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 import javax.inject.Inject;
@@ -16,9 +22,15 @@ import org.apache.commons.rdf.api.IRI;
  */
 public class Delete extends BinaryQuery {
 
+    private static final String DELETE_BUCKETS_QUERY = "DELETE FROM " + BUCKET_TABLENAME
+                    + " WHERE identifier = :identifier AND bucket IN :buckets;";
+
+    private final PreparedStatement deleteBucketsStatement;
+
     @Inject
     public Delete(Session session, @BinaryWriteConsistency ConsistencyLevel consistency) {
         super(session, "DELETE FROM " + BINARY_TABLENAME + " WHERE identifier = :identifier;", consistency);
+        this.deleteBucketsStatement = session.prepare(DELETE_BUCKETS_QUERY).setConsistencyLevel(consistency);
     }
 
     /**
@@ -28,4 +40,26 @@ public class Delete extends BinaryQuery {
     public CompletableFuture<Void> execute(IRI id) {
         return executeWrite(preparedStatement().bind().set("identifier", id, IRI.class));
     }
+
+    /**
+     * @param id an {@link IRI} for a binary to delete
+     * @param bucketCount how many buckets of chunks this binary has in the bucketed layout
+     * @return whether and when it has been deleted
+     */
+    public CompletableFuture<Void> execute(IRI id, int bucketCount) {
+        if (bucketCount < 1) return execute(id);
+        List<Integer> buckets = range(0, bucketCount).boxed().collect(toList());
+        return executeWrite(deleteBucketsStatement.bind().set("identifier", id, IRI.class)
+                        .setList("buckets", buckets, Integer.class)).thenCompose(dummy -> execute(id));
+    }
+
+    /**
+     * @param id an {@link IRI} for a binary whose chunks were bucketed
+     * @param bucket one of its buckets, to delete alone
+     * @return whether and when it has been deleted
+     */
+    public CompletableFuture<Void> executeBucket(IRI id, int bucket) {
+        return executeWrite(deleteBucketsStatement.bind().set("identifier", id, IRI.class).setList("buckets",
+                        singletonList(bucket), Integer.class));
+    }
 }
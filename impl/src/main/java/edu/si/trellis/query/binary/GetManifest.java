@@ -0,0 +1,46 @@
+package edu.si.trellis.query.binary;
+
+import static java.util.Objects.requireNonNull;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+
+import edu.si.trellis.BinaryReadConsistency;
+import java.util.concurrent.CompletableFuture;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * A query to retrieve the manifest for a binary: its chunk size and, if it was recorded with one, its chunk count,
+ * total length, and digests, and if its chunks were bucketed, how many are in each bucket, or if it was cut into
+ * content-defined chunks, their hashes and lengths.
+ *
+ * @see RecordManifest
+ */
+public class GetManifest extends BinaryQuery {
+
+    @Inject
+    public GetManifest(Session session, @BinaryReadConsistency ConsistencyLevel consistency) {
+        super(session, "SELECT chunkSize, chunkLength, chunksPerBucket, chunkCount, length, digests, chunkHashes,"
+                        + " chunkLengths, content FROM " + BINARY_TABLENAME
+                        + " WHERE identifier = :identifier LIMIT 1;", consistency);
+    }
+
+    /**
+     * @param id the {@link IRI} of the binary to retrieve
+     * @return a {@link Row} with the manifest for this binary, in which {@code chunkCount} and {@code length} are
+     *         {@code null} and {@code digests} is empty for binaries recorded without a manifest, and in which
+     *         {@code chunkHashes} and {@code chunkLengths} are {@code null} for binaries cut into fixed-length chunks.
+     *         {@code chunkSize} is {@code null} for binaries whose chunks were bucketed, which record their chunk size
+     *         as {@code chunkLength} instead. {@code content} holds the whole content of a binary that was inlined,
+     *         and is {@code null} for any other.
+     */
+    public CompletableFuture<Row> execute(IRI id) {
+        return executeRead(preparedStatement().bind().set("identifier", id, IRI.class))
+                        .thenApply(rows -> requireNonNull(rows.one(),
+                                        () -> "Binary not found under IRI: " + id.getIRIString() + " !"));
+    }
+}
@@ -1,41 +1,140 @@
 package edu.si.trellis.query.binary;
 
+import static edu.si.trellis.ChunkCompression.NONE;
+
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Session;
 
+import edu.si.trellis.BinaryCompression;
 import edu.si.trellis.BinaryWriteConsistency;
+import edu.si.trellis.ChunkBufferPool;
+import edu.si.trellis.ChunkBufferPoolSize;
+import edu.si.trellis.ChunkCompression;
+import edu.si.trellis.ChunkCompression.Compressed;
+import edu.si.trellis.ChunksPerBucket;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 
 import javax.inject.Inject;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.rdf.api.IRI;
 
 /**
- * Insert binary data into a table.
+ * Insert binary data into a table. Each chunk is compressed with the configured {@link ChunkCompression}, unless
+ * compression would not make it smaller, and recorded with the marker of its compression. If a number of chunks per
+ * bucket is configured, chunks are recorded in the bucketed layout, in which each run of that many chunks has its own
+ * partition, so that a large binary is spread across the cluster instead of filling one partition.
  */
 public class Insert extends BinaryQuery implements Executor {
 
+    private static final String INSERT_BUCKETED_QUERY = "INSERT INTO " + BUCKET_TABLENAME
+                    + " (identifier, bucket, chunkIndex, chunk, compression)"
+                    + " VALUES (:identifier, :bucket, :chunkIndex, :chunk, :compression)";
+
+    private final ChunkCompression compression;
+
+    private final int chunksPerBucket;
+
+    private final PreparedStatement insertBucketedStatement;
+
+    private final ChunkBufferPool buffers;
+
     @Inject
-    public Insert(Session session, @BinaryWriteConsistency ConsistencyLevel consistency) {
-        super(session, "INSERT INTO " + BINARY_TABLENAME + " (identifier, chunkSize, chunkIndex, chunk) VALUES "
-                        + "(:identifier, :chunkSize, :chunkIndex, :chunk)", consistency);
+    public Insert(Session session, @BinaryWriteConsistency ConsistencyLevel consistency,
+                    @BinaryCompression ChunkCompression compression, @ChunksPerBucket int chunksPerBucket,
+                    @ChunkBufferPoolSize int bufferPoolSize) {
+        super(session, "INSERT INTO " + BINARY_TABLENAME + " (identifier, chunkSize, chunkIndex, chunk, compression)"
+                        + " VALUES (:identifier, :chunkSize, :chunkIndex, :chunk, :compression)", consistency);
+        if (chunksPerBucket < 0) throw new IllegalArgumentException("Chunks per bucket < 0!");
+        this.compression = compression;
+        this.chunksPerBucket = chunksPerBucket;
+        this.insertBucketedStatement = session.prepare(INSERT_BUCKETED_QUERY).setConsistencyLevel(consistency);
+        this.buffers = new ChunkBufferPool(bufferPoolSize);
+    }
+
+    /**
+     * @return how many chunks are recorded in each bucket, or {@code 0} if chunks are not bucketed
+     */
+    public int chunksPerBucket() {
+        return chunksPerBucket;
     }
 
     /**
      * @param id the {@link IRI} of this binary
      * @param chunkSize size of chunk to use for this binary
      * @param chunkIndex which chunk this is
-     * @param chunk the bytes of this chunk
+     * @param chunk the bytes of this chunk, at most {@code chunkSize} of them, which are fully consumed before this
+     *            method returns
      * @return whether and when it has been inserted
      */
     public CompletableFuture<Void> execute(IRI id, int chunkSize, int chunkIndex, InputStream chunk) {
-        BoundStatement boundStatement = preparedStatement().bind().set("identifier", id, IRI.class)
-                        .setInt("chunkSize", chunkSize).setInt("chunkIndex", chunkIndex)
-                        .set("chunk", chunk, InputStream.class);
-        return executeWrite(boundStatement);
+        // read the chunk straight into a pooled buffer, which is bound without copying
+        byte[] buffer = buffer(chunkSize);
+        final int length;
+        try {
+            length = read(chunk, buffer, chunkSize);
+        } catch (RuntimeException e) {
+            buffers.release(buffer);
+            throw e;
+        }
+        return execute(id, chunkSize, chunkIndex, buffer, length);
+    }
+
+    /**
+     * @param chunkSize size of chunk to use for a binary
+     * @return a pooled buffer of at least {@code chunkSize} bytes in which to assemble a chunk for
+     *         {@link #execute(IRI, int, int, byte[], int)}
+     */
+    public byte[] buffer(int chunkSize) {
+        return buffers.acquire(chunkSize);
+    }
+
+    /**
+     * @param id the {@link IRI} of this binary
+     * @param chunkSize size of chunk to use for this binary
+     * @param chunkIndex which chunk this is
+     * @param buffer a buffer from {@link #buffer(int)} holding the bytes of this chunk, which is taken back into the
+     *            pool once it is no longer needed
+     * @param length how many bytes of {@code buffer}, at most {@code chunkSize}, hold this chunk
+     * @return whether and when it has been inserted
+     */
+    public CompletableFuture<Void> execute(IRI id, int chunkSize, int chunkIndex, byte[] buffer, int length) {
+        Compressed compressed;
+        try {
+            if (length > chunkSize) throw new IllegalArgumentException("Chunk longer than chunk size!");
+            compressed = compression.apply(buffer, length);
+        } catch (RuntimeException e) {
+            buffers.release(buffer);
+            throw e;
+        }
+        BoundStatement boundStatement = chunksPerBucket > 0
+                        ? insertBucketedStatement.bind().setInt("bucket", chunkIndex / chunksPerBucket)
+                        : preparedStatement().bind().setInt("chunkSize", chunkSize);
+        boundStatement.set("identifier", id, IRI.class).setInt("chunkIndex", chunkIndex)
+                        .setBytes("chunk", compressed.bytes())
+                        .setString("compression", compressed.compression().marker());
+        if (compressed.compression() != NONE) {
+            buffers.release(buffer); // the compressed bytes are a copy
+            return executeWrite(boundStatement);
+        }
+        // the driver holds the buffer until the write has completed
+        return executeWrite(boundStatement).whenComplete((dummy, e) -> buffers.release(buffer));
+    }
+
+    private static int read(InputStream chunk, byte[] buffer, int chunkSize) {
+        try {
+            int length = IOUtils.read(chunk, buffer, 0, chunkSize);
+            if (chunk.read() != -1) throw new IllegalArgumentException("Chunk longer than chunk size!");
+            return length;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
@@ -0,0 +1,165 @@
+package edu.si.trellis.query.binary;
+
+import static java.lang.Math.max;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+
+import edu.si.trellis.BinaryReadConsistency;
+import edu.si.trellis.MutableReadConsistency;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * Queries that find binaries no resource refers to: a scan of {@code binarydata} and {@code binarybuckets} partitions
+ * in token order, a check for references to a binary from live resources, Mementos, and multipart uploads in progress,
+ * and a check of when a binary was last written. Likewise, a scan of {@code chunkstore} and a check for references to
+ * a stored chunk find content-defined chunks that no binary refers to.
+ */
+public class OrphanScan extends BinaryQuery {
+
+    private static final String SCAN_BUCKETS_QUERY = "SELECT DISTINCT identifier, bucket, token(identifier, bucket)"
+                    + " AS token FROM " + BUCKET_TABLENAME + " WHERE token(identifier, bucket) > :token LIMIT :limit;";
+
+    private static final String LAST_WRITTEN_QUERY = "SELECT writetime(chunk) AS chunkWritten,"
+                    + " writetime(chunkCount) AS manifestWritten FROM " + BINARY_TABLENAME
+                    + " WHERE identifier = :identifier ORDER BY chunkIndex DESC LIMIT 1;";
+
+    private static final String BUCKET_LAST_WRITTEN_QUERY = "SELECT writetime(chunk) AS chunkWritten FROM "
+                    + BUCKET_TABLENAME + " WHERE identifier = :identifier AND bucket = :bucket"
+                    + " ORDER BY chunkIndex DESC LIMIT 1;";
+
+    private static final String SCAN_CHUNKS_QUERY = "SELECT hash, touched, token(hash) AS token FROM " + CHUNK_TABLENAME
+                    + " WHERE token(hash) > :token LIMIT :limit;";
+
+    private static final String CHUNK_REFERENCE_QUERY = "SELECT identifier FROM " + CHUNK_REFERENCES_TABLENAME
+                    + " WHERE hash = :hash LIMIT 1;";
+
+    private static final String LIVE_REFERENCE_QUERY = "SELECT identifier FROM binaryreferences"
+                    + " WHERE binaryIdentifier = :identifier LIMIT 1;";
+
+    private static final String MEMENTO_REFERENCE_QUERY = "SELECT identifier FROM mementobinaryreferences"
+                    + " WHERE binaryIdentifier = :identifier LIMIT 1;";
+
+    private static final String UPLOAD_QUERY = "SELECT identifier FROM " + UPLOAD_TABLENAME
+                    + " WHERE identifier = :identifier LIMIT 1;";
+
+    private final PreparedStatement scanBucketsStatement, scanChunksStatement, lastWrittenStatement,
+                    bucketLastWrittenStatement, chunkReferenceStatement, liveReferenceStatement,
+                    mementoReferenceStatement, uploadStatement;
+
+    @Inject
+    public OrphanScan(Session session, @BinaryReadConsistency ConsistencyLevel binaryConsistency,
+                    @MutableReadConsistency ConsistencyLevel resourceConsistency) {
+        super(session, "SELECT DISTINCT identifier, token(identifier) AS token FROM " + BINARY_TABLENAME
+                        + " WHERE token(identifier) > :token LIMIT :limit;", binaryConsistency);
+        this.scanBucketsStatement = session.prepare(SCAN_BUCKETS_QUERY).setConsistencyLevel(binaryConsistency);
+        this.scanChunksStatement = session.prepare(SCAN_CHUNKS_QUERY).setConsistencyLevel(binaryConsistency);
+        this.chunkReferenceStatement = session.prepare(CHUNK_REFERENCE_QUERY)
+                        .setConsistencyLevel(binaryConsistency);
+        this.lastWrittenStatement = session.prepare(LAST_WRITTEN_QUERY).setConsistencyLevel(binaryConsistency);
+        this.bucketLastWrittenStatement = session.prepare(BUCKET_LAST_WRITTEN_QUERY)
+                        .setConsistencyLevel(binaryConsistency);
+        this.liveReferenceStatement = session.prepare(LIVE_REFERENCE_QUERY).setConsistencyLevel(resourceConsistency);
+        this.mementoReferenceStatement = session.prepare(MEMENTO_REFERENCE_QUERY)
+                        .setConsistencyLevel(resourceConsistency);
+        this.uploadStatement = session.prepare(UPLOAD_QUERY).setConsistencyLevel(binaryConsistency);
+    }
+
+    /**
+     * @param afterToken the token of the last binary already scanned, or {@link Long#MIN_VALUE} to start a scan
+     * @param limit how many binaries to scan at most
+     * @return rows with the {@code identifier} and {@code token} of the next binaries in {@code binarydata}, in token
+     *         order, of which there are fewer than {@code limit} only at the end of the scan
+     */
+    public CompletableFuture<List<Row>> scan(long afterToken, int limit) {
+        return executeRead(preparedStatement().bind().setLong("token", afterToken).setInt("limit", limit))
+                        .thenApply(rows -> rows.all());
+    }
+
+    /**
+     * @param afterToken the token of the last bucket already scanned, or {@link Long#MIN_VALUE} to start a scan
+     * @param limit how many buckets to scan at most
+     * @return rows with the {@code identifier}, {@code bucket}, and {@code token} of the next buckets in
+     *         {@code binarybuckets}, in token order, of which there are fewer than {@code limit} only at the end of
+     *         the scan
+     */
+    public CompletableFuture<List<Row>> scanBuckets(long afterToken, int limit) {
+        return executeRead(scanBucketsStatement.bind().setLong("token", afterToken).setInt("limit", limit))
+                        .thenApply(rows -> rows.all());
+    }
+
+    /**
+     * @param afterToken the token of the last chunk already scanned, or {@link Long#MIN_VALUE} to start a scan
+     * @param limit how many chunks to scan at most
+     * @return rows with the {@code hash}, {@code touched}, and {@code token} of the next chunks in {@code chunkstore},
+     *         in token order, of which there are fewer than {@code limit} only at the end of the scan
+     */
+    public CompletableFuture<List<Row>> scanChunks(long afterToken, int limit) {
+        return executeRead(scanChunksStatement.bind().setLong("token", afterToken).setInt("limit", limit))
+                        .thenApply(rows -> rows.all());
+    }
+
+    /**
+     * @param id the {@link IRI} of a binary
+     * @return when, in microseconds since the epoch, its last chunk or its manifest was last written, whichever is
+     *         later, or empty if it has no partition in {@code binarydata}. Chunks are written in order, so the last
+     *         chunk is the latest written, and a binary still being recorded is not mistaken for an abandoned one
+     *         however long ago its first chunk was written. Multipart uploads, whose parts land in any order, are
+     *         instead kept by their rows in {@code binaryuploads} until their manifests are written.
+     */
+    public CompletableFuture<OptionalLong> lastWritten(IRI id) {
+        return executeRead(lastWrittenStatement.bind().set("identifier", id, IRI.class)).thenApply(rows -> {
+            Row row = rows.one();
+            if (row == null) return OptionalLong.empty();
+            long chunkWritten = row.isNull("chunkWritten") ? Long.MIN_VALUE : row.getLong("chunkWritten");
+            long manifestWritten = row.isNull("manifestWritten") ? Long.MIN_VALUE : row.getLong("manifestWritten");
+            return OptionalLong.of(max(chunkWritten, manifestWritten));
+        });
+    }
+
+    /**
+     * @param id the {@link IRI} of a binary whose chunks were bucketed
+     * @param bucket one of its buckets
+     * @return when, in microseconds since the epoch, the last chunk in that bucket was last written, or empty if the
+     *         bucket is gone
+     */
+    public CompletableFuture<OptionalLong> lastWritten(IRI id, int bucket) {
+        return executeRead(bucketLastWrittenStatement.bind().set("identifier", id, IRI.class).setInt("bucket", bucket))
+                        .thenApply(rows -> {
+                            Row row = rows.one();
+                            return row == null || row.isNull("chunkWritten") ? OptionalLong.empty()
+                                            : OptionalLong.of(row.getLong("chunkWritten"));
+                        });
+    }
+
+    /**
+     * @param id the {@link IRI} of a binary
+     * @return whether a live resource or a Memento refers to that binary, or a multipart upload of it is in progress
+     */
+    public CompletableFuture<Boolean> referenced(IRI id) {
+        CompletableFuture<Boolean> live = exists(liveReferenceStatement, id),
+                        memento = exists(mementoReferenceStatement, id), upload = exists(uploadStatement, id);
+        return live.thenCombine(memento, Boolean::logicalOr).thenCombine(upload, Boolean::logicalOr);
+    }
+
+    /**
+     * @param hash the content hash of a stored chunk
+     * @return whether any binary refers to that chunk
+     */
+    public CompletableFuture<Boolean> chunkReferenced(ByteBuffer hash) {
+        return executeRead(chunkReferenceStatement.bind().setBytes("hash", hash)).thenApply(rows -> rows.one() != null);
+    }
+
+    private CompletableFuture<Boolean> exists(PreparedStatement statement, IRI id) {
+        return executeRead(statement.bind().set("identifier", id, IRI.class)).thenApply(rows -> rows.one() != null);
+    }
+}
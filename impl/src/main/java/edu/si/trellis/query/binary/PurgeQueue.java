@@ -0,0 +1,123 @@
+package edu.si.trellis.query.binary;
+
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.utils.UUIDs;
+
+import edu.si.trellis.BinaryReadConsistency;
+import edu.si.trellis.BinaryWriteConsistency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * Queries that keep a durable queue of purges of binaries deferred to be carried out in the background. Requests are
+ * kept in a partition for each day on which they were made, in order of request, and expire after
+ * {@value #RETENTION_DAYS} days rather than being deleted, so that draining the queue leaves no tombstones. How far
+ * each day's requests have been carried out is recorded in that day's partition. A request that failed is queued again
+ * as a new request, with a count of the attempts already made.
+ */
+public class PurgeQueue extends BinaryQuery {
+
+    /**
+     * How many days requests are kept.
+     */
+    public static final int RETENTION_DAYS = 14;
+
+    private static final long TTL = DAYS.toSeconds(RETENTION_DAYS);
+
+    private static final String NEXT_QUERY = "SELECT requested, identifier, attempts FROM " + PURGE_TABLENAME
+                    + " WHERE day = :day AND requested > :after AND requested < :before LIMIT :limit;";
+
+    private static final String DRAINED_QUERY = "SELECT drained FROM " + PURGE_TABLENAME
+                    + " WHERE day = :day LIMIT 1;";
+
+    private static final String MARK_DRAINED_QUERY = "UPDATE " + PURGE_TABLENAME + " USING TTL " + TTL
+                    + " SET drained = :drained WHERE day = :day;";
+
+    private final PreparedStatement nextStatement, drainedStatement, markDrainedStatement;
+
+    @Inject
+    public PurgeQueue(Session session, @BinaryWriteConsistency ConsistencyLevel writeConsistency,
+                    @BinaryReadConsistency ConsistencyLevel readConsistency) {
+        super(session, "INSERT INTO " + PURGE_TABLENAME + " (day, requested, identifier, attempts)"
+                        + " VALUES (:day, :requested, :identifier, :attempts) USING TTL " + TTL + ";",
+                        writeConsistency);
+        this.nextStatement = session.prepare(NEXT_QUERY).setConsistencyLevel(readConsistency);
+        this.drainedStatement = session.prepare(DRAINED_QUERY).setConsistencyLevel(readConsistency);
+        this.markDrainedStatement = session.prepare(MARK_DRAINED_QUERY).setConsistencyLevel(writeConsistency);
+    }
+
+    /**
+     * @param time a time in milliseconds since the epoch
+     * @return the day in whose partition requests made at that time are kept
+     */
+    public static int day(long time) {
+        return (int) DAYS.convert(time, MILLISECONDS);
+    }
+
+    /**
+     * @param id the {@link IRI} of a binary to purge
+     * @return whether and when the request has been queued
+     */
+    public CompletableFuture<Void> enqueue(IRI id) {
+        return enqueue(id, 0);
+    }
+
+    /**
+     * @param id the {@link IRI} of a binary to purge
+     * @param attempts how many times purging it has already been attempted and failed
+     * @return whether and when the request has been queued
+     */
+    public CompletableFuture<Void> enqueue(IRI id, int attempts) {
+        UUID requested = UUIDs.timeBased();
+        return executeWrite(preparedStatement().bind().setInt("day", day(UUIDs.unixTimestamp(requested)))
+                        .setUUID("requested", requested).set("identifier", id, IRI.class)
+                        .setInt("attempts", attempts));
+    }
+
+    /**
+     * @param day a day on which requests were made
+     * @param after the last request already carried out from that day, or {@code null} if none has been
+     * @param before a time in milliseconds since the epoch before which to look for requests, so that requests whose
+     *            writes may still be arriving are not passed over
+     * @param limit how many requests to retrieve at most
+     * @return rows with the {@code requested} time, {@code identifier}, and count of earlier {@code attempts} of the
+     *         next requests, in order of request
+     */
+    public CompletableFuture<List<Row>> next(int day, UUID after, long before, int limit) {
+        return executeRead(nextStatement.bind().setInt("day", day)
+                        .setUUID("after", after == null ? UUIDs.startOf(0) : after)
+                        .setUUID("before", UUIDs.startOf(before)).setInt("limit", limit))
+                        .thenApply(rows -> rows.all());
+    }
+
+    /**
+     * @param day a day on which requests were made
+     * @return the last request carried out from that day, or {@code null} if none has been
+     */
+    public CompletableFuture<UUID> drained(int day) {
+        return executeRead(drainedStatement.bind().setInt("day", day)).thenApply(rows -> {
+            Row row = rows.one();
+            return row == null ? null : row.getUUID("drained");
+        });
+    }
+
+    /**
+     * @param day a day on which requests were made
+     * @param drained the last request carried out from that day
+     * @return whether and when that has been recorded
+     */
+    public CompletableFuture<Void> markDrained(int day, UUID drained) {
+        return executeWrite(markDrainedStatement.bind().setInt("day", day).setUUID("drained", drained));
+    }
+}
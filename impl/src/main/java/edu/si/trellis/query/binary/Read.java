@@ -5,12 +5,16 @@ import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.Session;
 
 import edu.si.trellis.BinaryReadConsistency;
+import edu.si.trellis.ChunkCache;
+import edu.si.trellis.ChunkReadAhead;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import javax.inject.Inject;
 
 import org.apache.commons.rdf.api.IRI;
+import org.reactivestreams.Publisher;
 
 /**
  * Reads all bytes from a binary to an {@link InputStream}.
@@ -19,8 +23,10 @@ import org.apache.commons.rdf.api.IRI;
 public class Read extends BinaryReadQuery {
 
     @Inject
-    public Read(Session session, @BinaryReadConsistency ConsistencyLevel consistency) {
-        super(session, "SELECT chunkIndex FROM " + BINARY_TABLENAME + " WHERE identifier = :identifier;", consistency);
+    public Read(Session session, @BinaryReadConsistency ConsistencyLevel consistency,
+                    @ChunkReadAhead int readAhead, ChunkCache cache) {
+        super(session, "SELECT chunkIndex, chunkSize FROM " + BINARY_TABLENAME + " WHERE identifier = :identifier;",
+                        consistency, readAhead, cache);
     }
 
     /**
@@ -34,4 +40,40 @@ public class Read extends BinaryReadQuery {
         BoundStatement bound = preparedStatement().bind().set("identifier", id, IRI.class);
         return retrieve(id, bound);
     }
+
+    /**
+     * @param id the {@link IRI} for a binary recorded with a manifest
+     * @param chunkLength the length of every chunk of this binary but the last
+     * @param chunkCount the number of chunks in this binary
+     * @param chunksPerBucket how many chunks of this binary are in each bucket, or {@code 0} if they are not bucketed
+     * @return An {@link InputStream} of bytes as requested. The {@code skip} method of this {@code InputStream} is
+     *         guaranteed to skip as many bytes as asked.
+     * 
+     * @see BinaryReadQuery#retrieve(IRI, int, int, int, int)
+     */
+    public InputStream execute(IRI id, int chunkLength, int chunkCount, int chunksPerBucket) {
+        return retrieve(id, 0, chunkCount - 1, chunkLength, chunksPerBucket);
+    }
+
+    /**
+     * @param id the {@link IRI} for a binary
+     * @return a {@link Publisher} of the bytes of that binary
+     * 
+     * @see BinaryReadQuery#publish(IRI, com.datastax.driver.core.Statement, long, long)
+     */
+    public Publisher<ByteBuffer> publish(IRI id) {
+        return publish(id, preparedStatement().bind().set("identifier", id, IRI.class), 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param id the {@link IRI} for a binary recorded with a manifest
+     * @param chunkCount the number of chunks in this binary
+     * @param chunksPerBucket how many chunks of this binary are in each bucket, or {@code 0} if they are not bucketed
+     * @return a {@link Publisher} of the bytes of that binary
+     * 
+     * @see BinaryReadQuery#publish(IRI, int, int, int, long, long)
+     */
+    public Publisher<ByteBuffer> publish(IRI id, int chunkCount, int chunksPerBucket) {
+        return publish(id, 0, chunkCount - 1, chunksPerBucket, 0, Long.MAX_VALUE);
+    }
 }
@@ -5,12 +5,19 @@ import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.Session;
 
 import edu.si.trellis.BinaryReadConsistency;
+import edu.si.trellis.ByteRange;
+import edu.si.trellis.ChunkCache;
+import edu.si.trellis.ChunkReadAhead;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import javax.inject.Inject;
 
 import org.apache.commons.rdf.api.IRI;
+import org.reactivestreams.Publisher;
 
 /**
  * Reads a range of bytes from a binary to an {@link InputStream}
@@ -19,10 +26,11 @@ import org.apache.commons.rdf.api.IRI;
 public class ReadRange extends BinaryReadQuery {
 
     @Inject
-    public ReadRange(Session session, @BinaryReadConsistency ConsistencyLevel consistency) {
-        super(session, "SELECT chunkIndex FROM " + BINARY_TABLENAME
+    public ReadRange(Session session, @BinaryReadConsistency ConsistencyLevel consistency,
+                    @ChunkReadAhead int readAhead, ChunkCache cache) {
+        super(session, "SELECT chunkIndex, chunkSize FROM " + BINARY_TABLENAME
                         + " WHERE identifier = :identifier and chunkIndex >= :start and chunkIndex <= :end;",
-                        consistency);
+                        consistency, readAhead, cache);
     }
 
     /**
@@ -31,7 +39,7 @@ public class ReadRange extends BinaryReadQuery {
      * @param last which byte to end reading on
      * @return An {@link InputStream} of bytes as requested. The {@code skip} method of this {@code InputStream} is
      *         guaranteed to skip as many bytes as asked.
-     * 
+     *
      * @see BinaryReadQuery#retrieve(IRI, com.datastax.driver.core.Statement)
      */
     public InputStream execute(IRI id, int first, int last) {
@@ -41,4 +49,69 @@ public class ReadRange extends BinaryReadQuery {
                         .setInt("end", last);
         return retrieve(id, bound);
     }
+
+    /**
+     * @param id the {@link IRI} of a binary recorded with a manifest
+     * @param first which chunk to begin reading on
+     * @param last which chunk to end reading on
+     * @param chunkLength the length of every chunk of this binary but the last
+     * @param chunksPerBucket how many chunks of this binary are in each bucket, or {@code 0} if they are not bucketed
+     * @return An {@link InputStream} of bytes as requested. The {@code skip} method of this {@code InputStream} is
+     *         guaranteed to skip as many bytes as asked.
+     *
+     * @see BinaryReadQuery#retrieve(IRI, int, int, int, int)
+     */
+    public InputStream execute(IRI id, int first, int last, int chunkLength, int chunksPerBucket) {
+        return retrieve(id, first, last, chunkLength, chunksPerBucket);
+    }
+
+    /**
+     * @param id the {@link IRI} of a binary to read
+     * @param first which chunk to begin reading on
+     * @param last which chunk to end reading on
+     * @param skip how many bytes at the start of the first chunk to leave out
+     * @param length how many bytes to publish at most
+     * @return a {@link Publisher} of bytes as requested
+     *
+     * @see BinaryReadQuery#publish(IRI, com.datastax.driver.core.Statement, long, long)
+     */
+    public Publisher<ByteBuffer> publish(IRI id, int first, int last, long skip, long length) {
+        BoundStatement bound = preparedStatement().bind()
+                        .set("identifier", id, IRI.class)
+                        .setInt("start", first)
+                        .setInt("end", last);
+        return publish(id, bound, skip, length);
+    }
+
+    /**
+     * @param id the {@link IRI} of a binary recorded with a manifest
+     * @param first which chunk to begin reading on
+     * @param last which chunk to end reading on
+     * @param chunksPerBucket how many chunks of this binary are in each bucket, or {@code 0} if they are not bucketed
+     * @param skip how many bytes at the start of the first chunk to leave out
+     * @param length how many bytes to publish at most
+     * @return a {@link Publisher} of bytes as requested
+     *
+     * @see BinaryReadQuery#publish(IRI, int, int, int, long, long)
+     */
+    @Override
+    public Publisher<ByteBuffer> publish(IRI id, int first, int last, int chunksPerBucket, long skip, long length) {
+        return super.publish(id, first, last, chunksPerBucket, skip, length);
+    }
+
+    /**
+     * @param id the {@link IRI} of a binary recorded with a manifest
+     * @param ranges the ranges to read, in any order and possibly overlapping
+     * @param size the length in bytes of this binary
+     * @param chunkLength the length of every chunk of this binary but the last
+     * @param chunksPerBucket how many chunks of this binary are in each bucket, or {@code 0} if they are not bucketed
+     * @return for each range in turn, its bytes as buffers in order
+     *
+     * @see BinaryReadQuery#readRanges(IRI, List, long, int, int)
+     */
+    @Override
+    public CompletableFuture<List<List<ByteBuffer>>> readRanges(IRI id, List<ByteRange> ranges, long size,
+                    int chunkLength, int chunksPerBucket) {
+        return super.readRanges(id, ranges, size, chunkLength, chunksPerBucket);
+    }
 }
@@ -0,0 +1,91 @@
+package edu.si.trellis.query.binary;
+
+import static java.util.Arrays.binarySearch;
+import static java.util.stream.Collectors.toList;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+import edu.si.trellis.BinaryReadConsistency;
+import edu.si.trellis.ByteRange;
+import edu.si.trellis.ChunkCache;
+import edu.si.trellis.ChunkPublisher;
+import edu.si.trellis.ChunkRanges;
+import edu.si.trellis.ChunkReadAhead;
+import edu.si.trellis.PrefetchingChunkInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+import java.util.function.LongToIntFunction;
+
+import javax.inject.Inject;
+
+import org.reactivestreams.Publisher;
+
+/**
+ * Reads content-addressed chunks, shared among binaries, to an {@link InputStream} or {@link Publisher}.
+ *
+ * @see StoredChunks
+ */
+public class ReadStoredChunks extends BinaryQuery {
+
+    private final int readAhead;
+
+    private final ChunkCache cache;
+
+    @Inject
+    public ReadStoredChunks(Session session, @BinaryReadConsistency ConsistencyLevel consistency,
+                    @ChunkReadAhead int readAhead, ChunkCache cache) {
+        super(session, "SELECT chunk, compression FROM " + CHUNK_TABLENAME + " WHERE hash = :hash;", consistency);
+        this.readAhead = readAhead;
+        this.cache = cache;
+    }
+
+    /**
+     * @param hashes the content hashes of the chunks to read, in order
+     * @param chunkLengths the lengths of those chunks, in order
+     * @return An {@link InputStream} of the bytes of those chunks. The {@code skip} method of this {@code InputStream}
+     *         is guaranteed to skip as many bytes as asked.
+     */
+    public InputStream execute(List<ByteBuffer> hashes, int[] chunkLengths) {
+        List<Statement> chunkQueries = hashes.stream().map(hash -> preparedStatement().bind().setBytes("hash", hash))
+                        .collect(toList());
+        List<String> keys = hashes.stream().map(ChunkCache::key).collect(toList());
+        return new PrefetchingChunkInputStream(session, chunkQueries, chunkLengths, readAhead, cache, keys);
+    }
+
+    /**
+     * @param hashes the content hashes of the chunks to read, in order
+     * @param skip how many bytes at the start of the first chunk to leave out
+     * @param length how many bytes to publish at most
+     * @return a {@link Publisher} of the bytes of those chunks
+     */
+    public Publisher<ByteBuffer> publish(List<ByteBuffer> hashes, long skip, long length) {
+        return new ChunkPublisher(hashes.size(), i -> ChunkPublisher.fetch(session,
+                        preparedStatement().bind().setBytes("hash", hashes.get(i)), cache,
+                        ChunkCache.key(hashes.get(i))), readAhead, skip, length);
+    }
+
+    /**
+     * @param hashes the content hashes of the chunks of a binary, in order
+     * @param chunkOffsets the offset of the first byte of each of those chunks in the binary, in order
+     * @param size the length in bytes of the binary
+     * @param ranges the ranges to read, in any order and possibly overlapping
+     * @return for each range in turn, its bytes as buffers in order
+     * @see ChunkRanges
+     */
+    public CompletableFuture<List<List<ByteBuffer>>> readRanges(List<ByteBuffer> hashes, long[] chunkOffsets,
+                    long size, List<ByteRange> ranges) {
+        IntFunction<CompletableFuture<ByteBuffer>> fetch = i -> ChunkPublisher.fetch(session,
+                        preparedStatement().bind().setBytes("hash", hashes.get(i)), cache,
+                        ChunkCache.key(hashes.get(i)));
+        LongToIntFunction chunkAt = position -> {
+            int index = binarySearch(chunkOffsets, position);
+            return index >= 0 ? index : -index - 2;
+        };
+        return new ChunkRanges(fetch, chunkAt, i -> chunkOffsets[i], size, readAhead + 1).read(ranges);
+    }
+}
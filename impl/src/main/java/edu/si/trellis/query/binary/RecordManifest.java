@@ -0,0 +1,106 @@
+package edu.si.trellis.query.binary;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+
+import edu.si.trellis.BinaryWriteConsistency;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * A query that records the manifest for a binary once all of its chunks have been written. The manifest is kept in
+ * static columns of the binary's partition, so that it can be read with the chunk size in a single query. The manifest
+ * of a binary whose chunks were bucketed records how many chunks are in each bucket, and the manifest of a binary cut
+ * into content-defined chunks lists the hashes and lengths of its chunks, which are stored apart from it. A binary
+ * small enough to be inlined is recorded whole in its manifest, with no chunks.
+ *
+ * @see GetManifest
+ * @see StoredChunks
+ */
+public class RecordManifest extends BinaryQuery {
+
+    private static final String RECORD_CHUNK_HASHES_QUERY = "UPDATE " + BINARY_TABLENAME
+                    + " SET chunkHashes = :chunkHashes, chunkLengths = :chunkLengths, chunkCount = :chunkCount,"
+                    + " length = :length, digests = :digests WHERE identifier = :identifier;";
+
+    private static final String RECORD_INLINE_QUERY = "UPDATE " + BINARY_TABLENAME
+                    + " SET content = :content, chunkCount = 0, length = :length, digests = :digests"
+                    + " WHERE identifier = :identifier;";
+
+    private final PreparedStatement recordChunkHashesStatement;
+
+    private final PreparedStatement recordInlineStatement;
+
+    @Inject
+    public RecordManifest(Session session, @BinaryWriteConsistency ConsistencyLevel consistency) {
+        super(session, "UPDATE " + BINARY_TABLENAME + " SET chunkLength = :chunkLength,"
+                        + " chunksPerBucket = :chunksPerBucket, chunkCount = :chunkCount, length = :length,"
+                        + " digests = :digests WHERE identifier = :identifier;", consistency);
+        this.recordChunkHashesStatement = session.prepare(RECORD_CHUNK_HASHES_QUERY)
+                        .setConsistencyLevel(consistency);
+        this.recordInlineStatement = session.prepare(RECORD_INLINE_QUERY).setConsistencyLevel(consistency);
+    }
+
+    /**
+     * @param id the {@link IRI} of this binary
+     * @param chunkLength the length of every chunk of this binary but the last
+     * @param chunksPerBucket how many chunks were written in each bucket, or {@code 0} if they were not bucketed
+     * @param chunkCount how many chunks were written for this binary
+     * @param size the total length in bytes of this binary
+     * @param digests digests of this binary, keyed by algorithm name
+     * @return whether and when it has been recorded
+     */
+    public CompletableFuture<Void> execute(IRI id, int chunkLength, int chunksPerBucket, int chunkCount, long size,
+                    Map<String, ByteBuffer> digests) {
+        BoundStatement boundStatement = preparedStatement().bind()
+                        .set("identifier", id, IRI.class)
+                        .setInt("chunkLength", chunkLength)
+                        .setInt("chunkCount", chunkCount)
+                        .setLong("length", size)
+                        .setMap("digests", digests, String.class, ByteBuffer.class);
+        // leave the bucketing unset for unbucketed binaries, rather than writing a tombstone
+        if (chunksPerBucket > 0) boundStatement.setInt("chunksPerBucket", chunksPerBucket);
+        return executeWrite(boundStatement);
+    }
+
+    /**
+     * @param id the {@link IRI} of this binary
+     * @param chunkHashes the content hashes of the chunks of this binary, in order
+     * @param chunkLengths the lengths of the chunks of this binary, in order
+     * @param size the total length in bytes of this binary
+     * @param digests digests of this binary, keyed by algorithm name
+     * @return whether and when it has been recorded
+     */
+    public CompletableFuture<Void> execute(IRI id, List<ByteBuffer> chunkHashes, List<Integer> chunkLengths,
+                    long size, Map<String, ByteBuffer> digests) {
+        return executeWrite(recordChunkHashesStatement.bind()
+                        .set("identifier", id, IRI.class)
+                        .setList("chunkHashes", chunkHashes, ByteBuffer.class)
+                        .setList("chunkLengths", chunkLengths, Integer.class)
+                        .setInt("chunkCount", chunkHashes.size())
+                        .setLong("length", size)
+                        .setMap("digests", digests, String.class, ByteBuffer.class));
+    }
+
+    /**
+     * @param id the {@link IRI} of this binary
+     * @param content the whole content of this binary
+     * @param digests digests of this binary, keyed by algorithm name
+     * @return whether and when it has been recorded
+     */
+    public CompletableFuture<Void> execute(IRI id, ByteBuffer content, Map<String, ByteBuffer> digests) {
+        return executeWrite(recordInlineStatement.bind()
+                        .set("identifier", id, IRI.class)
+                        .setBytes("content", content)
+                        .setLong("length", content.remaining())
+                        .setMap("digests", digests, String.class, ByteBuffer.class));
+    }
+}
@@ -0,0 +1,127 @@
+package edu.si.trellis.query.binary;
+
+import static com.datastax.driver.core.ConsistencyLevel.SERIAL;
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Session;
+
+import edu.si.trellis.BinaryCompression;
+import edu.si.trellis.BinaryWriteConsistency;
+import edu.si.trellis.ChunkCompression;
+import edu.si.trellis.ChunkCompression.Compressed;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * Queries that store content-addressed chunks, shared among binaries, and record which binaries refer to them. A chunk
+ * is written only if no chunk with the same hash has been stored already. A reference is a row naming the chunk and
+ * the binary, so that taking or releasing it twice does no harm, and it is recorded before the chunk is looked for,
+ * so that a chunk with no references is held by no binary and may be reclaimed.
+ * <p>
+ * Once its reference is recorded, each store marks the chunk as touched, which is also how it finds whether the chunk
+ * is stored. A chunk is reclaimed only if it has not been touched since before it was seen to have no references, so
+ * that a binary taking it up again while it is being reclaimed either stops the reclaim or finds it gone and writes it
+ * afresh.
+ * </p>
+ * <p>
+ * That holds only if the touch, the write of a chunk, and the reclaim are ordered with each other, so all three are
+ * lightweight transactions run at {@link ConsistencyLevel#SERIAL}, whatever {@link BinaryWriteConsistency} is
+ * configured. A plain write or read could be reordered with the reclaim, letting a store find a chunk that the reclaim
+ * then deletes.
+ * </p>
+ */
+public class StoredChunks extends BinaryQuery {
+
+    private static final String REFERENCE_QUERY = "INSERT INTO " + CHUNK_REFERENCES_TABLENAME
+                    + " (hash, identifier) VALUES (:hash, :identifier);";
+
+    private static final String RELEASE_QUERY = "DELETE FROM " + CHUNK_REFERENCES_TABLENAME
+                    + " WHERE hash = :hash AND identifier = :identifier;";
+
+    private static final String TOUCH_QUERY = "UPDATE " + CHUNK_TABLENAME
+                    + " SET touched = now() WHERE hash = :hash IF EXISTS;";
+
+    private static final String RECLAIM_QUERY = "DELETE FROM " + CHUNK_TABLENAME
+                    + " WHERE hash = :hash IF touched = :touched;";
+
+    private final PreparedStatement referenceStatement, releaseStatement, touchStatement, reclaimStatement;
+
+    private final ChunkCompression compression;
+
+    @Inject
+    public StoredChunks(Session session, @BinaryWriteConsistency ConsistencyLevel consistency,
+                    @BinaryCompression ChunkCompression compression) {
+        super(session, "INSERT INTO " + CHUNK_TABLENAME + " (hash, chunk, compression)"
+                        + " VALUES (:hash, :chunk, :compression) IF NOT EXISTS;", consistency);
+        preparedStatement().setSerialConsistencyLevel(SERIAL);
+        this.referenceStatement = session.prepare(REFERENCE_QUERY).setConsistencyLevel(consistency);
+        this.releaseStatement = session.prepare(RELEASE_QUERY).setConsistencyLevel(consistency);
+        this.touchStatement = session.prepare(TOUCH_QUERY).setConsistencyLevel(consistency)
+                        .setSerialConsistencyLevel(SERIAL);
+        this.reclaimStatement = session.prepare(RECLAIM_QUERY).setConsistencyLevel(consistency)
+                        .setSerialConsistencyLevel(SERIAL);
+        this.compression = compression;
+    }
+
+    /**
+     * If this fails, the reference may have been recorded, and should be released.
+     *
+     * @param id the {@link IRI} of the binary that refers to a chunk
+     * @param hash the content hash of that chunk
+     * @param chunk the bytes of that chunk
+     * @return whether and when the chunk has been referenced and, if it was not already stored, written
+     */
+    public CompletableFuture<Void> store(IRI id, ByteBuffer hash, byte[] chunk) {
+        return executeWrite(referenceStatement.bind().setBytes("hash", hash).set("identifier", id, IRI.class))
+                        // a conditional touch, which is applied only if the chunk is stored
+                        .thenCompose(dummy -> executeRead(touchStatement.bind().setBytes("hash", hash)))
+                        .thenCompose(touched -> touched.wasApplied() ? completedFuture(null) : write(hash, chunk));
+    }
+
+    /**
+     * A concurrent store may write the same chunk first, in which case this write is not applied, to the same effect.
+     */
+
+    private CompletableFuture<Void> write(ByteBuffer hash, byte[] chunk) {
+        Compressed compressed = compression.apply(chunk, chunk.length);
+        return executeWrite(preparedStatement().bind().setBytes("hash", hash).setBytes("chunk", compressed.bytes())
+                        .setString("compression", compressed.compression().marker()));
+    }
+
+    /**
+     * Releasing a reference that is not held does nothing, so a release may safely be repeated.
+     *
+     * @param id the {@link IRI} of a binary
+     * @param hashes the content hashes of chunks to which that binary refers, each listed any number of times
+     * @return whether and when the references have been released
+     */
+    public CompletableFuture<Void> release(IRI id, List<ByteBuffer> hashes) {
+        return allOf(new LinkedHashSet<>(hashes).stream()
+                        .map(hash -> executeWrite(releaseStatement.bind().setBytes("hash", hash).set("identifier", id,
+                                        IRI.class)))
+                        .toArray(CompletableFuture<?>[]::new));
+    }
+
+    /**
+     * @param hash the content hash of a stored chunk that was seen to have no references
+     * @param touched when the chunk was last touched, as seen then, or {@code null} if it never was
+     * @return whether the chunk was deleted, which it is not if it has been touched since
+     */
+    public CompletableFuture<Boolean> reclaim(ByteBuffer hash, UUID touched) {
+        // a conditional delete, whose result tells whether it was applied
+        return executeRead(reclaimStatement.bind().setBytes("hash", hash).setUUID("touched", touched))
+                        .thenApply(ResultSet::wasApplied);
+    }
+}
@@ -0,0 +1,102 @@
+package edu.si.trellis.query.binary;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+
+import edu.si.trellis.BinaryReadConsistency;
+import edu.si.trellis.BinaryWriteConsistency;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.inject.Inject;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * Queries that track a multipart upload of a binary: the layout fixed when it was started, and its parts. Each part is
+ * written as a run of chunks at the chunk indexes its number fixes, so that parts may be written in any order and
+ * written again, and a part counts as landed only once its length has been recorded here.
+ */
+public class UploadParts extends BinaryQuery {
+
+    private static final String START_QUERY = "INSERT INTO " + UPLOAD_TABLENAME
+                    + " (identifier, chunkLength, chunksPerPart, chunksPerBucket)"
+                    + " VALUES (:identifier, :chunkLength, :chunksPerPart, :chunksPerBucket);";
+
+    private static final String BEGIN_PART_QUERY = "INSERT INTO " + UPLOAD_TABLENAME
+                    + " (identifier, part) VALUES (:identifier, :part);";
+
+    private static final String GET_QUERY = "SELECT chunkLength, chunksPerPart, chunksPerBucket, part, length,"
+                    + " chunkCount FROM " + UPLOAD_TABLENAME + " WHERE identifier = :identifier;";
+
+    private static final String END_QUERY = "DELETE FROM " + UPLOAD_TABLENAME + " WHERE identifier = :identifier;";
+
+    private final PreparedStatement startStatement, beginPartStatement, getStatement, endStatement;
+
+    @Inject
+    public UploadParts(Session session, @BinaryWriteConsistency ConsistencyLevel writeConsistency,
+                    @BinaryReadConsistency ConsistencyLevel readConsistency) {
+        super(session, "INSERT INTO " + UPLOAD_TABLENAME + " (identifier, part, length, chunkCount)"
+                        + " VALUES (:identifier, :part, :length, :chunkCount);", writeConsistency);
+        this.startStatement = session.prepare(START_QUERY).setConsistencyLevel(writeConsistency);
+        this.beginPartStatement = session.prepare(BEGIN_PART_QUERY).setConsistencyLevel(writeConsistency);
+        this.getStatement = session.prepare(GET_QUERY).setConsistencyLevel(readConsistency);
+        this.endStatement = session.prepare(END_QUERY).setConsistencyLevel(writeConsistency);
+    }
+
+    /**
+     * @param id the {@link IRI} of the binary to upload
+     * @param chunkLength the length of chunk into which its parts are cut
+     * @param chunksPerPart how many chunks make up each part but the last
+     * @param chunksPerBucket how many chunks are in each bucket, or {@code 0} if they are not bucketed
+     * @return whether and when the upload has been started
+     */
+    public CompletableFuture<Void> start(IRI id, int chunkLength, int chunksPerPart, int chunksPerBucket) {
+        return executeWrite(startStatement.bind().set("identifier", id, IRI.class).setInt("chunkLength", chunkLength)
+                        .setInt("chunksPerPart", chunksPerPart).setInt("chunksPerBucket", chunksPerBucket));
+    }
+
+    /**
+     * Notes that a part is being written, so that its chunks are purged if the upload is abandoned.
+     * 
+     * @param id the {@link IRI} of a binary being uploaded
+     * @param part the number of the part, counting from zero
+     * @return whether and when the part has been noted
+     */
+    public CompletableFuture<Void> begin(IRI id, int part) {
+        return executeWrite(beginPartStatement.bind().set("identifier", id, IRI.class).setInt("part", part));
+    }
+
+    /**
+     * @param id the {@link IRI} of a binary being uploaded
+     * @param part the number of a part whose chunks have all been written, counting from zero
+     * @param length the length in bytes of that part
+     * @param chunkCount how many chunks that part was cut into
+     * @return whether and when the part has been recorded as landed
+     */
+    public CompletableFuture<Void> record(IRI id, int part, long length, int chunkCount) {
+        return executeWrite(preparedStatement().bind().set("identifier", id, IRI.class).setInt("part", part)
+                        .setLong("length", length).setInt("chunkCount", chunkCount));
+    }
+
+    /**
+     * @param id the {@link IRI} of a binary being uploaded
+     * @return a {@link Row} for each part begun, in order of part number, in which {@code length} and
+     *         {@code chunkCount} are {@code null} for parts that have not landed, and each of which holds the layout of
+     *         the upload. If no part has been begun, the one row holds only the layout, with a {@code null} part. If
+     *         no upload was started, there are no rows.
+     */
+    public CompletableFuture<List<Row>> get(IRI id) {
+        return executeRead(getStatement.bind().set("identifier", id, IRI.class)).thenApply(rows -> rows.all());
+    }
+
+    /**
+     * @param id the {@link IRI} of a binary whose upload has been completed or abandoned
+     * @return whether and when the tracking of that upload has been removed
+     */
+    public CompletableFuture<Void> end(IRI id) {
+        return executeWrite(endStatement.bind().set("identifier", id, IRI.class));
+    }
+}
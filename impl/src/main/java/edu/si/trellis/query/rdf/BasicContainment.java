@@ -5,6 +5,7 @@ import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Session;
 
 import edu.si.trellis.MutableReadConsistency;
+import java.util.concurrent.CompletableFuture;
 
 import javax.inject.Inject;
 
@@ -23,9 +24,9 @@ public class BasicContainment extends ResourceQuery {
 
     /**
      * @param id the {@link IRI} of the container
-     * @return a {@link ResultSet} of the resources contained in {@code id}
+     * @return a {@link ResultSet} of the resources contained in {@code id}, once the query has returned
      */
-    public ResultSet execute(IRI id) {
-        return executeSyncRead(preparedStatement().bind().set("container", id, IRI.class));
+    public CompletableFuture<ResultSet> execute(IRI id) {
+        return executeRead(preparedStatement().bind().set("container", id, IRI.class));
     }
 }
@@ -6,6 +6,7 @@ import com.datastax.driver.core.Session;
 import edu.si.trellis.MutableReadConsistency;
 
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import javax.inject.Inject;
@@ -28,9 +29,9 @@ public class MementoMutableRetrieve extends ResourceQuery {
     /**
      * @param id the {@link IRI} of the Memento, the RDF of which is to be retrieved
      * @param time the time for which this Memento must be valid
-     * @return the RDF retrieved
+     * @return the RDF retrieved, once the query has returned
      */
-    public Stream<Quad> execute(IRI id, Instant time) {
+    public CompletableFuture<Stream<Quad>> execute(IRI id, Instant time) {
         return quads(preparedStatement().bind()
                         .set("time", time, Instant.class)
                         .set("identifier", id, IRI.class));
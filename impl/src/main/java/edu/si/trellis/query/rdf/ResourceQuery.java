@@ -1,17 +1,25 @@
 package edu.si.trellis.query.rdf;
 
+import static java.util.Collections.emptyIterator;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+import static java.util.Spliterators.spliteratorUnknownSize;
+
 import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
 
+import edu.si.trellis.DatasetFormat;
 import edu.si.trellis.query.CassandraQuery;
 
-import java.util.Spliterator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
-import org.apache.commons.rdf.api.Dataset;
 import org.apache.commons.rdf.api.Quad;
 
 /**
@@ -31,9 +39,38 @@ abstract class ResourceQuery extends CassandraQuery {
         super(session, queryString, consistency);
     }
 
-    protected Stream<Quad> quads(final Statement boundStatement) {
-        final Spliterator<Row> rows = executeSyncRead(boundStatement).spliterator();
-        Stream<Dataset> datasets = StreamSupport.stream(rows, false).map(r -> r.get("quads", Dataset.class));
-        return datasets.flatMap(Dataset::stream);
+    /**
+     * @param boundStatement a statement selecting {@code quads}
+     * @return the quads of the rows selected, in order, once the query has returned
+     */
+    protected CompletableFuture<Stream<Quad>> quads(final Statement boundStatement) {
+        return executeRead(boundStatement).thenApply(ResourceQuery::decode);
+    }
+
+    /**
+     * Quads are decoded straight from the bytes of each row as they are consumed, rather than each row being built into
+     * a dataset first. The rows are chained by hand, since {@link Stream#flatMap} would decode all of a row's quads
+     * at once for a consumer that pulls them one at a time.
+     */
+    private static Stream<Quad> decode(ResultSet results) {
+        final Iterator<Row> rows = results.iterator();
+        Iterator<Quad> quads = new Iterator<Quad>() {
+
+            private Iterator<Quad> row = emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!row.hasNext() && rows.hasNext())
+                    row = DatasetFormat.decode(rows.next().getBytesUnsafe("quads"));
+                return row.hasNext();
+            }
+
+            @Override
+            public Quad next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return row.next();
+            }
+        };
+        return StreamSupport.stream(spliteratorUnknownSize(quads, ORDERED | NONNULL), false);
     }
 }
@@ -7,8 +7,10 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import edu.si.trellis.ByteBufferInputStream;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.junit.jupiter.api.Test;
 
@@ -74,4 +76,15 @@ class ByteBufferInputStreamTest {
         for (int i : testByteArray)
             assertEquals(i, stream.read());
     }
+
+    @Test
+    void transferToWorks() throws IOException {
+        ByteArrayOutputStream arrayBacked = new ByteArrayOutputStream(), notArrayBacked = new ByteArrayOutputStream();
+        ByteBufferInputStream stream = new ByteBufferInputStream(ByteBuffer.wrap(testByteArray));
+        stream.skip(1);
+        assertEquals(6, stream.transferTo(arrayBacked));
+        assertArrayEquals(Arrays.copyOfRange(testByteArray, 1, testByteArray.length), arrayBacked.toByteArray());
+        assertEquals(7, new ByteBufferInputStream(testData()).transferTo(notArrayBacked));
+        assertArrayEquals(testByteArray, notArrayBacked.toByteArray());
+    }
 }
@@ -4,7 +4,9 @@ import static edu.si.trellis.CassandraBinaryService.CASSANDRA_CHUNK_HEADER_NAME;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.UUID.randomUUID;
 import static org.apache.commons.io.IOUtils.contentEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -13,16 +15,19 @@ import static org.trellisldp.api.BinaryMetadata.builder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.rdf.api.IRI;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
@@ -42,6 +47,10 @@ class CassandraBinaryServiceIT extends CassandraServiceIT {
             connection.binaryService.setContent(builder(id).build(), testInput).join();
         }
 
+        assertEquals(content.length(), (long) connection.binaryService.getSize(id).join().get(), "Wrong size!");
+        assertArrayEquals(DigestUtils.sha256(content), connection.binaryService.getDigest(id, "SHA-256").join().get(),
+                        "Wrong digest!");
+
         try (InputStream got = connection.binaryService.get(id).join().getContent().toCompletableFuture().join()) {
             String reply = IOUtils.toString(got, UTF_8);
             assertEquals(content, reply);
@@ -87,6 +96,105 @@ class CassandraBinaryServiceIT extends CassandraServiceIT {
         }
     }
 
+    @Test
+    void setAndGetContentAddressedContent() throws IOException {
+        IRI id = createIRI();
+        final String md5sum = "89c4b71c69f59cde963ce8aa9dbe1617";
+        Map<String, List<String>> hints = ImmutableMap.of(CASSANDRA_CHUNK_HEADER_NAME, ImmutableList.of("65536"));
+        try (FileInputStream testData = new FileInputStream("src/test/resources/test.jpg")) {
+            connection.contentAddressedBinaryService.setContent(builder(id).hints(hints).build(), testData).join();
+        }
+
+        Binary binary = connection.contentAddressedBinaryService.get(id).join();
+        try (InputStream content = binary.getContent().toCompletableFuture().join()) {
+            assertEquals(md5sum, DigestUtils.md5Hex(content), "Didn't retrieve correct content!");
+        }
+        try (InputStream testData = new FileInputStream("src/test/resources/test.jpg");
+             InputStream content = binary.getContent(100_000, 200_000).toCompletableFuture().join()) {
+            IOUtils.skipFully(testData, 100_000);
+            assertTrue(contentEquals(new BoundedInputStream(testData, 100_001), content), "Wrong bytes in range!");
+        }
+
+        connection.contentAddressedBinaryService.purgeContent(id).join();
+    }
+
+    @Test
+    void uploadContentInParts() throws IOException {
+        IRI id = createIRI();
+        byte[] content = new byte[3 * 4096 + 100];
+        for (int i = 0; i < content.length; i++) content[i] = (byte) i;
+        Map<String, List<String>> hints = ImmutableMap.of(CASSANDRA_CHUNK_HEADER_NAME, ImmutableList.of("4096"));
+        MultipartUploads uploads = connection.multipartUploads;
+        long partLength = uploads.startUpload(builder(id).hints(hints).build(), 4096).join();
+        assertEquals(4096, partLength, "Wrong part length!");
+        // send the parts out of order and in parallel
+        CompletableFuture.allOf(
+                        uploads.uploadPart(id, 3, new ByteArrayInputStream(content, 3 * 4096, 100)),
+                        uploads.uploadPart(id, 1, new ByteArrayInputStream(content, 4096, 4096)),
+                        uploads.uploadPart(id, 0, new ByteArrayInputStream(content, 0, 4096)))
+                        .join();
+        assertEquals(ImmutableList.of(0, 1, 3), ImmutableList.copyOf(uploads.uploadedParts(id).join().keySet()),
+                        "Wrong parts landed!");
+        assertThrows(CompletionException.class, uploads.completeUpload(id)::join,
+                        "Upload should not complete with a part missing!");
+
+        uploads.uploadPart(id, 2, new ByteArrayInputStream(content, 2 * 4096, 4096)).join();
+        uploads.completeUpload(id).join();
+
+        assertEquals(content.length, (long) connection.binaryService.getSize(id).join().get(), "Wrong size!");
+        try (InputStream got = connection.binaryService.get(id).join().getContent().toCompletableFuture().join()) {
+            assertArrayEquals(content, IOUtils.toByteArray(got), "Didn't retrieve correct content!");
+        }
+        connection.binaryService.purgeContent(id).join();
+    }
+
+    @Test
+    void setAndGetInlineContent() throws IOException {
+        IRI id = createIRI();
+        byte[] small = "A small sidecar file".getBytes(UTF_8);
+        connection.inlineBinaryService.setContent(builder(id).build(), new ByteArrayInputStream(small)).join();
+
+        Binary binary = connection.inlineBinaryService.get(id).join();
+        assertTrue(binary instanceof InlineBinary, "Small binary should have been inlined!");
+        try (InputStream content = binary.getContent().toCompletableFuture().join()) {
+            assertArrayEquals(small, IOUtils.toByteArray(content), "Didn't retrieve correct content!");
+        }
+        try (InputStream content = binary.getContent(2, 6).toCompletableFuture().join()) {
+            assertEquals("small", IOUtils.toString(content, UTF_8), "Wrong bytes in range!");
+        }
+        assertEquals(small.length, (long) connection.inlineBinaryService.getSize(id).join().get(), "Wrong size!");
+
+        connection.inlineBinaryService.purgeContent(id).join();
+        CompletionException e = assertThrows(CompletionException.class,
+                        () -> connection.inlineBinaryService.get(id).join());
+        assertTrue(e.getCause() instanceof NullPointerException, "Purged binary should not be found!");
+    }
+
+    @Test
+    void setAndGetBucketedContent() throws IOException {
+        IRI id = createIRI();
+        final String md5sum = "89c4b71c69f59cde963ce8aa9dbe1617";
+        Map<String, List<String>> hints = ImmutableMap.of(CASSANDRA_CHUNK_HEADER_NAME, ImmutableList.of("65536"));
+        try (FileInputStream testData = new FileInputStream("src/test/resources/test.jpg")) {
+            connection.bucketedBinaryService.setContent(builder(id).hints(hints).build(), testData).join();
+        }
+
+        Binary binary = connection.bucketedBinaryService.get(id).join();
+        try (InputStream content = binary.getContent().toCompletableFuture().join()) {
+            assertEquals(md5sum, DigestUtils.md5Hex(content), "Didn't retrieve correct content!");
+        }
+        try (InputStream testData = new FileInputStream("src/test/resources/test.jpg");
+             InputStream content = binary.getContent(300_000, 600_000).toCompletableFuture().join()) {
+            IOUtils.skipFully(testData, 300_000);
+            assertTrue(contentEquals(new BoundedInputStream(testData, 300_001), content), "Wrong bytes in range!");
+        }
+
+        connection.bucketedBinaryService.purgeContent(id).join();
+        CompletionException e = assertThrows(CompletionException.class,
+                        () -> connection.bucketedBinaryService.get(id).join());
+        assertTrue(e.getCause() instanceof NullPointerException, "Purged binary should not be found!");
+    }
+
     @Test
     void varyChunkSizeFromDefault() throws IOException, InterruptedException, ExecutionException {
         IRI id = createIRI();
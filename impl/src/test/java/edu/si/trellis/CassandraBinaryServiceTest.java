@@ -0,0 +1,505 @@
+package edu.si.trellis;
+
+import static edu.si.trellis.ChunkSizePolicy.CONTENT_LENGTH_HINT;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.trellisldp.api.BinaryMetadata.builder;
+
+import com.datastax.driver.core.Row;
+
+import edu.si.trellis.query.binary.Delete;
+import edu.si.trellis.query.binary.GetManifest;
+import edu.si.trellis.query.binary.Insert;
+import edu.si.trellis.query.binary.Read;
+import edu.si.trellis.query.binary.ReadRange;
+import edu.si.trellis.query.binary.ReadStoredChunks;
+import edu.si.trellis.query.binary.RecordManifest;
+import edu.si.trellis.query.binary.StoredChunks;
+import edu.si.trellis.query.binary.PurgeQueue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+@ExtendWith(MockitoExtension.class)
+class CassandraBinaryServiceTest {
+
+    private static final int testChunkSize = 10;
+
+    private final ChunkSizePolicy testChunkSizes = new ChunkSizePolicy(testChunkSize, 1, testChunkSize);
+
+    private final IRI testId = new SimpleRDF().createIRI("urn:test");
+
+    private final byte[] testData = new byte[25];
+
+    @Mock
+    private GetManifest mockGet;
+
+    @Mock
+    private Insert mockInsert;
+
+    @Mock
+    private RecordManifest mockRecordManifest;
+
+    @Mock
+    private Delete mockDelete;
+
+    @Mock
+    private Read mockRead;
+
+    @Mock
+    private ReadRange mockReadRange;
+
+    @Mock
+    private StoredChunks mockStoredChunks;
+
+    @Mock
+    private Row mockRow;
+
+    @Mock
+    private ReadStoredChunks mockReadStoredChunks;
+
+    @Mock
+    private PurgeQueue mockPurgeQueue;
+
+    private CassandraBinaryService testService;
+
+    @BeforeEach
+    void setup() {
+        for (int i = 0; i < testData.length; i++) testData[i] = (byte) i;
+        lenient().doAnswer(inv -> {
+            ((Runnable) inv.getArgument(0)).run();
+            return null;
+        }).when(mockInsert).execute(any(Runnable.class));
+        testService = new CassandraBinaryService(null, testChunkSizes, 2, 0, asList("SHA-256", "md5"), false, 0, false,
+                        mockGet, mockInsert, mockRecordManifest, mockDelete, mockRead, mockReadRange, mockStoredChunks,
+                        mockReadStoredChunks, mockPurgeQueue);
+    }
+
+    @Test
+    void chunksShouldBeWrittenInOrder() {
+        List<Integer> indexes = new ArrayList<>();
+        List<byte[]> chunks = new ArrayList<>();
+        when(mockInsert.buffer(testChunkSize)).thenAnswer(inv -> new byte[testChunkSize]);
+        when(mockInsert.execute(eq(testId), eq(testChunkSize), anyInt(), any(byte[].class), anyInt()))
+                        .thenAnswer(inv -> {
+                            indexes.add(inv.getArgument(2));
+                            chunks.add(Arrays.copyOf((byte[]) inv.getArgument(3), inv.getArgument(4)));
+                            return completedFuture(null);
+                        });
+        when(mockRecordManifest.execute(eq(testId), eq(testChunkSize), eq(0), eq(3), eq((long) testData.length),
+                        any())).thenReturn(completedFuture(null));
+        testService.setContent(builder(testId).build(), new ByteArrayInputStream(testData)).join();
+        verify(mockRecordManifest).execute(eq(testId), eq(testChunkSize), eq(0), eq(3), eq((long) testData.length),
+                        any());
+
+        assertEquals(3, indexes.size(), "Wrong number of chunks!");
+        for (int i = 0; i < indexes.size(); i++) assertEquals(i, (int) indexes.get(i), "Wrong chunk index!");
+        byte[] reassembled = new byte[testData.length];
+        int position = 0;
+        for (byte[] chunk : chunks) {
+            System.arraycopy(chunk, 0, reassembled, position, chunk.length);
+            position += chunk.length;
+        }
+        assertArrayEquals(testData, reassembled, "Chunks did not reassemble to the original data!");
+    }
+
+    @Test
+    void failedChunkShouldPurgePartialContent() {
+        RuntimeException failure = new RuntimeException("Expected");
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(failure);
+        when(mockInsert.buffer(testChunkSize)).thenAnswer(inv -> new byte[testChunkSize]);
+        when(mockInsert.execute(eq(testId), eq(testChunkSize), anyInt(), any(byte[].class), anyInt()))
+                        .thenAnswer(inv -> {
+                            return inv.<Integer> getArgument(2) == 1 ? failed : completedFuture(null);
+                        });
+        when(mockDelete.execute(testId, 0)).thenReturn(completedFuture(null));
+
+        CompletableFuture<Void> result = testService.setContent(builder(testId).build(),
+                        new ByteArrayInputStream(testData));
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertSame(failure, e.getCause(), "Wrong cause for failure!");
+        verify(mockDelete).execute(testId, 0);
+        verify(mockRecordManifest, never()).execute(any(), anyInt(), anyInt(), anyInt(), anyLong(), any());
+    }
+
+    @Test
+    void publishedChunksShouldBeWrittenInOrder() {
+        List<byte[]> chunks = new ArrayList<>();
+        when(mockInsert.buffer(testChunkSize)).thenAnswer(inv -> new byte[testChunkSize]);
+        when(mockInsert.execute(eq(testId), eq(testChunkSize), anyInt(), any(byte[].class), anyInt()))
+                        .thenAnswer(inv -> {
+                            assertEquals(chunks.size(), (int) inv.getArgument(2), "Wrong chunk index!");
+                            chunks.add(Arrays.copyOf((byte[]) inv.getArgument(3), inv.getArgument(4)));
+                            return completedFuture(null);
+                        });
+        when(mockRecordManifest.execute(eq(testId), eq(testChunkSize), eq(0), eq(3), eq((long) testData.length),
+                        any())).thenReturn(completedFuture(null));
+        TestPublisher content = new TestPublisher(7);
+        testService.setContent(builder(testId).build(), content).join();
+
+        assertEquals(3, chunks.size(), "Wrong number of chunks!");
+        byte[] reassembled = new byte[testData.length];
+        int position = 0;
+        for (byte[] chunk : chunks) {
+            System.arraycopy(chunk, 0, reassembled, position, chunk.length);
+            position += chunk.length;
+        }
+        assertArrayEquals(testData, reassembled, "Chunks did not reassemble to the original data!");
+    }
+
+    @Test
+    void publishedContentShouldWaitForWriteWindow() {
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        when(mockInsert.buffer(testChunkSize)).thenAnswer(inv -> new byte[testChunkSize]);
+        when(mockInsert.execute(eq(testId), eq(testChunkSize), anyInt(), any(byte[].class), anyInt()))
+                        .thenAnswer(inv -> {
+                            CompletableFuture<Void> write = new CompletableFuture<>();
+                            writes.add(write);
+                            return write;
+                        });
+        when(mockRecordManifest.execute(eq(testId), eq(testChunkSize), eq(0), eq(3), eq((long) testData.length),
+                        any())).thenReturn(completedFuture(null));
+        TestPublisher content = new TestPublisher(testChunkSize);
+        CompletableFuture<Void> result = testService.setContent(builder(testId).build(), content);
+
+        assertEquals(2, writes.size(), "Wrong number of writes in flight!");
+        assertEquals(3, content.requests, "Should not have requested more with the write window full!");
+        writes.get(0).complete(null);
+        writes.get(1).complete(null);
+        assertEquals(3, writes.size(), "Last chunk should have been written once the window opened!");
+        assertFalse(result.isDone(), "Should not have recorded the manifest with a write in flight!");
+        writes.get(2).complete(null);
+        result.join();
+    }
+
+    @Test
+    void failedPublisherShouldPurgePartialContent() {
+        RuntimeException failure = new RuntimeException("Expected");
+        when(mockInsert.buffer(testChunkSize)).thenAnswer(inv -> new byte[testChunkSize]);
+        when(mockInsert.execute(eq(testId), eq(testChunkSize), anyInt(), any(byte[].class), anyInt()))
+                        .thenReturn(completedFuture(null));
+        when(mockDelete.execute(testId, 0)).thenReturn(completedFuture(null));
+        TestPublisher content = new TestPublisher(testChunkSize);
+        content.failure = failure;
+
+        CompletableFuture<Void> result = testService.setContent(builder(testId).build(), content);
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertSame(failure, e.getCause(), "Wrong cause for failure!");
+        verify(mockDelete).execute(testId, 0);
+        verify(mockRecordManifest, never()).execute(any(), anyInt(), anyInt(), anyInt(), anyLong(), any());
+    }
+
+    @Test
+    void smallPublishedBinaryShouldBeRecordedInline() {
+        CassandraBinaryService inlining = new CassandraBinaryService(null, testChunkSizes, 2, 0, asList("SHA-256"),
+                        false, testData.length, false, mockGet, mockInsert, mockRecordManifest, mockDelete, mockRead,
+                        mockReadRange, mockStoredChunks, mockReadStoredChunks, mockPurgeQueue);
+        when(mockRecordManifest.execute(eq(testId), eq(ByteBuffer.wrap(testData)), any()))
+                        .thenReturn(completedFuture(null));
+        inlining.setContent(builder(testId).build(), new TestPublisher(7)).join();
+        verify(mockInsert, never()).execute(any(), anyInt(), anyInt(), any(byte[].class), anyInt());
+    }
+
+    @Test
+    void ingestBudgetShouldBeHeldWhileChunksAreWrittenAndGivenBack() {
+        CassandraBinaryService budgeted = new CassandraBinaryService(null, testChunkSizes, 2, 2 * testChunkSize,
+                        asList("SHA-256"), false, 0, false, mockGet, mockInsert, mockRecordManifest, mockDelete,
+                        mockRead, mockReadRange, mockStoredChunks, mockReadStoredChunks, mockPurgeQueue);
+        List<Long> inUse = new ArrayList<>();
+        when(mockInsert.buffer(testChunkSize)).thenAnswer(inv -> new byte[testChunkSize]);
+        when(mockInsert.execute(eq(testId), eq(testChunkSize), anyInt(), any(byte[].class), anyInt()))
+                        .thenAnswer(inv -> {
+                            inUse.add(budgeted.ingestBudget().inUse());
+                            return completedFuture(null);
+                        });
+        when(mockRecordManifest.execute(eq(testId), eq(testChunkSize), eq(0), eq(3), eq((long) testData.length),
+                        any())).thenReturn(completedFuture(null));
+        budgeted.setContent(builder(testId).build(), new ByteArrayInputStream(testData)).join();
+
+        assertEquals(asList(10L, 10L, 10L), inUse, "Each chunk should have held budget while written!");
+        assertEquals(0, budgeted.ingestBudget().inUse(), "Budget should have been given back!");
+    }
+
+    @Test
+    void smallBinaryShouldBeRecordedInline() {
+        CassandraBinaryService inlining = new CassandraBinaryService(null, testChunkSizes, 2, 0, asList("SHA-256"),
+                        false, testData.length, false, mockGet, mockInsert, mockRecordManifest, mockDelete, mockRead,
+                        mockReadRange, mockStoredChunks, mockReadStoredChunks, mockPurgeQueue);
+        when(mockRecordManifest.execute(eq(testId), eq(ByteBuffer.wrap(testData)), any()))
+                        .thenReturn(completedFuture(null));
+        inlining.setContent(builder(testId).build(), new ByteArrayInputStream(testData)).join();
+        verify(mockInsert, never()).execute(any(), anyInt(), anyInt(), any(byte[].class), anyInt());
+    }
+
+    @Test
+    void binaryOverThresholdShouldBeChunked() {
+        CassandraBinaryService inlining = new CassandraBinaryService(null, testChunkSizes, 2, 0, asList("SHA-256"),
+                        false, testData.length - 1, false, mockGet, mockInsert, mockRecordManifest, mockDelete,
+                        mockRead, mockReadRange, mockStoredChunks, mockReadStoredChunks, mockPurgeQueue);
+        List<byte[]> chunks = new ArrayList<>();
+        when(mockInsert.buffer(testChunkSize)).thenAnswer(inv -> new byte[testChunkSize]);
+        when(mockInsert.execute(eq(testId), eq(testChunkSize), anyInt(), any(byte[].class), anyInt()))
+                        .thenAnswer(inv -> {
+                            chunks.add(Arrays.copyOf((byte[]) inv.getArgument(3), inv.getArgument(4)));
+                            return completedFuture(null);
+                        });
+        when(mockRecordManifest.execute(eq(testId), eq(testChunkSize), eq(0), eq(3), eq((long) testData.length),
+                        any())).thenReturn(completedFuture(null));
+        inlining.setContent(builder(testId).build(), new ByteArrayInputStream(testData)).join();
+        assertEquals(3, chunks.size(), "Wrong number of chunks!");
+        assertArrayEquals(Arrays.copyOfRange(testData, 20, 25), chunks.get(2), "Bytes lost reading past threshold!");
+    }
+
+    @Test
+    void binaryWithinHintedLengthShouldBeCutToThatLength() {
+        when(mockInsert.buffer(7)).thenAnswer(inv -> new byte[7]);
+        when(mockInsert.execute(eq(testId), eq(7), eq(0), any(byte[].class), eq(7))).thenReturn(completedFuture(null));
+        when(mockRecordManifest.execute(eq(testId), eq(7), eq(0), eq(1), eq(7L), any()))
+                        .thenReturn(completedFuture(null));
+        testService.setContent(builder(testId).hints(singletonMap(CONTENT_LENGTH_HINT, singletonList("7"))).build(),
+                        new ByteArrayInputStream(testData, 0, 7)).join();
+        verify(mockRecordManifest).execute(eq(testId), eq(7), eq(0), eq(1), eq(7L), any());
+    }
+
+    @Test
+    void binaryRunningPastHintedLengthShouldBeCutIntoDefaultChunks() {
+        List<byte[]> chunks = new ArrayList<>();
+        when(mockInsert.buffer(testChunkSize)).thenAnswer(inv -> new byte[testChunkSize]);
+        when(mockInsert.execute(eq(testId), eq(testChunkSize), anyInt(), any(byte[].class), anyInt()))
+                        .thenAnswer(inv -> {
+                            chunks.add(Arrays.copyOf((byte[]) inv.getArgument(3), inv.getArgument(4)));
+                            return completedFuture(null);
+                        });
+        when(mockRecordManifest.execute(eq(testId), eq(testChunkSize), eq(0), eq(3), eq((long) testData.length),
+                        any())).thenReturn(completedFuture(null));
+        testService.setContent(builder(testId).hints(singletonMap(CONTENT_LENGTH_HINT, singletonList("2"))).build(),
+                        new ByteArrayInputStream(testData)).join();
+
+        assertEquals(3, chunks.size(), "Should have cut the binary as if its length were unknown!");
+        assertArrayEquals(Arrays.copyOfRange(testData, 0, 10), chunks.get(0), "Bytes lost reading ahead!");
+    }
+
+    @Test
+    void publishedBinaryRunningPastHintedLengthShouldBeCutIntoDefaultChunks() {
+        List<byte[]> chunks = new ArrayList<>();
+        when(mockInsert.buffer(testChunkSize)).thenAnswer(inv -> new byte[testChunkSize]);
+        when(mockInsert.execute(eq(testId), eq(testChunkSize), anyInt(), any(byte[].class), anyInt()))
+                        .thenAnswer(inv -> {
+                            chunks.add(Arrays.copyOf((byte[]) inv.getArgument(3), inv.getArgument(4)));
+                            return completedFuture(null);
+                        });
+        when(mockRecordManifest.execute(eq(testId), eq(testChunkSize), eq(0), eq(3), eq((long) testData.length),
+                        any())).thenReturn(completedFuture(null));
+        testService.setContent(builder(testId).hints(singletonMap(CONTENT_LENGTH_HINT, singletonList("2"))).build(),
+                        new TestPublisher(7)).join();
+
+        assertEquals(3, chunks.size(), "Should have cut the binary as if its length were unknown!");
+        assertArrayEquals(Arrays.copyOfRange(testData, 0, 10), chunks.get(0), "Bytes lost reading ahead!");
+    }
+
+    @Test
+    void failedBucketedChunkShouldPurgeBuckets() {
+        RuntimeException failure = new RuntimeException("Expected");
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(failure);
+        when(mockInsert.chunksPerBucket()).thenReturn(1);
+        when(mockInsert.buffer(testChunkSize)).thenAnswer(inv -> new byte[testChunkSize]);
+        when(mockInsert.execute(eq(testId), eq(testChunkSize), anyInt(), any(byte[].class), anyInt()))
+                        .thenAnswer(inv -> {
+                            return inv.<Integer> getArgument(2) == 1 ? failed : completedFuture(null);
+                        });
+        when(mockDelete.execute(testId, 2)).thenReturn(completedFuture(null));
+
+        CompletableFuture<Void> result = testService.setContent(builder(testId).build(),
+                        new ByteArrayInputStream(testData));
+        assertThrows(CompletionException.class, result::join);
+        verify(mockDelete).execute(testId, 2);
+    }
+
+    @Test
+    void digestsShouldBeRecordedWithManifest() throws NoSuchAlgorithmException {
+        when(mockInsert.buffer(testChunkSize)).thenAnswer(inv -> new byte[testChunkSize]);
+        when(mockInsert.execute(eq(testId), eq(testChunkSize), anyInt(), any(byte[].class), anyInt()))
+                        .thenAnswer(inv -> {
+                            return completedFuture(null);
+                        });
+        Map<String, ByteBuffer> digests = new HashMap<>();
+        when(mockRecordManifest.execute(eq(testId), eq(testChunkSize), eq(0), eq(3), eq((long) testData.length),
+                        any())).thenAnswer(inv -> {
+            digests.putAll(inv.getArgument(5));
+            return completedFuture(null);
+        });
+        testService.setContent(builder(testId).build(), new ByteArrayInputStream(testData)).join();
+
+        assertEquals(2, digests.size(), "Wrong number of digests!");
+        assertEquals(ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(testData)), digests.get("SHA-256"),
+                        "Wrong SHA-256 digest!");
+        assertEquals(ByteBuffer.wrap(MessageDigest.getInstance("MD5").digest(testData)), digests.get("MD5"),
+                        "Wrong MD5 digest!");
+    }
+
+    @Test
+    void unsupportedDigestAlgorithmShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new CassandraBinaryService(null, testChunkSizes, 2, 0,
+                        asList("NOT-A-DIGEST"), false, 0, false, mockGet, mockInsert, mockRecordManifest, mockDelete,
+                        mockRead, mockReadRange, mockStoredChunks, mockReadStoredChunks, mockPurgeQueue));
+    }
+
+    @Test
+    void sharedChunksShouldBeStoredByHash() {
+        CassandraBinaryService contentAddressed = new CassandraBinaryService(null, new ChunkSizePolicy(16, 1, 16), 2, 0,
+                        asList("SHA-256"), true, 0, false, mockGet, mockInsert, mockRecordManifest, mockDelete,
+                        mockRead, mockReadRange, mockStoredChunks, mockReadStoredChunks, mockPurgeQueue);
+        byte[] repeated = new byte[64]; // content repeats, so its chunks will too
+        List<ByteBuffer> stored = new ArrayList<>();
+        when(mockStoredChunks.store(eq(testId), any(ByteBuffer.class), any(byte[].class))).thenAnswer(inv -> {
+            stored.add(inv.getArgument(1));
+            return completedFuture(null);
+        });
+        List<Integer> lengths = new ArrayList<>();
+        when(mockRecordManifest.execute(eq(testId), any(), any(), eq(64L), any())).thenAnswer(inv -> {
+            assertEquals(stored, inv.getArgument(1), "Wrong chunk hashes recorded!");
+            lengths.addAll(inv.getArgument(2));
+            return completedFuture(null);
+        });
+        contentAddressed.setContent(builder(testId).build(), new ByteArrayInputStream(repeated)).join();
+
+        assertEquals(64, lengths.stream().mapToInt(Integer::intValue).sum(), "Chunks do not cover the binary!");
+        assertTrue(lengths.stream().allMatch(length -> length <= 16), "Chunk longer than maximum!");
+        assertTrue(new HashSet<>(stored).size() < stored.size(), "Identical chunks should share a hash!");
+        verify(mockInsert, never()).execute(any(), anyInt(), anyInt(), any(byte[].class), anyInt());
+    }
+
+    @Test
+    void failedStoreShouldReleaseEveryChunkBegun() {
+        CassandraBinaryService contentAddressed = new CassandraBinaryService(null, new ChunkSizePolicy(16, 1, 16), 2, 0,
+                        asList("SHA-256"), true, 0, false, mockGet, mockInsert, mockRecordManifest, mockDelete,
+                        mockRead, mockReadRange, mockStoredChunks, mockReadStoredChunks, mockPurgeQueue);
+        List<ByteBuffer> stored = new ArrayList<>();
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new IllegalStateException("Expected"));
+        when(mockStoredChunks.store(eq(testId), any(ByteBuffer.class), any(byte[].class))).thenAnswer(inv -> {
+            stored.add(inv.getArgument(1));
+            return stored.size() == 1 ? completedFuture(null) : failure;
+        });
+        List<ByteBuffer> released = new ArrayList<>();
+        when(mockStoredChunks.release(eq(testId), any())).thenAnswer(inv -> {
+            released.addAll(inv.getArgument(1));
+            return completedFuture(null);
+        });
+        CompletableFuture<Void> set = contentAddressed.setContent(builder(testId).build(),
+                        new ByteArrayInputStream(testData));
+
+        CompletionException e = assertThrows(CompletionException.class, set::join);
+        assertTrue(e.getCause() instanceof IllegalStateException, "Should have failed with the store's failure!");
+        assertEquals(stored, released, "Should have released the references of every chunk begun, stored or not!");
+        verify(mockRecordManifest, never()).execute(any(), any(), any(), anyLong(), any());
+    }
+
+    @Test
+    void purgeShouldReleaseStoredChunks() {
+        List<ByteBuffer> hashes = asList(ByteBuffer.wrap(new byte[] { 1 }), ByteBuffer.wrap(new byte[] { 2 }));
+        when(mockGet.execute(testId)).thenReturn(completedFuture(mockRow));
+        when(mockRow.isNull("chunkHashes")).thenReturn(false);
+        when(mockRow.getList("chunkHashes", ByteBuffer.class)).thenReturn(hashes);
+        when(mockStoredChunks.release(testId, hashes)).thenReturn(completedFuture(null));
+        when(mockDelete.execute(testId, 0)).thenReturn(completedFuture(null));
+        testService.purgeContent(testId).join();
+
+        verify(mockStoredChunks).release(testId, hashes);
+        verify(mockDelete).execute(testId, 0);
+    }
+
+    @Test
+    void deferredPurgeShouldOnlyBeQueued() {
+        CassandraBinaryService deferring = new CassandraBinaryService(null, testChunkSizes, 2, 0, asList("SHA-256"),
+                        false, 0, true, mockGet, mockInsert, mockRecordManifest, mockDelete, mockRead, mockReadRange,
+                        mockStoredChunks, mockReadStoredChunks, mockPurgeQueue);
+        when(mockPurgeQueue.enqueue(testId)).thenReturn(completedFuture(null));
+        deferring.purgeContent(testId).join();
+
+        verify(mockPurgeQueue).enqueue(testId);
+        verify(mockDelete, never()).execute(any(IRI.class), anyInt());
+    }
+
+    /**
+     * Publishes {@link #testData} in buffers of a fixed length, one for each request.
+     */
+    private class TestPublisher implements Publisher<ByteBuffer> {
+
+        private final int bufferLength;
+
+        private int position = 0, requests = 0;
+
+        private RuntimeException failure;
+
+        private TestPublisher(int bufferLength) {
+            this.bufferLength = bufferLength;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+
+                @Override
+                public void request(long n) {
+                    requests++;
+                    for (long i = 0; i < n; i++) {
+                        if (position == testData.length) {
+                            if (failure != null) subscriber.onError(failure);
+                            else subscriber.onComplete();
+                            return;
+                        }
+                        int length = Math.min(bufferLength, testData.length - position);
+                        ByteBuffer buffer = ByteBuffer.wrap(testData, position, length);
+                        position += length;
+                        subscriber.onNext(buffer);
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    position = testData.length;
+                }
+            });
+        }
+    }
+}
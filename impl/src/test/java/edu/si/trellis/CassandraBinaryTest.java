@@ -2,11 +2,19 @@ package edu.si.trellis;
 
 import static java.util.Arrays.copyOf;
 import static java.util.Arrays.copyOfRange;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import edu.si.trellis.query.binary.Read;
@@ -15,6 +23,7 @@ import edu.si.trellis.query.binary.ReadRange;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
 
 import org.apache.commons.rdf.api.IRI;
 import org.apache.commons.rdf.api.RDF;
@@ -41,6 +50,8 @@ class CassandraBinaryTest {
     @Mock
     private ReadRange mockReadRange;
 
+    private final Map<String, byte[]> noDigests = emptyMap();
+
     @Mock
     private InputStream mockInputStream1, mockInputStream2;
 
@@ -48,12 +59,12 @@ class CassandraBinaryTest {
     @SuppressWarnings("unused")
     void badChunkLength() {
         try {
-            new CassandraBinary(testId, mockRead, mockReadRange, -1);
+            new CassandraBinary(testId, mockRead, mockReadRange, -1, -1, 0, -1, noDigests);
         } catch (Exception e) {
             assertTrue(e instanceof IllegalArgumentException, "Wrong exception type!");
         }
         try {
-            new CassandraBinary(testId, mockRead, mockReadRange, 0);
+            new CassandraBinary(testId, mockRead, mockReadRange, 0, -1, 0, -1, noDigests);
         } catch (Exception e) {
             assertTrue(e instanceof IllegalArgumentException, "Wrong exception type!");
         }
@@ -61,7 +72,8 @@ class CassandraBinaryTest {
 
     @Test
     void noContent() {
-        CassandraBinary testCassandraBinary = new CassandraBinary(testId, mockRead, mockReadRange, testChunkSize);
+        CassandraBinary testCassandraBinary = new CassandraBinary(testId, mockRead, mockReadRange,
+                        testChunkSize, -1, 0, -1, noDigests);
 
         try {
             testCassandraBinary.getContent();
@@ -73,7 +85,8 @@ class CassandraBinaryTest {
     @Test
     void someContent() {
         when(mockRead.execute(any())).thenReturn(mockInputStream1);
-        CassandraBinary testCassandraBinary = new CassandraBinary(testId, mockRead, mockReadRange, testChunkSize);
+        CassandraBinary testCassandraBinary = new CassandraBinary(testId, mockRead, mockReadRange,
+                        testChunkSize, -1, 0, -1, noDigests);
 
         final InputStream result = testCassandraBinary.getContent().toCompletableFuture().join();
         assertSame(mockInputStream1, result, "Got wrong InputStream!");
@@ -84,7 +97,8 @@ class CassandraBinaryTest {
         byte[] bytes = new byte[] { 1, 2, 3, 4, 5, 6, -1 };
         InputStream testInputStream = new ByteArrayInputStream(bytes);
         when(mockReadRange.execute(any(), anyInt(), anyInt())).thenReturn(testInputStream);
-        CassandraBinary testCassandraBinary = new CassandraBinary(testId, mockRead, mockReadRange, testChunkSize);
+        CassandraBinary testCassandraBinary = new CassandraBinary(testId, mockRead, mockReadRange,
+                        testChunkSize, -1, 0, -1, noDigests);
 
         final InputStream content = testCassandraBinary.getContent(0, 10).toCompletableFuture().join();
         byte[] result = new byte[3];
@@ -94,4 +108,86 @@ class CassandraBinaryTest {
         content.read(result);
         assertArrayEquals(copyOfRange(bytes, 3, 6), result, "Wrong bytes!");
     }
+
+    @Test
+    void manifestShouldBoundChunksRead() {
+        when(mockReadRange.execute(testId, 1, 2, testChunkSize, 0)).thenReturn(mockInputStream1);
+        CassandraBinary testCassandraBinary = new CassandraBinary(testId, mockRead, mockReadRange,
+                        testChunkSize, 3, 0, 25, noDigests);
+
+        testCassandraBinary.getContent(15, 100).toCompletableFuture().join();
+        verify(mockReadRange).execute(testId, 1, 2, testChunkSize, 0);
+    }
+
+    @Test
+    void manifestShouldAvoidListingChunks() {
+        when(mockRead.execute(testId, testChunkSize, 3, 0)).thenReturn(mockInputStream1);
+        CassandraBinary testCassandraBinary = new CassandraBinary(testId, mockRead, mockReadRange,
+                        testChunkSize, 3, 0, 25, noDigests);
+
+        final InputStream result = testCassandraBinary.getContent().toCompletableFuture().join();
+        assertSame(mockInputStream1, result, "Got wrong InputStream!");
+    }
+
+    @Test
+    void bucketsShouldComeFromManifest() {
+        when(mockReadRange.execute(testId, 1, 2, testChunkSize, 2)).thenReturn(mockInputStream1);
+        CassandraBinary testCassandraBinary = new CassandraBinary(testId, mockRead, mockReadRange,
+                        testChunkSize, 3, 2, 25, noDigests);
+
+        testCassandraBinary.getContent(15, 100).toCompletableFuture().join();
+        verify(mockReadRange).execute(testId, 1, 2, testChunkSize, 2);
+    }
+
+    @Test
+    void sizeShouldComeFromManifest() {
+        CassandraBinary withManifest = new CassandraBinary(testId, mockRead, mockReadRange, testChunkSize, 3, 0, 25,
+                        noDigests);
+        CassandraBinary withoutManifest = new CassandraBinary(testId, mockRead, mockReadRange, testChunkSize, -1, 0,
+                        -1, noDigests);
+        assertEquals(25L, (long) withManifest.getSize().get(), "Wrong size!");
+        assertFalse(withoutManifest.getSize().isPresent(), "Binary without manifest should have no known size!");
+    }
+
+    @Test
+    void digestShouldComeFromManifest() {
+        byte[] digest = new byte[] { 1, 2, 3 };
+        CassandraBinary testCassandraBinary = new CassandraBinary(testId, mockRead, mockReadRange, testChunkSize, 3, 0,
+                        25, singletonMap("SHA-256", digest));
+
+        assertArrayEquals(digest, testCassandraBinary.getDigest("sha-256").get(), "Wrong digest!");
+        assertFalse(testCassandraBinary.getDigest("MD5").isPresent(), "Binary should have no MD5 digest!");
+        verifyZeroInteractions(mockRead, mockReadRange);
+    }
+
+    @Test
+    void rangeBeyondSizeShouldBeEmpty() throws IOException {
+        CassandraBinary testCassandraBinary = new CassandraBinary(testId, mockRead, mockReadRange,
+                        testChunkSize, 3, 0, 25, noDigests);
+
+        try (InputStream content = testCassandraBinary.getContent(25, 30).toCompletableFuture().join()) {
+            assertEquals(-1, content.read(), "Range beyond end of binary should have no bytes!");
+        }
+        verifyZeroInteractions(mockReadRange);
+    }
+
+    @Test
+    void openRangeWithoutManifestShouldPublishToTheEnd() {
+        CassandraBinary testCassandraBinary = new CassandraBinary(testId, mockRead, mockReadRange,
+                        testChunkSize, -1, 0, -1, noDigests);
+
+        testCassandraBinary.getContentPublisher(0, Integer.MAX_VALUE);
+        verify(mockReadRange).publish(testId, 0, Integer.MAX_VALUE / testChunkSize, 0L, Integer.MAX_VALUE + 1L);
+    }
+
+    @Test
+    void rangeWithoutManifestBeyondIntOffsetsShouldBeRejected() {
+        CassandraBinary testCassandraBinary = new CassandraBinary(testId, mockRead, mockReadRange,
+                        testChunkSize, -1, 0, -1, noDigests);
+        ByteRange range = new ByteRange(Integer.MAX_VALUE + 1L, Integer.MAX_VALUE + 10L);
+
+        assertThrows(IllegalArgumentException.class,
+                        () -> testCassandraBinary.getContentRanges(singletonList(range)));
+        verifyZeroInteractions(mockReadRange);
+    }
 }
@@ -2,9 +2,11 @@ package edu.si.trellis;
 
 import static com.datastax.driver.core.Cluster.builder;
 import static com.datastax.driver.core.ConsistencyLevel.ONE;
-import static edu.si.trellis.DatasetCodec.datasetCodec;
+import static edu.si.trellis.DatasetCodec.writing;
+import static edu.si.trellis.DatasetFormat.TERM_TABLE;
 import static edu.si.trellis.IRICodec.iriCodec;
 import static edu.si.trellis.InputStreamCodec.inputStreamCodec;
+import static java.util.Arrays.asList;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import com.datastax.driver.core.*;
@@ -28,7 +30,9 @@ import org.trellisldp.api.IdentifierService;
 class CassandraConnection implements AfterAllCallback, BeforeAllCallback {
 
     private static final String[] CLEANOUT_QUERIES = new String[] { "TRUNCATE metadata ; ", "TRUNCATE mutabledata ; ",
-            "TRUNCATE immutabledata ;", "TRUNCATE binarydata ;", "TRUNCATE mementodata ;" };
+            "TRUNCATE immutabledata ;", "TRUNCATE binarydata ;", "TRUNCATE mementodata ;", "TRUNCATE chunkstore ;",
+            "TRUNCATE chunkrefs ;", "TRUNCATE binarybuckets ;", "TRUNCATE binaryuploads ;",
+            "TRUNCATE binarypurges ;" };
 
     private static final ConsistencyLevel testConsistency = ONE;
 
@@ -44,8 +48,18 @@ class CassandraConnection implements AfterAllCallback, BeforeAllCallback {
 
     CassandraBinaryService binaryService;
 
+    CassandraBinaryService contentAddressedBinaryService;
+
+    CassandraBinaryService bucketedBinaryService;
+
+    CassandraBinaryService inlineBinaryService;
+
+    MultipartUploads multipartUploads;
+
     CassandraMementoService mementoService;
 
+    private final ChunkCache chunkCache = new ChunkCache(16 * 1024 * 1024, 0, "");
+
     private static final String contactAddress = System.getProperty("cassandra.contactAddress", "localhost");
 
     private static final Integer contactPort = Integer.getInteger("cassandra.nativeTransportPort", 9042);
@@ -58,7 +72,7 @@ class CassandraConnection implements AfterAllCallback, BeforeAllCallback {
     public void beforeAll(ExtensionContext context) {
         log.debug("Trying Cassandra connection at: {}:{}", contactAddress, contactPort);
         this.cluster = builder().withoutMetrics().addContactPoint(contactAddress).withPort(contactPort).build();
-        codecRegistry().register(inputStreamCodec, iriCodec, datasetCodec, InstantCodec.instance,
+        codecRegistry().register(inputStreamCodec, iriCodec, writing(TERM_TABLE), InstantCodec.instance,
                         SimpleTimestampCodec.instance);
         QueryLogger queryLogger = QueryLogger.builder().build();
         cluster.register(queryLogger);
@@ -70,7 +84,8 @@ class CassandraConnection implements AfterAllCallback, BeforeAllCallback {
                         new edu.si.trellis.query.rdf.Touch(session, testConsistency),
                         new edu.si.trellis.query.rdf.MutableRetrieve(session, testConsistency),
                         new edu.si.trellis.query.rdf.ImmutableRetrieve(session, testConsistency),
-                        new edu.si.trellis.query.rdf.BasicContainment(session, testConsistency));
+                        new edu.si.trellis.query.rdf.BasicContainment(session, testConsistency),
+                        new ResourceCache(0, 0, false));
         resourceService.initializeRoot();
         this.mementoService = new CassandraMementoService(
                         new Mementos(session, testConsistency),
@@ -79,15 +94,35 @@ class CassandraConnection implements AfterAllCallback, BeforeAllCallback {
                         new MementoMutableRetrieve(session, testConsistency),
                         new edu.si.trellis.query.rdf.ImmutableRetrieve(session, testConsistency),
                         new GetFirstMemento(session, testConsistency));
-        this.binaryService = new CassandraBinaryService((IdentifierService) null, 1024 * 1024,
-                        new edu.si.trellis.query.binary.GetChunkSize(session, testConsistency),
-                        new edu.si.trellis.query.binary.Insert(session, testConsistency),
-                        new edu.si.trellis.query.binary.Delete(session, testConsistency),
-                        new edu.si.trellis.query.binary.Read(session, testConsistency),
-                        new edu.si.trellis.query.binary.ReadRange(session, testConsistency));
+        this.binaryService = binaryService(false, 0, 0);
+        this.contentAddressedBinaryService = binaryService(true, 0, 0);
+        this.bucketedBinaryService = binaryService(false, 4, 0);
+        this.inlineBinaryService = binaryService(false, 0, 4096);
+        this.multipartUploads = new MultipartUploads(binaryService,
+                        new edu.si.trellis.query.binary.UploadParts(session, testConsistency, testConsistency),
+                        new edu.si.trellis.query.binary.Insert(session, testConsistency, ChunkCompression.LZ4, 0, 16),
+                        new edu.si.trellis.query.binary.RecordManifest(session, testConsistency),
+                        new edu.si.trellis.query.binary.Delete(session, testConsistency));
         if (cleanBefore) cleanOut();
     }
 
+    private CassandraBinaryService binaryService(boolean contentDefinedChunking, int chunksPerBucket,
+                    int inlineThreshold) {
+        return new CassandraBinaryService((IdentifierService) null,
+                        new ChunkSizePolicy(1024 * 1024, 4096, 8 * 1024 * 1024), 4, 64 * 1024 * 1024,
+                        asList("SHA-256"), contentDefinedChunking, inlineThreshold, false,
+                        new edu.si.trellis.query.binary.GetManifest(session, testConsistency),
+                        new edu.si.trellis.query.binary.Insert(session, testConsistency, ChunkCompression.LZ4,
+                                        chunksPerBucket, 16),
+                        new edu.si.trellis.query.binary.RecordManifest(session, testConsistency),
+                        new edu.si.trellis.query.binary.Delete(session, testConsistency),
+                        new edu.si.trellis.query.binary.Read(session, testConsistency, 2, chunkCache),
+                        new edu.si.trellis.query.binary.ReadRange(session, testConsistency, 2, chunkCache),
+                        new edu.si.trellis.query.binary.StoredChunks(session, testConsistency, ChunkCompression.LZ4),
+                        new edu.si.trellis.query.binary.ReadStoredChunks(session, testConsistency, 2, chunkCache),
+                        new edu.si.trellis.query.binary.PurgeQueue(session, testConsistency, testConsistency));
+    }
+
     private void cleanOut() {
         log.info("Cleaning out test keyspace {}", keyspace);
         for (String q : CLEANOUT_QUERIES) session.execute(q);
@@ -0,0 +1,149 @@
+package edu.si.trellis;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.trellisldp.vocabulary.LDP.BasicContainer;
+import static org.trellisldp.vocabulary.LDP.PreferContainment;
+import static org.trellisldp.vocabulary.LDP.RDFSource;
+import static org.trellisldp.vocabulary.Trellis.PreferAccessControl;
+import static org.trellisldp.vocabulary.Trellis.PreferAudit;
+import static org.trellisldp.vocabulary.Trellis.PreferUserManaged;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+
+import edu.si.trellis.query.rdf.BasicContainment;
+import edu.si.trellis.query.rdf.ImmutableRetrieve;
+import edu.si.trellis.query.rdf.MutableRetrieve;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class CassandraResourceTest {
+
+    private static final RDF rdf = new SimpleRDF();
+
+    private static final IRI testId = rdf.createIRI("urn:test");
+
+    private static final IRI object = rdf.createIRI("urn:o");
+
+    private static final Quad mutableQuad = rdf.createQuad(null, testId, rdf.createIRI("urn:p"), object),
+                    immutableQuad = rdf.createQuad(null, testId, rdf.createIRI("urn:audit"), object);
+
+    @Mock
+    private MutableRetrieve mockMutable;
+
+    @Mock
+    private ImmutableRetrieve mockImmutable;
+
+    @Mock
+    private BasicContainment mockContainment;
+
+    private CassandraResource resource(IRI ixnModel) {
+        return new CassandraResource(testId, ixnModel, false, null, null, null, Instant.now(), mockImmutable,
+                        mockMutable, mockContainment);
+    }
+
+    @Test
+    void allQueriesShouldStartAtOnceAndStreamAsTheyReturn() {
+        when(mockMutable.execute(testId)).thenReturn(new CompletableFuture<>());
+        when(mockImmutable.execute(testId)).thenReturn(completedFuture(Stream.of(immutableQuad)));
+        when(mockContainment.execute(testId)).thenReturn(new CompletableFuture<>());
+
+        Iterator<Quad> quads = resource(BasicContainer).stream().iterator();
+
+        verify(mockMutable).execute(testId);
+        verify(mockImmutable).execute(testId);
+        verify(mockContainment).execute(testId);
+        assertEquals(immutableQuad, quads.next(), "Should have streamed the query that returned first!");
+    }
+
+    @Test
+    void quadsOfAllQueriesShouldBeStreamed() {
+        when(mockMutable.execute(testId)).thenReturn(completedFuture(Stream.of(mutableQuad)));
+        when(mockImmutable.execute(testId)).thenReturn(completedFuture(Stream.of(immutableQuad)));
+
+        assertEquals(2, resource(RDFSource).stream().count(), "Should have streamed every query!");
+    }
+
+    @Test
+    void failedQueryShouldFailStream() {
+        CompletableFuture<Stream<Quad>> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new IllegalStateException("Expected"));
+        when(mockMutable.execute(testId)).thenReturn(failure);
+        when(mockImmutable.execute(testId)).thenReturn(completedFuture(Stream.empty()));
+
+        Stream<Quad> quads = resource(RDFSource).stream();
+        assertThrows(IllegalStateException.class, quads::count);
+    }
+
+    @Test
+    void userManagedGraphShouldNotReadAuditOrContainment() {
+        Quad aclQuad = rdf.createQuad(PreferAccessControl, testId, rdf.createIRI("urn:p"), object);
+        Quad userQuad = rdf.createQuad(PreferUserManaged, testId, rdf.createIRI("urn:p"), object);
+        when(mockMutable.execute(testId)).thenReturn(completedFuture(Stream.of(aclQuad, userQuad)));
+
+        List<Quad> quads = resource(BasicContainer).stream(PreferUserManaged).collect(toList());
+
+        assertEquals(singletonList(userQuad), quads, "Should have streamed only the graph asked for!");
+        verify(mockImmutable, never()).execute(any());
+        verify(mockContainment, never()).execute(any());
+    }
+
+    @Test
+    void auditGraphShouldReadOnlyImmutableData() {
+        Quad auditQuad = rdf.createQuad(PreferAudit, testId, rdf.createIRI("urn:audit"), object);
+        when(mockImmutable.execute(testId)).thenReturn(completedFuture(Stream.of(auditQuad)));
+
+        List<Quad> quads = resource(BasicContainer).stream(PreferAudit).collect(toList());
+
+        assertEquals(singletonList(auditQuad), quads, "Should have streamed the audit graph!");
+        verify(mockMutable, never()).execute(any());
+        verify(mockContainment, never()).execute(any());
+    }
+
+    @Test
+    void containmentGraphShouldReadOnlyContainment() {
+        IRI child = rdf.createIRI("urn:test/child");
+        Row row = mock(Row.class);
+        when(row.get("contained", IRI.class)).thenReturn(child);
+        ResultSet rows = mock(ResultSet.class);
+        when(rows.spliterator()).thenReturn(singletonList(row).spliterator());
+        when(mockContainment.execute(testId)).thenReturn(completedFuture(rows));
+
+        List<Quad> quads = resource(BasicContainer).stream(asList(PreferContainment)).collect(toList());
+
+        assertEquals(1, quads.size(), "Should have streamed the contained resource!");
+        assertEquals(child, quads.get(0).getObject(), "Wrong contained resource!");
+        verify(mockMutable, never()).execute(any());
+        verify(mockImmutable, never()).execute(any());
+    }
+
+    @Test
+    void containmentGraphOfNonContainerShouldReadNothing() {
+        assertEquals(0, resource(RDFSource).stream(PreferContainment).count());
+        verify(mockContainment, never()).execute(any());
+    }
+}
@@ -0,0 +1,47 @@
+package edu.si.trellis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class ChunkBufferPoolTest {
+
+    @Test
+    void releasedBufferShouldBeReused() {
+        ChunkBufferPool pool = new ChunkBufferPool(2);
+        byte[] buffer = pool.acquire(100);
+        assertEquals(100, buffer.length, "Wrong buffer length!");
+        pool.release(buffer);
+        assertSame(buffer, pool.acquire(100), "Released buffer should have been reused!");
+        assertEquals(0, pool.idle(), "Reused buffer should no longer be idle!");
+    }
+
+    @Test
+    void tooShortBufferShouldBeDropped() {
+        ChunkBufferPool pool = new ChunkBufferPool(2);
+        byte[] buffer = pool.acquire(50);
+        pool.release(buffer);
+        byte[] longer = pool.acquire(100);
+        assertNotSame(buffer, longer, "Too short buffer should not have been reused!");
+        assertEquals(100, longer.length, "Wrong buffer length!");
+        assertEquals(0, pool.idle(), "Too short buffer should have been dropped!");
+    }
+
+    @Test
+    void idleBuffersShouldBeBounded() {
+        ChunkBufferPool pool = new ChunkBufferPool(2);
+        for (int i = 0; i < 5; i++) pool.release(new byte[10]);
+        assertEquals(2, pool.idle(), "Too many idle buffers kept!");
+        ChunkBufferPool none = new ChunkBufferPool(0);
+        none.release(new byte[10]);
+        assertEquals(0, none.idle(), "Buffers should not be kept with no pool!");
+    }
+
+    @Test
+    void negativeSizeShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ChunkBufferPool(-1));
+    }
+}
@@ -0,0 +1,79 @@
+package edu.si.trellis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.jupiter.api.Test;
+
+class ChunkCacheTest {
+
+    private final IRI testId = new SimpleRDF().createIRI("urn:test");
+
+    private static ByteBuffer chunk(String content) {
+        return ByteBuffer.wrap(content.getBytes(UTF_8));
+    }
+
+    @Test
+    void cachedChunkShouldBeServedFromMemory() {
+        ChunkCache cache = new ChunkCache(100, 0, "");
+        ByteBuffer chunk = chunk("abcde");
+        cache.put(ChunkCache.key(testId, 0), chunk);
+        assertEquals(5, chunk.remaining(), "Cached chunk should have been left unchanged!");
+        assertEquals(chunk("abcde"), cache.get(ChunkCache.key(testId, 0)), "Wrong bytes from cache!");
+        assertFalse(cache.get(ChunkCache.key(testId, 0)).isDirect(), "Cached chunk should have been held on the heap!");
+        assertEquals(2, cache.memoryHits(), "Hits should have been counted!");
+        assertNull(cache.get(ChunkCache.key(testId, 1)), "Uncached chunk should not have been found!");
+        assertEquals(1, cache.misses(), "Miss should have been counted!");
+    }
+
+    @Test
+    void leastRecentlyUsedChunkShouldBeEvicted() {
+        ChunkCache cache = new ChunkCache(10, 0, "");
+        cache.put("one", chunk("aaaa"));
+        cache.put("two", chunk("bbbb"));
+        cache.get("one");
+        cache.put("three", chunk("cccc"));
+        assertTrue(cache.contains("one"), "Recently used chunk should have been kept!");
+        assertFalse(cache.contains("two"), "Least recently used chunk should have been evicted!");
+        assertTrue(cache.contains("three"), "New chunk should have been kept!");
+    }
+
+    @Test
+    void evictedChunkShouldBeServedFromDisk() throws IOException {
+        Path directory = Files.createTempDirectory("chunk-cache-test");
+        directory.toFile().deleteOnExit();
+        ChunkCache cache = new ChunkCache(4, 100, directory.toString());
+        cache.put("one", chunk("aaaa"));
+        cache.put("two", chunk("bbbb"));
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> file.toFile().deleteOnExit());
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count(), "Evicted chunk should have been written to disk!");
+        }
+        ByteBuffer fromDisk = cache.get("one");
+        assertEquals(chunk("aaaa"), fromDisk, "Wrong bytes from disk!");
+        assertFalse(fromDisk.isDirect(), "Chunk read from disk should have been copied onto the heap!");
+        assertEquals(1, cache.diskHits(), "Disk hit should have been counted!");
+        assertEquals(chunk("aaaa"), cache.get("one"), "Wrong bytes from memory!");
+        assertEquals(1, cache.memoryHits(), "Chunk read from disk should have been promoted to memory!");
+    }
+
+    @Test
+    void keysShouldNotCollide() {
+        assertNotEquals(ChunkCache.key(testId, 1), ChunkCache.key(new SimpleRDF().createIRI("urn:test 1"), 0));
+        assertEquals("hash:0aff", ChunkCache.key(ByteBuffer.wrap(new byte[] { 10, -1 })), "Wrong hash key!");
+    }
+}
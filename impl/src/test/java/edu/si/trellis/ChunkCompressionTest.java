@@ -0,0 +1,77 @@
+package edu.si.trellis;
+
+import static edu.si.trellis.ChunkCompression.LZ4;
+import static edu.si.trellis.ChunkCompression.NONE;
+import static edu.si.trellis.ChunkCompression.ZSTD;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.when;
+
+import com.datastax.driver.core.Row;
+
+import edu.si.trellis.ChunkCompression.Compressed;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkCompressionTest {
+
+    private final byte[] compressible = new byte[4096];
+
+    {
+        for (int i = 0; i < compressible.length; i++) compressible[i] = (byte) (i % 7);
+    }
+
+    @Mock
+    private Row mockRow;
+
+    @Mock
+    private InputStream mockInputStream;
+
+    @Test
+    void compressedChunksShouldRoundTrip() throws IOException {
+        for (ChunkCompression compression : new ChunkCompression[] { LZ4, ZSTD }) {
+            Compressed compressed = compression.apply(compressible, compressible.length);
+            assertSame(compression, compressed.compression(), "Compressible chunk should have been compressed!");
+            when(mockRow.getString("compression")).thenReturn(compressed.compression().marker());
+            when(mockRow.getBytes("chunk")).thenReturn(compressed.bytes());
+            try (InputStream chunk = ChunkCompression.chunk(mockRow)) {
+                assertArrayEquals(compressible, IOUtils.toByteArray(chunk), "Wrong bytes from " + compression + "!");
+            }
+        }
+    }
+
+    @Test
+    void incompressibleChunkShouldBeLeftAlone() {
+        byte[] incompressible = new byte[4096];
+        new Random(0).nextBytes(incompressible);
+        Compressed compressed = ZSTD.apply(incompressible, incompressible.length);
+        assertSame(NONE, compressed.compression(), "Incompressible chunk should not have been compressed!");
+        assertEquals("NONE", compressed.compression().marker(), "Uncompressed chunk should be marked as such!");
+        assertEquals(ByteBuffer.wrap(incompressible), compressed.bytes(), "Wrong bytes!");
+    }
+
+    @Test
+    void uncompressedChunkShouldShareItsBuffer() {
+        byte[] buffer = new byte[100];
+        new Random(0).nextBytes(buffer);
+        Compressed compressed = NONE.apply(buffer, 60);
+        assertEquals(ByteBuffer.wrap(buffer, 0, 60), compressed.bytes(), "Wrong bytes!");
+        assertSame(buffer, compressed.bytes().array(), "Uncompressed chunk should not have been copied!");
+    }
+
+    @Test
+    void unmarkedChunkShouldBeReadAsItIs() {
+        when(mockRow.get("chunk", InputStream.class)).thenReturn(mockInputStream);
+        assertSame(mockInputStream, ChunkCompression.chunk(mockRow), "Unmarked chunk should not be decompressed!");
+    }
+}
@@ -0,0 +1,165 @@
+package edu.si.trellis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+class ChunkPublisherTest {
+
+    private static final String[] CHUNKS = { "abc", "def", "ghi", "jkl" };
+
+    private final List<CompletableFuture<ByteBuffer>> fetches = new ArrayList<>();
+
+    private CompletableFuture<ByteBuffer> fetch(int i) {
+        CompletableFuture<ByteBuffer> fetch = new CompletableFuture<>();
+        fetches.add(fetch);
+        return fetch;
+    }
+
+    private void complete(int i) {
+        fetches.get(i).complete(ByteBuffer.wrap(CHUNKS[i].getBytes(UTF_8)));
+    }
+
+    @Test
+    void chunksShouldBePublishedInOrder() {
+        ChunkPublisher publisher = new ChunkPublisher(4, this::fetch, 1, 0, Long.MAX_VALUE);
+        Collector collector = new Collector();
+        publisher.subscribe(collector);
+        collector.subscription.request(Long.MAX_VALUE);
+        assertEquals(2, fetches.size(), "Should have fetched only as far as the read-ahead!");
+        complete(1);
+        assertEquals("", collector.received(), "Should not have published out of order!");
+        complete(0);
+        complete(3);
+        complete(2);
+        assertEquals("abcdefghijkl", collector.received(), "Wrong bytes published!");
+        assertTrue(collector.completed, "Should have completed!");
+    }
+
+    @Test
+    void chunksShouldBeFetchedOnlyOnDemand() {
+        ChunkPublisher publisher = new ChunkPublisher(4, this::fetch, 0, 0, Long.MAX_VALUE);
+        Collector collector = new Collector();
+        publisher.subscribe(collector);
+        assertTrue(fetches.isEmpty(), "Should not have fetched without demand!");
+        collector.subscription.request(1);
+        complete(0);
+        assertEquals("abc", collector.received(), "Wrong bytes published!");
+        assertEquals(1, fetches.size(), "Should not have fetched beyond demand!");
+        collector.subscription.request(1);
+        assertEquals(2, fetches.size(), "Should have fetched on new demand!");
+        assertFalse(collector.completed, "Should not have completed!");
+    }
+
+    @Test
+    void publishedBytesShouldBeTrimmedToRange() {
+        ChunkPublisher publisher = new ChunkPublisher(4, i -> completedFuture(ByteBuffer.wrap(CHUNKS[i]
+                        .getBytes(UTF_8))), 2, 2, 5);
+        Collector collector = new Collector();
+        publisher.subscribe(collector);
+        collector.subscription.request(Long.MAX_VALUE);
+        assertEquals("cdefg", collector.received(), "Wrong bytes published!");
+        assertTrue(collector.completed, "Should have completed!");
+    }
+
+    @Test
+    void fetchesBeyondRangeShouldBeCancelled() {
+        ChunkPublisher publisher = new ChunkPublisher(4, this::fetch, 3, 0, 3);
+        Collector collector = new Collector();
+        publisher.subscribe(collector);
+        collector.subscription.request(Long.MAX_VALUE);
+        complete(0);
+        assertTrue(collector.completed, "Should have completed!");
+        assertTrue(fetches.get(3).isCancelled(), "Should have cancelled fetch beyond range!");
+    }
+
+    @Test
+    void cancellingShouldCancelFetches() {
+        ChunkPublisher publisher = new ChunkPublisher(4, this::fetch, 1, 0, Long.MAX_VALUE);
+        Collector collector = new Collector();
+        publisher.subscribe(collector);
+        collector.subscription.request(1);
+        collector.subscription.cancel();
+        assertTrue(fetches.get(0).isCancelled(), "Should have cancelled fetch!");
+        assertFalse(collector.completed, "Should not have completed after cancelling!");
+    }
+
+    @Test
+    void failedFetchShouldBeSignalled() {
+        ChunkPublisher publisher = new ChunkPublisher(4, this::fetch, 1, 0, Long.MAX_VALUE);
+        Collector collector = new Collector();
+        publisher.subscribe(collector);
+        collector.subscription.request(Long.MAX_VALUE);
+        IllegalStateException failure = new IllegalStateException("Expected");
+        fetches.get(0).completeExceptionally(failure);
+        assertSame(failure, collector.error, "Should have signalled failure!");
+        assertTrue(fetches.get(1).isCancelled(), "Should have cancelled outstanding fetch!");
+    }
+
+    @Test
+    void nonPositiveRequestShouldBeSignalled() {
+        ChunkPublisher publisher = new ChunkPublisher(4, this::fetch, 1, 0, Long.MAX_VALUE);
+        Collector collector = new Collector();
+        publisher.subscribe(collector);
+        collector.subscription.request(0);
+        assertTrue(collector.error instanceof IllegalArgumentException, "Should have signalled bad request!");
+    }
+
+    @Test
+    void emptyPublisherShouldCompleteAtOnce() {
+        Collector collector = new Collector();
+        ChunkPublisher.empty().subscribe(collector);
+        assertTrue(collector.completed, "Should have completed!");
+        assertNull(collector.error, "Should not have failed!");
+    }
+
+    private static class Collector implements Subscriber<ByteBuffer> {
+
+        private final StringBuilder received = new StringBuilder();
+
+        private Subscription subscription;
+
+        private boolean completed;
+
+        private Throwable error;
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+        }
+
+        @Override
+        public void onNext(ByteBuffer chunk) {
+            byte[] bytes = new byte[chunk.remaining()];
+            chunk.get(bytes);
+            received.append(new String(bytes, UTF_8));
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            error = e;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        private String received() {
+            return received.toString();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package edu.si.trellis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+class ChunkRangesTest {
+
+    private static final String CONTENT = "abcdefghijklmnopqrstuvwxyz";
+
+    private static final int CHUNK_LENGTH = 4;
+
+    private final Map<Integer, Integer> fetches = new ConcurrentHashMap<>();
+
+    private CompletableFuture<ByteBuffer> chunk(int index) {
+        fetches.merge(index, 1, Integer::sum);
+        int from = index * CHUNK_LENGTH, to = Math.min(from + CHUNK_LENGTH, CONTENT.length());
+        return completedFuture(ByteBuffer.wrap(CONTENT.substring(from, to).getBytes(UTF_8)));
+    }
+
+    private ChunkRanges ranges(int window) {
+        return new ChunkRanges(this::chunk, position -> (int) (position / CHUNK_LENGTH),
+                        index -> (long) index * CHUNK_LENGTH, CONTENT.length(), window);
+    }
+
+    private static String text(List<ByteBuffer> slices) {
+        StringBuilder text = new StringBuilder();
+        for (ByteBuffer slice : slices) {
+            byte[] bytes = new byte[slice.remaining()];
+            slice.duplicate().get(bytes);
+            text.append(new String(bytes, UTF_8));
+        }
+        return text.toString();
+    }
+
+    @Test
+    void rangesShouldBeSlicedAcrossChunks() {
+        List<List<ByteBuffer>> read = ranges(2).read(asList(new ByteRange(2, 9), new ByteRange(0, 0),
+                        new ByteRange(24, 25))).join();
+
+        assertEquals("cdefghij", text(read.get(0)), "Wrong bytes across chunk boundaries!");
+        assertEquals(3, read.get(0).size(), "Range should have been sliced from three chunks!");
+        assertEquals("a", text(read.get(1)), "Wrong single byte!");
+        assertEquals("yz", text(read.get(2)), "Wrong bytes from the short last chunk!");
+    }
+
+    @Test
+    void overlappingRangesShouldFetchEachChunkOnce() {
+        ranges(3).read(asList(new ByteRange(0, 10), new ByteRange(5, 7), new ByteRange(3, 4))).join();
+
+        assertEquals(3, fetches.size(), "Should have fetched only the chunks needed!");
+        fetches.forEach((index, times) -> assertEquals(1, times.intValue(),
+                        "Chunk " + index + " fetched more than once!"));
+    }
+
+    @Test
+    void rangesPastTheEndShouldBeEmptyOrShortened() {
+        List<List<ByteBuffer>> read = ranges(1).read(asList(new ByteRange(30, 40), new ByteRange(20, 99))).join();
+
+        assertTrue(read.get(0).isEmpty(), "Range past the end should have no bytes!");
+        assertEquals("uvwxyz", text(read.get(1)), "Range running past the end should have been shortened!");
+        assertFalse(fetches.containsKey(7), "Should not have fetched past the end!");
+    }
+
+    @Test
+    void slicesShouldBeReadOnly() {
+        ByteBuffer slice = ranges(1).read(singletonList(new ByteRange(1, 2))).join().get(0).get(0);
+
+        assertTrue(slice.isReadOnly(), "Slices share the fetched chunks and should not be writable!");
+    }
+
+    @Test
+    void fetchesInFlightShouldBeBoundedByWindow() {
+        List<CompletableFuture<ByteBuffer>> pending = new ArrayList<>();
+        ChunkRanges chunkRanges = new ChunkRanges(index -> {
+            CompletableFuture<ByteBuffer> fetching = new CompletableFuture<>();
+            pending.add(fetching);
+            return fetching;
+        }, position -> (int) (position / CHUNK_LENGTH), index -> (long) index * CHUNK_LENGTH, CONTENT.length(), 2);
+
+        CompletableFuture<List<List<ByteBuffer>>> read = chunkRanges.read(singletonList(new ByteRange(0, 25)));
+        assertEquals(2, pending.size(), "Should have started no more fetches than the window!");
+
+        pending.get(0).complete(ByteBuffer.allocate(CHUNK_LENGTH));
+        assertEquals(3, pending.size(), "Should have started another fetch as one finished!");
+        assertFalse(read.isDone(), "Should not be done before all chunks are fetched!");
+    }
+
+    @Test
+    void failedFetchShouldFailReadAndCancelTheRest() {
+        List<CompletableFuture<ByteBuffer>> pending = new ArrayList<>();
+        ChunkRanges chunkRanges = new ChunkRanges(index -> {
+            CompletableFuture<ByteBuffer> fetching = new CompletableFuture<>();
+            pending.add(fetching);
+            return fetching;
+        }, position -> (int) (position / CHUNK_LENGTH), index -> (long) index * CHUNK_LENGTH, CONTENT.length(), 3);
+
+        CompletableFuture<List<List<ByteBuffer>>> read = chunkRanges.read(singletonList(new ByteRange(0, 25)));
+        pending.get(1).completeExceptionally(new IllegalStateException("Expected"));
+
+        CompletionException e = assertThrows(CompletionException.class, read::join);
+        assertTrue(e.getCause() instanceof IllegalStateException, "Should have failed with the fetch's failure!");
+        assertTrue(pending.get(0).isCancelled(), "Should have cancelled the other fetches in flight!");
+        assertTrue(pending.get(2).isCancelled(), "Should have cancelled the other fetches in flight!");
+        assertEquals(3, pending.size(), "Should have started no more fetches after the failure!");
+    }
+
+    @Test
+    void nonPositiveWindowShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ranges(0));
+    }
+}
@@ -0,0 +1,122 @@
+package edu.si.trellis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+class ChunkSequenceInputStreamTest {
+
+    private static final String[] testChunks = new String[] { "onetw", "othre", "efour", "fives", "ix" };
+
+    private final List<Integer> opened = new ArrayList<>();
+
+    private ChunkSequenceInputStream testStream() {
+        return new ChunkSequenceInputStream(testChunks.length, 5) {
+
+            @Override
+            protected InputStream chunk(int index) {
+                opened.add(index);
+                return new ByteArrayInputStream(testChunks[index].getBytes(UTF_8));
+            }
+        };
+    }
+
+    @Test
+    void badChunkLength() {
+        assertThrows(IllegalArgumentException.class, () -> new ChunkSequenceInputStream(1, 0) {
+
+            @Override
+            protected InputStream chunk(int index) {
+                return null;
+            }
+        });
+    }
+
+    @Test
+    void shouldConcatChunks() throws IOException {
+        try (InputStream stream = testStream()) {
+            assertEquals("onetwothreefourfivesix", IOUtils.toString(stream, UTF_8), "Did not correctly concat chunks!");
+        }
+    }
+
+    @Test
+    void shouldReadSingleBytesAcrossChunks() throws IOException {
+        try (InputStream stream = testStream()) {
+            StringBuilder answer = new StringBuilder();
+            for (int read; (read = stream.read()) != -1;) answer.append((char) read);
+            assertEquals("onetwothreefourfivesix", answer.toString(), "Got wrong bytes from read()!");
+        }
+    }
+
+    @Test
+    void shouldSkipWholeChunksWithoutOpeningThem() throws IOException {
+        try (InputStream stream = testStream()) {
+            assertEquals(12, stream.skip(12), "Could not skip across chunks!");
+            assertEquals("ourfivesix", IOUtils.toString(stream, UTF_8), "Did not correctly stream rest of chunks!");
+        }
+        assertEquals(0, opened.indexOf(2), "Skipped chunks should not have been opened!");
+    }
+
+    @Test
+    void shouldSkipWholeChunksOfVaryingLengths() throws IOException {
+        String[] varying = new String[] { "one", "twothree", "four", "fivesix" };
+        try (InputStream stream = new ChunkSequenceInputStream(new int[] { 3, 8, 4, 7 }) {
+
+            @Override
+            protected InputStream chunk(int index) {
+                opened.add(index);
+                return new ByteArrayInputStream(varying[index].getBytes(UTF_8));
+            }
+        }) {
+            assertEquals(13, stream.skip(13), "Could not skip across chunks!");
+            assertEquals("urfivesix", IOUtils.toString(stream, UTF_8), "Did not correctly stream rest of chunks!");
+        }
+        assertEquals(0, opened.indexOf(2), "Skipped chunks should not have been opened!");
+    }
+
+    @Test
+    void shouldSkipOnlyToTheEnd() throws IOException {
+        try (InputStream stream = testStream()) {
+            assertEquals(22, stream.skip(100), "Skipped past the end of the chunks!");
+            assertEquals(-1, stream.read(), "Stream should have been exhausted!");
+        }
+    }
+
+    @Test
+    void shouldFulfillSkipContractEdges() throws IOException {
+        try (InputStream stream = testStream()) {
+            assertEquals(0, stream.skip(0));
+            assertEquals(0, stream.skip(-1));
+        }
+    }
+
+    @Test
+    void shouldFulfillReadContractEdges() throws IOException {
+        try (InputStream stream = testStream()) {
+            assertThrows(IndexOutOfBoundsException.class, () -> stream.read(new byte[0], 0, -1));
+            assertThrows(IndexOutOfBoundsException.class, () -> stream.read(new byte[0], -1, 10));
+            assertThrows(IndexOutOfBoundsException.class, () -> stream.read(new byte[5], 2, 10));
+            assertEquals(0, stream.read(new byte[5], 2, 0));
+        }
+    }
+
+    @Test
+    void shouldTransferAllChunks() throws IOException {
+        try (ChunkSequenceInputStream stream = testStream();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            stream.read();
+            assertEquals(21, stream.transferTo(out), "Wrong number of bytes transferred!");
+            assertEquals("netwothreefourfivesix", out.toString(UTF_8.name()), "Wrong bytes transferred!");
+        }
+    }
+}
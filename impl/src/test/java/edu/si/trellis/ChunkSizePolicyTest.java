@@ -0,0 +1,64 @@
+package edu.si.trellis;
+
+import static edu.si.trellis.ChunkSizePolicy.CONTENT_LENGTH_HINT;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.trellisldp.api.BinaryMetadata.builder;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.jupiter.api.Test;
+import org.trellisldp.api.BinaryMetadata;
+
+class ChunkSizePolicyTest {
+
+    private static final int KIB = 1024, MIB = 1024 * KIB;
+
+    private final IRI testId = new SimpleRDF().createIRI("urn:test");
+
+    private final ChunkSizePolicy testPolicy = new ChunkSizePolicy(MIB, 4 * KIB, 8 * MIB);
+
+    private BinaryMetadata sized(long length, String mimeType) {
+        return builder(testId).mimeType(mimeType)
+                        .hints(singletonMap(CONTENT_LENGTH_HINT, singletonList(Long.toString(length)))).build();
+    }
+
+    @Test
+    void unknownLengthShouldGetDefaultChunks() {
+        assertEquals(MIB, testPolicy.chunkLength(builder(testId).build()), "Wrong chunk length!");
+    }
+
+    @Test
+    void smallBinaryShouldFitOneChunk() {
+        assertEquals(100 * KIB, testPolicy.chunkLength(sized(100 * KIB, null)), "Wrong chunk length!");
+        assertEquals(4 * KIB, testPolicy.chunkLength(sized(10, null)), "Chunk shorter than smallest!");
+    }
+
+    @Test
+    void hugeBinaryShouldGetLongerChunks() {
+        assertEquals(MIB, testPolicy.chunkLength(sized(100L * MIB, null)), "Wrong chunk length!");
+        assertEquals(4 * MIB, testPolicy.chunkLength(sized(3L * 1024 * MIB, null)), "Wrong chunk length!");
+        assertEquals(8 * MIB, testPolicy.chunkLength(sized(100L * 1024 * MIB, null)), "Chunk longer than largest!");
+    }
+
+    @Test
+    void rangeReadMediaShouldKeepDefaultChunks() {
+        assertEquals(MIB, testPolicy.chunkLength(sized(100L * 1024 * MIB, "video/mp4")), "Wrong chunk length!");
+    }
+
+    @Test
+    void slowWritesShouldLimitChunkGrowth() {
+        testPolicy.recordWrite(2 * MIB, 1_000_000_000L); // 2 MiB per second, 512 KiB in 250 ms
+        assertEquals(MIB, testPolicy.chunkLength(sized(100L * 1024 * MIB, null)), "Chunks should not have grown!");
+        for (int i = 0; i < 50; i++) testPolicy.recordWrite(64 * MIB, 1_000_000_000L);
+        assertEquals(8 * MIB, testPolicy.chunkLength(sized(100L * 1024 * MIB, null)), "Chunks should have grown!");
+    }
+
+    @Test
+    void unparseableLengthShouldBeIgnored() {
+        BinaryMetadata meta = builder(testId)
+                        .hints(singletonMap(CONTENT_LENGTH_HINT, singletonList("many bytes"))).build();
+        assertEquals(MIB, testPolicy.chunkLength(meta), "Wrong chunk length!");
+    }
+}
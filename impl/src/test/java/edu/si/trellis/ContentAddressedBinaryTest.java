@@ -0,0 +1,74 @@
+package edu.si.trellis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import edu.si.trellis.query.binary.ReadStoredChunks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ContentAddressedBinaryTest {
+
+    private final IRI testId = new SimpleRDF().createIRI("urn:test");
+
+    private final ByteBuffer hash1 = ByteBuffer.wrap(new byte[] { 1 }), hash2 = ByteBuffer.wrap(new byte[] { 2 }),
+                    hash3 = ByteBuffer.wrap(new byte[] { 3 });
+
+    private final List<ByteBuffer> hashes = asList(hash1, hash2, hash3);
+
+    @Mock
+    private ReadStoredChunks mockReadChunks;
+
+    private ContentAddressedBinary testBinary() {
+        return new ContentAddressedBinary(testId, mockReadChunks, hashes, asList(3, 5, 2), emptyMap());
+    }
+
+    @Test
+    void mismatchedChunks() {
+        assertThrows(IllegalArgumentException.class,
+                        () -> new ContentAddressedBinary(testId, mockReadChunks, hashes, asList(3, 5), emptyMap()));
+    }
+
+    @Test
+    void sizeShouldSumChunkLengths() {
+        assertEquals(10L, (long) testBinary().getSize().get(), "Wrong size!");
+    }
+
+    @Test
+    void rangeShouldReadOnlyChunksItSpans() throws IOException {
+        when(mockReadChunks.execute(any(), any())).thenAnswer(inv -> {
+            assertEquals(asList(hash2), inv.getArgument(0), "Wrong chunks read!");
+            return new ByteArrayInputStream("fghij".getBytes(UTF_8));
+        });
+        try (InputStream content = testBinary().getContent(4, 6).toCompletableFuture().join()) {
+            assertEquals("ghi", IOUtils.toString(content, UTF_8), "Wrong bytes in range!");
+        }
+    }
+
+    @Test
+    void rangeBeyondSizeShouldBeEmpty() throws IOException {
+        try (InputStream content = testBinary().getContent(10, 20).toCompletableFuture().join()) {
+            assertEquals(-1, content.read(), "Range beyond end of binary should have no bytes!");
+        }
+        verifyZeroInteractions(mockReadChunks);
+    }
+}
@@ -0,0 +1,73 @@
+package edu.si.trellis;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class ContentDefinedChunkerTest {
+
+    private static final int maxChunkLength = 1024;
+
+    private static List<byte[]> chunks(byte[] data) throws IOException {
+        ContentDefinedChunker chunker = new ContentDefinedChunker(new ByteArrayInputStream(data), maxChunkLength);
+        List<byte[]> chunks = new ArrayList<>();
+        for (byte[] chunk; (chunk = chunker.next()) != null;) chunks.add(chunk);
+        return chunks;
+    }
+
+    @Test
+    void badMaxChunkLength() {
+        assertThrows(IllegalArgumentException.class,
+                        () -> new ContentDefinedChunker(new ByteArrayInputStream(new byte[0]), 3));
+    }
+
+    @Test
+    void emptyStreamShouldHaveNoChunks() throws IOException {
+        assertNull(new ContentDefinedChunker(new ByteArrayInputStream(new byte[0]), maxChunkLength).next(),
+                        "Empty stream should have no chunks!");
+    }
+
+    @Test
+    void chunksShouldReassembleWithinBounds() throws IOException {
+        byte[] data = new byte[100_000];
+        new Random(1).nextBytes(data);
+        List<byte[]> chunks = chunks(data);
+        ByteArrayOutputStream reassembled = new ByteArrayOutputStream();
+        for (int i = 0; i < chunks.size(); i++) {
+            byte[] chunk = chunks.get(i);
+            assertTrue(chunk.length <= maxChunkLength, "Chunk longer than maximum!");
+            if (i < chunks.size() - 1) assertTrue(chunk.length >= maxChunkLength / 4, "Chunk shorter than minimum!");
+            reassembled.write(chunk);
+        }
+        assertArrayEquals(data, reassembled.toByteArray(), "Chunks did not reassemble to the original data!");
+    }
+
+    @Test
+    void insertionShouldPreserveMostChunks() throws IOException {
+        byte[] original = new byte[100_000];
+        new Random(2).nextBytes(original);
+        byte[] edited = new byte[original.length + 10];
+        System.arraycopy(original, 0, edited, 0, 50_000);
+        System.arraycopy(original, 50_000, edited, 50_010, 50_000);
+
+        Set<ByteBuffer> originalChunks = new HashSet<>();
+        for (byte[] chunk : chunks(original)) originalChunks.add(ByteBuffer.wrap(chunk));
+        List<byte[]> editedChunks = chunks(edited);
+        long shared = editedChunks.stream().filter(chunk -> originalChunks.contains(ByteBuffer.wrap(chunk))).count();
+        // only the chunks around the insertion should differ
+        assertTrue(shared >= editedChunks.size() - 4, "Too few chunks survived a small insertion!");
+    }
+}
@@ -1,6 +1,8 @@
 package edu.si.trellis;
 
 import static edu.si.trellis.DatasetCodec.datasetCodec;
+import static edu.si.trellis.DatasetCodec.writing;
+import static edu.si.trellis.DatasetFormat.TERM_TABLE;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -12,6 +14,7 @@ import java.nio.ByteBuffer;
 import java.util.Optional;
 import java.util.stream.Stream;
 
+import org.apache.commons.rdf.api.BlankNode;
 import org.apache.commons.rdf.api.BlankNodeOrIRI;
 import org.apache.commons.rdf.api.Dataset;
 import org.apache.commons.rdf.api.Graph;
@@ -27,6 +30,8 @@ class DatasetCodecTest {
 
     private static final RDF rdf = new SimpleRDF();
 
+    private static final DatasetCodec termTableCodec = writing(TERM_TABLE);
+
     @Test
     void badParse() {
         assertThrows(InvalidTypeException.class, () -> datasetCodec.parse("SGDF   &&$$$dfshgou;sdfhgoudfhogh"));
@@ -115,6 +120,60 @@ class DatasetCodecTest {
         assertThrows(InvalidTypeException.class, () -> datasetCodec.serialize(new BadDataset(), null));
     }
 
+    @Test
+    void termTableRoundTrip() throws Exception {
+        IRI xsdInt = iri("http://www.w3.org/2001/XMLSchema#int");
+        Quad q1 = quad(iri("g"), iri("s"), iri("p"), rdf.createLiteral("line one\nline \\two\r", "en"));
+        Quad q2 = quad(null, iri("s"), iri("p"), rdf.createLiteral("7", xsdInt));
+        Quad q3 = quad(iri("g"), iri("s1"), xsdInt, rdf.createLiteral("caf\u00e9"));
+        try (Dataset dataset = rdf.createDataset()) {
+            for (Quad q : new Quad[] { q1, q2, q3 })
+                dataset.add(q);
+            ByteBuffer bytes = termTableCodec.serialize(dataset, null);
+            assertEquals(TermTable.MARKER, bytes.get(0), "Term table should begin with its marker!");
+            try (Dataset read = termTableCodec.deserialize(bytes, null)) {
+                assertEquals(3, read.size());
+                for (Quad q : new Quad[] { q1, q2, q3 })
+                    assertTrue(read.contains(q), "Missing " + q);
+            }
+            try (Dataset parsed = datasetCodec.parse(termTableCodec.format(dataset))) {
+                assertEquals(3, parsed.size(), "Term table should be readable whatever format is written!");
+            }
+        }
+    }
+
+    @Test
+    void termTableBlankNodes() throws Exception {
+        BlankNode b = rdf.createBlankNode();
+        try (Dataset dataset = rdf.createDataset()) {
+            dataset.add(quad(null, b, iri("p"), iri("o")));
+            dataset.add(quad(null, iri("s"), iri("p"), b));
+            try (Dataset read = termTableCodec.deserialize(termTableCodec.serialize(dataset, null), null)) {
+                RDFTerm subject = read.stream(Optional.empty(), null, iri("p"), iri("o")).findFirst().get()
+                                .getSubject();
+                RDFTerm object = read.stream(Optional.empty(), iri("s"), iri("p"), null).findFirst().get()
+                                .getObject();
+                assertTrue(subject instanceof BlankNode, "Should have read a blank node!");
+                assertEquals(subject, object, "Should have read the same blank node twice!");
+            }
+        }
+    }
+
+    @Test
+    void nQuadsReadByTermTableCodec() throws Exception {
+        ByteBuffer nQuads = ByteBuffer.wrap("<s> <p> <o> <g> .\n<s1> <p1> \"foo\" .".getBytes(UTF_8));
+        try (Dataset dataset = termTableCodec.deserialize(nQuads, null)) {
+            assertEquals(2, dataset.size());
+            assertTrue(dataset.contains(quad(iri("g"), iri("s"), iri("p"), iri("o"))));
+        }
+    }
+
+    @Test
+    void badTermTable() {
+        ByteBuffer bytes = ByteBuffer.wrap("\u0001<s>\n<p>\n\n0 1 9\n".getBytes(UTF_8));
+        assertThrows(InvalidTypeException.class, () -> termTableCodec.deserialize(bytes, null));
+    }
+
     private Quad quad(BlankNodeOrIRI g, BlankNodeOrIRI s, IRI p, RDFTerm o) {
         return rdf.createQuad(g, s, p, o);
     }
@@ -0,0 +1,61 @@
+package edu.si.trellis;
+
+import static edu.si.trellis.DatasetFormat.NQUADS;
+import static edu.si.trellis.DatasetFormat.TERM_TABLE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.jupiter.api.Test;
+
+class DatasetFormatTest {
+
+    private static final RDF rdf = new SimpleRDF();
+
+    @Test
+    void formatShouldBeKnownByMarker() {
+        assertEquals(TERM_TABLE, DatasetFormat.of(ByteBuffer.wrap(new byte[] { TermTable.MARKER })));
+        assertEquals(NQUADS, DatasetFormat.of(ByteBuffer.wrap("<s> <p> <o> .".getBytes(UTF_8))));
+    }
+
+    @Test
+    void decodeShouldReadEitherFormat() throws Exception {
+        Quad quad = rdf.createQuad(rdf.createIRI("g"), rdf.createIRI("s"), rdf.createIRI("p"),
+                        rdf.createLiteral("o"));
+        try (Dataset dataset = rdf.createDataset()) {
+            dataset.add(quad);
+            for (DatasetFormat format : DatasetFormat.values()) {
+                ByteBuffer bytes = ByteBuffer.wrap(format.write(dataset));
+                Iterator<Quad> quads = DatasetFormat.decode(bytes);
+                assertEquals(quad, quads.next(), "Wrong quad decoded from " + format);
+                assertFalse(quads.hasNext(), "Too many quads decoded from " + format);
+                assertEquals(0, bytes.position(), "Decoding should not have moved the buffer!");
+            }
+        }
+    }
+
+    @Test
+    void decodeShouldParseOnlyAsQuadsAreReached() {
+        ByteBuffer bytes = ByteBuffer.wrap("\u0001<s>\n<p>\n\n0 1 0\n0 1 9\n".getBytes(UTF_8));
+        Iterator<Quad> quads = DatasetFormat.decode(bytes);
+        assertEquals(rdf.createIRI("s"), quads.next().getSubject(), "Wrong first quad!");
+        assertTrue(quads.hasNext(), "Should have another quad!");
+        assertThrows(InvalidTypeException.class, quads::next);
+    }
+
+    @Test
+    void decodeNothing() {
+        assertFalse(DatasetFormat.decode(null).hasNext());
+    }
+}
@@ -0,0 +1,165 @@
+package edu.si.trellis;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.utils.UUIDs;
+
+import edu.si.trellis.query.binary.PurgeQueue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class DeferredPurgerTest {
+
+    private static final IRI testId = new SimpleRDF().createIRI("urn:test"),
+                    otherId = new SimpleRDF().createIRI("urn:other");
+
+    @Mock
+    private PurgeQueue mockQueue;
+
+    @Mock
+    private CassandraBinaryService mockBinaryService;
+
+    private DeferredPurger purger;
+
+    @BeforeEach
+    void setUp() {
+        purger = new DeferredPurger(mockQueue, mockBinaryService, true, 2);
+        lenient().when(mockQueue.drained(anyInt())).thenReturn(completedFuture(null));
+    }
+
+    @Test
+    void requestsShouldBeCarriedOutAndProgressRecorded() {
+        UUID first = UUIDs.timeBased(), second = UUIDs.timeBased();
+        when(mockQueue.next(anyInt(), isNull(), anyLong(), eq(2)))
+                        .thenReturn(completedFuture(asList(request(testId, first), request(otherId, second))));
+        when(mockBinaryService.purgeContentNow(any())).thenReturn(completedFuture(null));
+        when(mockQueue.markDrained(anyInt(), eq(second))).thenReturn(completedFuture(null));
+
+        purger.drain();
+
+        verify(mockBinaryService).purgeContentNow(testId);
+        verify(mockBinaryService).purgeContentNow(otherId);
+        verify(mockQueue).markDrained(anyInt(), eq(second));
+        assertEquals(2, purger.purged(), "Should have counted the purges!");
+    }
+
+    @Test
+    void drainingShouldPickUpAfterLastRequestCarriedOut() {
+        UUID first = UUIDs.timeBased();
+        when(mockQueue.next(anyInt(), isNull(), anyLong(), eq(2)))
+                        .thenReturn(completedFuture(asList(request(testId, first), request(otherId, first))));
+        when(mockBinaryService.purgeContentNow(any())).thenReturn(completedFuture(null));
+        when(mockQueue.markDrained(anyInt(), eq(first))).thenReturn(completedFuture(null));
+        when(mockQueue.next(anyInt(), eq(first), anyLong(), eq(2))).thenReturn(completedFuture(emptyList()));
+
+        purger.drain();
+        purger.drain();
+
+        verify(mockQueue).next(anyInt(), eq(first), anyLong(), eq(2));
+    }
+
+    @Test
+    void exhaustedDayShouldBeLeftForTheNext() {
+        when(mockQueue.next(anyInt(), isNull(), anyLong(), eq(2))).thenReturn(completedFuture(emptyList()));
+
+        purger.drain();
+
+        // once to start from the oldest day kept, then again to move on to the next day
+        verify(mockQueue, times(2)).drained(anyInt());
+        verify(mockQueue, never()).markDrained(anyInt(), any());
+    }
+
+    @Test
+    void failedPurgeShouldBeQueuedAgainAndDrainingGoOn() {
+        UUID first = UUIDs.timeBased(), second = UUIDs.timeBased();
+        when(mockQueue.next(anyInt(), isNull(), anyLong(), eq(2)))
+                        .thenReturn(completedFuture(asList(request(testId, first), request(otherId, second))));
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new IllegalStateException("Expected"));
+        when(mockBinaryService.purgeContentNow(testId)).thenReturn(failure);
+        when(mockBinaryService.purgeContentNow(otherId)).thenReturn(completedFuture(null));
+        when(mockQueue.markDrained(anyInt(), eq(second))).thenReturn(completedFuture(null));
+        when(mockQueue.enqueue(testId, 1)).thenReturn(completedFuture(null));
+
+        purger.drain();
+
+        verify(mockQueue).enqueue(testId, 1);
+        assertEquals(1, purger.failures(), "Should have counted the failure!");
+        assertEquals(1, purger.purged(), "Should have gone on to the next request!");
+    }
+
+    @Test
+    void purgeFailingEveryAttemptShouldBeAbandoned() {
+        UUID first = UUIDs.timeBased();
+        when(mockQueue.next(anyInt(), isNull(), anyLong(), eq(2)))
+                        .thenReturn(completedFuture(asList(request(testId, first, DeferredPurger.MAX_ATTEMPTS - 1))));
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new IllegalStateException("Expected"));
+        when(mockBinaryService.purgeContentNow(testId)).thenReturn(failure);
+        when(mockQueue.markDrained(anyInt(), eq(first))).thenReturn(completedFuture(null));
+
+        purger.drain();
+
+        verify(mockQueue, never()).enqueue(any(), anyInt());
+        assertEquals(1, purger.failures(), "Should have counted the failure!");
+    }
+
+    @Test
+    void failureToQueueAgainShouldLeaveRequestToBeRetried() {
+        UUID first = UUIDs.timeBased();
+        when(mockQueue.next(anyInt(), isNull(), anyLong(), eq(2)))
+                        .thenReturn(completedFuture(asList(request(testId, first))));
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new IllegalStateException("Expected"));
+        when(mockBinaryService.purgeContentNow(testId)).thenReturn(failure);
+        when(mockQueue.enqueue(testId, 1)).thenReturn(failure);
+
+        purger.drain();
+        purger.drain();
+
+        verify(mockQueue, times(2)).next(anyInt(), isNull(), anyLong(), eq(2));
+        verify(mockQueue, never()).markDrained(anyInt(), any());
+    }
+
+    @Test
+    void nonPositiveRateShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new DeferredPurger(mockQueue, mockBinaryService, true, 0));
+    }
+
+    private static Row request(IRI id, UUID requested) {
+        return request(id, requested, 0);
+    }
+
+    private static Row request(IRI id, UUID requested, int attempts) {
+        Row row = mock(Row.class);
+        lenient().when(row.get("identifier", IRI.class)).thenReturn(id);
+        lenient().when(row.getUUID("requested")).thenReturn(requested);
+        lenient().when(row.getInt("attempts")).thenReturn(attempts);
+        return row;
+    }
+}
@@ -0,0 +1,117 @@
+package edu.si.trellis;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+class IngestBudgetTest {
+
+    @Test
+    void spentBudgetShouldWaitForRelease() throws InterruptedException {
+        IngestBudget budget = new IngestBudget(100);
+        assertEquals(60, budget.acquire(60), "Wrong bytes taken!");
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiting = new Thread(() -> {
+            try {
+                budget.acquire(60);
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiting.start();
+        assertFalse(acquired.await(200, MILLISECONDS), "Should have waited for budget!");
+        budget.release(60);
+        assertTrue(acquired.await(5, SECONDS), "Should have taken budget once given back!");
+        assertEquals(60, budget.inUse(), "Wrong budget in use!");
+        assertEquals(1, budget.waits(), "Wait should have been counted!");
+        assertTrue(budget.waitedNanos() > 0, "Wait time should have been counted!");
+    }
+
+    @Test
+    void asyncRequestsShouldBeGrantedInOrderOnRelease() throws InterruptedException {
+        IngestBudget budget = new IngestBudget(100);
+        assertEquals(60, (long) budget.acquireAsync(60).join(), "Wrong bytes taken!");
+        CompletableFuture<Long> first = budget.acquireAsync(50), second = budget.acquireAsync(10);
+        assertFalse(first.isDone(), "Should have waited for budget!");
+        assertFalse(second.isDone(), "Should not have been granted ahead of an earlier request!");
+        budget.release(60);
+        assertEquals(50, (long) first.join(), "Wrong bytes granted!");
+        assertEquals(10, (long) second.join(), "Wrong bytes granted!");
+        assertEquals(60, budget.inUse(), "Wrong budget in use!");
+        assertEquals(2, budget.waits(), "Waits should have been counted!");
+    }
+
+    @Test
+    void blockingRequestShouldNotOvertakeWaitingAsyncRequest() throws InterruptedException {
+        IngestBudget budget = new IngestBudget(100);
+        assertEquals(60, budget.acquire(60), "Wrong bytes taken!");
+        CompletableFuture<Long> first = budget.acquireAsync(50);
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiting = new Thread(() -> {
+            try {
+                budget.acquire(10);
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiting.start();
+        assertFalse(acquired.await(200, MILLISECONDS), "Should not have been granted ahead of an earlier request!");
+        budget.release(60);
+        assertEquals(50, (long) first.join(), "Wrong bytes granted!");
+        assertTrue(acquired.await(5, SECONDS), "Should have taken budget once the earlier request was granted!");
+        assertEquals(60, budget.inUse(), "Wrong budget in use!");
+    }
+
+    @Test
+    void interruptedRequestShouldGiveUpItsPlace() throws Exception {
+        IngestBudget budget = new IngestBudget(100);
+        assertEquals(60, budget.acquire(60), "Wrong bytes taken!");
+        Thread waiting = new Thread(() -> {
+            try {
+                budget.acquire(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiting.start();
+        while (budget.waits() == 0) Thread.sleep(10); // until the blocking request is in line
+        CompletableFuture<Long> second = budget.acquireAsync(40);
+        assertFalse(second.isDone(), "Should not have been granted ahead of an earlier request!");
+        waiting.interrupt();
+        waiting.join(5000);
+        assertEquals(40, (long) second.get(5, SECONDS), "Should have been granted once the earlier request gave up!");
+        assertEquals(100, budget.inUse(), "Wrong budget in use!");
+    }
+
+    @Test
+    void oversizedRequestShouldTakeWholeBudget() throws InterruptedException {
+        IngestBudget budget = new IngestBudget(100);
+        assertEquals(100, budget.acquire(1000), "Oversized request should take the whole budget!");
+        assertEquals(100, budget.inUse(), "Wrong budget in use!");
+        budget.release(100);
+        assertEquals(0, budget.inUse(), "Budget should have been given back!");
+    }
+
+    @Test
+    void unlimitedBudgetShouldNeverWait() throws InterruptedException {
+        IngestBudget budget = new IngestBudget(0);
+        assertEquals(0, budget.acquire(Long.MAX_VALUE), "Unlimited budget should take nothing!");
+        budget.release(0);
+        assertEquals(0, budget.waits(), "Unlimited budget should never wait!");
+    }
+
+    @Test
+    void negativeBudgetShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new IngestBudget(-1));
+    }
+}
@@ -0,0 +1,98 @@
+package edu.si.trellis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+class InlineBinaryTest {
+
+    private final IRI testId = new SimpleRDF().createIRI("urn:test");
+
+    private final ByteBuffer testContent = ByteBuffer.wrap("abcdefghij".getBytes(UTF_8));
+
+    @Test
+    void contentShouldBeServedWhole() throws IOException {
+        InlineBinary binary = new InlineBinary(testId, testContent, emptyMap());
+        assertEquals(10L, (long) binary.getSize().get(), "Wrong size!");
+        try (InputStream content = binary.getContent().toCompletableFuture().join()) {
+            assertEquals("abcdefghij", IOUtils.toString(content, UTF_8), "Wrong content!");
+        }
+    }
+
+    @Test
+    void rangeShouldBeServedFromContent() throws IOException {
+        InlineBinary binary = new InlineBinary(testId, testContent, emptyMap());
+        try (InputStream content = binary.getContent(4, 6).toCompletableFuture().join()) {
+            assertEquals("efg", IOUtils.toString(content, UTF_8), "Wrong bytes in range!");
+        }
+        try (InputStream content = binary.getContent(8, 100).toCompletableFuture().join()) {
+            assertEquals("ij", IOUtils.toString(content, UTF_8), "Range should stop at end of content!");
+        }
+        try (InputStream content = binary.getContent(10, 12).toCompletableFuture().join()) {
+            assertEquals(-1, content.read(), "Range beyond content should be empty!");
+        }
+    }
+
+    @Test
+    void rangeShouldBePublishedFromContent() {
+        InlineBinary binary = new InlineBinary(testId, testContent, emptyMap());
+        assertEquals("efg", published(binary.getContentPublisher(4, 6)), "Wrong bytes in range!");
+        assertEquals("ij", published(binary.getContentPublisher(8, Integer.MAX_VALUE)),
+                        "Open range should stop at end of content!");
+        assertEquals("", published(binary.getContentPublisher(10, 12)), "Range beyond content should be empty!");
+    }
+
+    @Test
+    void digestShouldComeFromManifest() {
+        byte[] digest = new byte[] { 1, 2, 3 };
+        InlineBinary binary = new InlineBinary(testId, testContent, singletonMap("SHA-256", digest));
+        assertArrayEquals(digest, binary.getDigest("sha-256").get(), "Wrong digest!");
+        assertFalse(binary.getDigest("MD5").isPresent(), "Digest should not have been found!");
+    }
+
+    private static String published(Publisher<ByteBuffer> publisher) {
+        StringBuilder received = new StringBuilder();
+        CompletableFuture<String> done = new CompletableFuture<>();
+        publisher.subscribe(new Subscriber<ByteBuffer>() {
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer buffer) {
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                received.append(new String(bytes, UTF_8));
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                done.completeExceptionally(e);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(received.toString());
+            }
+        });
+        return done.join();
+    }
+}
@@ -0,0 +1,180 @@
+package edu.si.trellis;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.datastax.driver.core.Row;
+
+import edu.si.trellis.query.binary.Delete;
+import edu.si.trellis.query.binary.Insert;
+import edu.si.trellis.query.binary.RecordManifest;
+import edu.si.trellis.query.binary.UploadParts;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class MultipartUploadsTest {
+
+    private static final int testChunkSize = 10;
+
+    private final IRI testId = new SimpleRDF().createIRI("urn:test");
+
+    private final byte[] testData = new byte[25];
+
+    @Mock
+    private Insert mockInsert;
+
+    @Mock
+    private RecordManifest mockRecordManifest;
+
+    @Mock
+    private Delete mockDelete;
+
+    @Mock
+    private UploadParts mockUploadParts;
+
+    private MultipartUploads uploads;
+
+    @BeforeEach
+    void setup() {
+        lenient().doAnswer(inv -> {
+            ((Runnable) inv.getArgument(0)).run();
+            return null;
+        }).when(mockInsert).execute(any(Runnable.class));
+        CassandraBinaryService binaryService = new CassandraBinaryService(null,
+                        new ChunkSizePolicy(testChunkSize, 1, testChunkSize), 2, 0, asList("SHA-256"), false, 0, false,
+                        null, mockInsert, mockRecordManifest, mockDelete, null, null, null, null, null);
+        uploads = new MultipartUploads(binaryService, mockUploadParts, mockInsert, mockRecordManifest, mockDelete);
+    }
+
+    @Test
+    void partsShouldBeWrittenAtTheirChunkIndexes() {
+        when(mockUploadParts.get(testId)).thenReturn(completedFuture(asList(uploadRow(null, null, null))));
+        when(mockUploadParts.begin(testId, 1)).thenReturn(completedFuture(null));
+        List<Integer> indexes = new ArrayList<>();
+        when(mockInsert.buffer(testChunkSize)).thenAnswer(inv -> new byte[testChunkSize]);
+        when(mockInsert.execute(eq(testId), eq(testChunkSize), anyInt(), any(byte[].class), anyInt()))
+                        .thenAnswer(inv -> {
+                            indexes.add(inv.getArgument(2));
+                            return completedFuture(null);
+                        });
+        when(mockUploadParts.record(testId, 1, 20, 2)).thenReturn(completedFuture(null));
+        uploads.uploadPart(testId, 1, new ByteArrayInputStream(testData, 0, 20)).join();
+
+        assertEquals(asList(2, 3), indexes, "Part written at wrong chunk indexes!");
+        verify(mockUploadParts).record(testId, 1, 20, 2);
+    }
+
+    @Test
+    void partLongerThanPartLengthShouldNotLand() {
+        when(mockUploadParts.get(testId)).thenReturn(completedFuture(asList(uploadRow(null, null, null))));
+        when(mockUploadParts.begin(testId, 0)).thenReturn(completedFuture(null));
+        when(mockInsert.buffer(testChunkSize)).thenAnswer(inv -> new byte[testChunkSize]);
+        when(mockInsert.execute(eq(testId), eq(testChunkSize), anyInt(), any(byte[].class), anyInt()))
+                        .thenAnswer(inv -> {
+                            return completedFuture(null);
+                        });
+        CompletableFuture<Void> result = uploads.uploadPart(testId, 0, new ByteArrayInputStream(testData));
+
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertTrue(e.getCause() instanceof IllegalArgumentException, "Wrong cause for failure!");
+        verify(mockUploadParts, never()).record(any(), anyInt(), anyLong(), anyInt());
+    }
+
+    @Test
+    void completedUploadShouldRecordManifestOfLandedParts() {
+        when(mockUploadParts.get(testId)).thenReturn(completedFuture(asList(uploadRow(0, 20L, 2),
+                        uploadRow(1, 5L, 1), uploadRow(2, null, null))));
+        when(mockRecordManifest.execute(testId, testChunkSize, 0, 3, 25, emptyMap()))
+                        .thenReturn(completedFuture(null));
+        when(mockUploadParts.end(testId)).thenReturn(completedFuture(null));
+        uploads.completeUpload(testId).join();
+
+        verify(mockRecordManifest).execute(testId, testChunkSize, 0, 3, 25, emptyMap());
+        verify(mockUploadParts).end(testId);
+    }
+
+    @Test
+    void uploadMissingPartShouldNotComplete() {
+        when(mockUploadParts.get(testId)).thenReturn(completedFuture(asList(uploadRow(0, 20L, 2),
+                        uploadRow(2, 5L, 1))));
+        assertThrows(CompletionException.class, uploads.completeUpload(testId)::join);
+        verify(mockRecordManifest, never()).execute(any(), anyInt(), anyInt(), anyInt(), anyLong(), any());
+    }
+
+    @Test
+    void completedUploadShouldDeleteBucketsPastItsLastThatPartsBegunWroteTo() {
+        // the third part was begun and never landed, so it may have written to a third bucket
+        when(mockUploadParts.get(testId)).thenReturn(completedFuture(asList(uploadRow(2, 0, 20L, 2),
+                        uploadRow(2, 1, 5L, 1), uploadRow(2, 2, null, null))));
+        when(mockRecordManifest.execute(testId, testChunkSize, 2, 3, 25, emptyMap()))
+                        .thenReturn(completedFuture(null));
+        when(mockDelete.executeBucket(testId, 2)).thenReturn(completedFuture(null));
+        when(mockUploadParts.end(testId)).thenReturn(completedFuture(null));
+        uploads.completeUpload(testId).join();
+
+        verify(mockDelete).executeBucket(testId, 2);
+        verify(mockDelete, never()).executeBucket(testId, 1);
+        verify(mockUploadParts).end(testId);
+    }
+
+    @Test
+    void abortedUploadShouldPurgeEveryPartBegun() {
+        when(mockUploadParts.get(testId)).thenReturn(completedFuture(asList(uploadRow(0, 20L, 2),
+                        uploadRow(3, null, null))));
+        when(mockDelete.execute(testId, 0)).thenReturn(completedFuture(null));
+        when(mockUploadParts.end(testId)).thenReturn(completedFuture(null));
+        uploads.abortUpload(testId).join();
+
+        verify(mockDelete).execute(testId, 0);
+        verify(mockUploadParts).end(testId);
+    }
+
+    /**
+     * @return a row of a multipart upload in parts of two chunks, for a part that has landed if {@code length} is
+     *         given, or has not if {@code part} is
+     */
+    private static Row uploadRow(Integer part, Long length, Integer chunkCount) {
+        return uploadRow(0, part, length, chunkCount);
+    }
+
+    private static Row uploadRow(int chunksPerBucket, Integer part, Long length, Integer chunkCount) {
+        Row row = mock(Row.class);
+        lenient().when(row.getInt("chunkLength")).thenReturn(testChunkSize);
+        lenient().when(row.getInt("chunksPerPart")).thenReturn(2);
+        lenient().when(row.getInt("chunksPerBucket")).thenReturn(chunksPerBucket);
+        lenient().when(row.isNull("part")).thenReturn(part == null);
+        lenient().when(row.isNull("length")).thenReturn(length == null);
+        if (part != null) lenient().when(row.getInt("part")).thenReturn(part);
+        if (length != null) {
+            lenient().when(row.getLong("length")).thenReturn(length);
+            lenient().when(row.getInt("chunkCount")).thenReturn(chunkCount);
+        }
+        return row;
+    }
+}
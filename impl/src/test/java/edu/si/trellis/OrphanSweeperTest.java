@@ -0,0 +1,242 @@
+package edu.si.trellis;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.utils.UUIDs;
+
+import edu.si.trellis.query.binary.Delete;
+import edu.si.trellis.query.binary.OrphanScan;
+import edu.si.trellis.query.binary.StoredChunks;
+import java.nio.ByteBuffer;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class OrphanSweeperTest {
+
+    private static final IRI testId = new SimpleRDF().createIRI("urn:test");
+
+    private static final ByteBuffer testHash = ByteBuffer.wrap(new byte[] { 1, 2, 3 });
+
+    private static final OptionalLong longAgo = OptionalLong
+                    .of(MILLISECONDS.toMicros(currentTimeMillis() - HOURS.toMillis(1)));
+
+    private static final OptionalLong justNow = OptionalLong.of(MILLISECONDS.toMicros(currentTimeMillis()));
+
+    @Mock
+    private OrphanScan mockScan;
+
+    @Mock
+    private CassandraBinaryService mockBinaryService;
+
+    @Mock
+    private Delete mockDelete;
+
+    @Mock
+    private StoredChunks mockStoredChunks;
+
+    private OrphanSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        sweeper = new OrphanSweeper(mockScan, mockBinaryService, mockDelete, mockStoredChunks, 60, 2);
+    }
+
+    @Test
+    void unreferencedBinaryPastGracePeriodShouldBePurged() {
+        when(mockScan.scan(Long.MIN_VALUE, 2)).thenReturn(completedFuture(asList(binaryRow(testId, 7))));
+        when(mockScan.lastWritten(testId)).thenReturn(completedFuture(longAgo));
+        when(mockScan.referenced(testId)).thenReturn(completedFuture(false));
+        when(mockBinaryService.purgeContentNow(testId)).thenReturn(completedFuture(null));
+
+        sweeper.sweep();
+
+        verify(mockBinaryService).purgeContentNow(testId);
+        assertEquals(1, sweeper.purged(), "Should have counted the purge!");
+        assertEquals(1, sweeper.scanned(), "Should have counted the binary examined!");
+    }
+
+    @Test
+    void referencedBinaryShouldBeKept() {
+        when(mockScan.scan(Long.MIN_VALUE, 2)).thenReturn(completedFuture(asList(binaryRow(testId, 7))));
+        when(mockScan.lastWritten(testId)).thenReturn(completedFuture(longAgo));
+        when(mockScan.referenced(testId)).thenReturn(completedFuture(true));
+
+        sweeper.sweep();
+
+        verify(mockBinaryService, never()).purgeContentNow(any());
+        assertEquals(0, sweeper.purged(), "Should not have counted a purge!");
+    }
+
+    @Test
+    void binaryWithinGracePeriodShouldBeKept() {
+        when(mockScan.scan(Long.MIN_VALUE, 2)).thenReturn(completedFuture(asList(binaryRow(testId, 7))));
+        when(mockScan.lastWritten(testId)).thenReturn(completedFuture(justNow));
+
+        sweeper.sweep();
+
+        verify(mockScan, never()).referenced(any());
+        verify(mockBinaryService, never()).purgeContentNow(any());
+    }
+
+    @Test
+    void failedPurgeShouldBeCountedAndSweepingGoOn() {
+        IRI otherId = new SimpleRDF().createIRI("urn:other");
+        when(mockScan.scan(Long.MIN_VALUE, 2))
+                        .thenReturn(completedFuture(asList(binaryRow(testId, 7), binaryRow(otherId, 9))));
+        when(mockScan.lastWritten(any(IRI.class))).thenReturn(completedFuture(longAgo));
+        when(mockScan.referenced(any())).thenReturn(completedFuture(false));
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new IllegalStateException("Expected"));
+        when(mockBinaryService.purgeContentNow(testId)).thenReturn(failure);
+        when(mockBinaryService.purgeContentNow(otherId)).thenReturn(completedFuture(null));
+
+        sweeper.sweep();
+
+        assertEquals(1, sweeper.failures(), "Should have counted the failure!");
+        assertEquals(1, sweeper.purged(), "Should have gone on to purge the next binary!");
+        assertEquals(2, sweeper.scanned(), "Should have counted both binaries examined!");
+    }
+
+    @Test
+    void bucketWithoutBinaryShouldBePurged() {
+        when(mockScan.scan(Long.MIN_VALUE, 2)).thenReturn(completedFuture(emptyList()));
+        sweeper.sweep(); // end of binarydata
+        when(mockScan.scanBuckets(Long.MIN_VALUE, 2)).thenReturn(completedFuture(asList(bucketRow(testId, 3, 7))));
+        when(mockScan.lastWritten(testId)).thenReturn(completedFuture(OptionalLong.empty()));
+        when(mockScan.lastWritten(testId, 3)).thenReturn(completedFuture(longAgo));
+        when(mockScan.referenced(testId)).thenReturn(completedFuture(false));
+        when(mockDelete.executeBucket(testId, 3)).thenReturn(completedFuture(null));
+
+        sweeper.sweep();
+
+        verify(mockDelete).executeBucket(testId, 3);
+        assertEquals(1, sweeper.purged(), "Should have counted the purge!");
+    }
+
+    @Test
+    void bucketOfRecordedBinaryShouldBeLeftToItsBinary() {
+        when(mockScan.scan(Long.MIN_VALUE, 2)).thenReturn(completedFuture(emptyList()));
+        sweeper.sweep(); // end of binarydata
+        when(mockScan.scanBuckets(Long.MIN_VALUE, 2)).thenReturn(completedFuture(asList(bucketRow(testId, 3, 7))));
+        when(mockScan.lastWritten(testId)).thenReturn(completedFuture(longAgo));
+
+        sweeper.sweep();
+
+        verify(mockDelete, never()).executeBucket(any(), anyInt());
+    }
+
+    @Test
+    void unreferencedChunkPastGracePeriodShouldBeReclaimed() {
+        skipToChunks();
+        UUID touched = UUIDs.startOf(currentTimeMillis() - HOURS.toMillis(1));
+        when(mockScan.scanChunks(Long.MIN_VALUE, 2)).thenReturn(completedFuture(asList(chunkRow(touched, 7))));
+        when(mockScan.chunkReferenced(testHash)).thenReturn(completedFuture(false));
+        when(mockStoredChunks.reclaim(testHash, touched)).thenReturn(completedFuture(true));
+
+        sweeper.sweep();
+
+        verify(mockStoredChunks).reclaim(testHash, touched);
+        assertEquals(1, sweeper.purged(), "Should have counted the chunk reclaimed!");
+    }
+
+    @Test
+    void chunkTouchedMeanwhileShouldNotBeCounted() {
+        skipToChunks();
+        when(mockScan.scanChunks(Long.MIN_VALUE, 2)).thenReturn(completedFuture(asList(chunkRow(null, 7))));
+        when(mockScan.chunkReferenced(testHash)).thenReturn(completedFuture(false));
+        when(mockStoredChunks.reclaim(testHash, null)).thenReturn(completedFuture(false));
+
+        sweeper.sweep();
+
+        assertEquals(0, sweeper.purged(), "Should not have counted a chunk that was left in place!");
+    }
+
+    @Test
+    void referencedOrRecentlyTouchedChunkShouldBeKept() {
+        skipToChunks();
+        UUID justTouched = UUIDs.startOf(currentTimeMillis());
+        Row referenced = chunkRow(null, 7), recent = chunkRow(justTouched, 9);
+        when(mockScan.scanChunks(Long.MIN_VALUE, 2)).thenReturn(completedFuture(asList(referenced, recent)));
+        when(mockScan.chunkReferenced(testHash)).thenReturn(completedFuture(true));
+
+        sweeper.sweep();
+
+        verify(mockScan).chunkReferenced(testHash);
+        verify(mockStoredChunks, never()).reclaim(any(), any());
+    }
+
+    @Test
+    void sweepingShouldCoverAllTablesAndStartOver() {
+        Row first = binaryRow(testId, 0), second = binaryRow(testId, 100);
+        when(mockScan.scan(Long.MIN_VALUE, 2)).thenReturn(completedFuture(asList(first, second)));
+        when(mockScan.scan(100, 2)).thenReturn(completedFuture(emptyList()));
+        when(mockScan.scanBuckets(anyLong(), eq(2))).thenReturn(completedFuture(emptyList()));
+        when(mockScan.scanChunks(anyLong(), eq(2))).thenReturn(completedFuture(emptyList()));
+        when(mockScan.lastWritten(testId)).thenReturn(completedFuture(justNow));
+
+        sweeper.sweep();
+        assertEquals(1 / 6.0, sweeper.progress(), 0.001, "Should be halfway through binarydata!");
+        sweeper.sweep();
+        assertEquals(1 / 3.0, sweeper.progress(), 0.001, "Should have moved on to binarybuckets!");
+        sweeper.sweep();
+        assertEquals(2 / 3.0, sweeper.progress(), 0.001, "Should have moved on to chunkstore!");
+        sweeper.sweep();
+        assertEquals(0, sweeper.progress(), 0.001, "Should have started over!");
+        assertEquals(1, sweeper.passes(), "Should have counted the pass!");
+        verify(mockScan).scan(100, 2);
+    }
+
+    private static Row binaryRow(IRI id, long token) {
+        Row row = mock(Row.class);
+        lenient().when(row.get("identifier", IRI.class)).thenReturn(id);
+        lenient().when(row.getLong("token")).thenReturn(token);
+        return row;
+    }
+
+    private void skipToChunks() {
+        when(mockScan.scan(Long.MIN_VALUE, 2)).thenReturn(completedFuture(emptyList()));
+        when(mockScan.scanBuckets(Long.MIN_VALUE, 2)).thenReturn(completedFuture(emptyList()));
+        sweeper.sweep(); // end of binarydata
+        sweeper.sweep(); // end of binarybuckets
+    }
+
+    private static Row chunkRow(UUID touched, long token) {
+        Row row = mock(Row.class);
+        lenient().when(row.getBytes("hash")).thenReturn(testHash);
+        lenient().when(row.getUUID("touched")).thenReturn(touched);
+        lenient().when(row.getLong("token")).thenReturn(token);
+        return row;
+    }
+
+    private static Row bucketRow(IRI id, int bucket, long token) {
+        Row row = binaryRow(id, token);
+        lenient().when(row.getInt("bucket")).thenReturn(bucket);
+        return row;
+    }
+}
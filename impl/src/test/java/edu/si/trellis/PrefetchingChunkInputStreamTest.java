@@ -0,0 +1,107 @@
+package edu.si.trellis;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("resource")
+class PrefetchingChunkInputStreamTest {
+
+    @Mock
+    private Session mockSession;
+
+    @Mock
+    private BoundStatement mockQuery1, mockQuery2, mockQuery3;
+
+    @Mock
+    private ResultSetFuture mockFuture1, mockFuture2;
+
+    @Mock
+    private ResultSet mockResultSet;
+
+    @Mock
+    private Row mockRow;
+
+    @Test
+    void badReadAhead() {
+        assertThrows(IllegalArgumentException.class,
+                        () -> new PrefetchingChunkInputStream(mockSession, asList(mockQuery1), 1, -1));
+    }
+
+    @Test
+    void readingAChunkShouldPrefetchTheNext() throws IOException {
+        when(mockSession.executeAsync(mockQuery1)).thenReturn(mockFuture1);
+        when(mockSession.executeAsync(mockQuery2)).thenReturn(mockFuture2);
+        when(mockFuture1.getUninterruptibly()).thenReturn(mockResultSet);
+        when(mockResultSet.one()).thenReturn(mockRow);
+        when(mockRow.get("chunk", InputStream.class)).thenReturn(new ByteArrayInputStream(new byte[] { 1 }));
+
+        PrefetchingChunkInputStream testStream = new PrefetchingChunkInputStream(mockSession,
+                        asList(mockQuery1, mockQuery2, mockQuery3), 1, 1);
+        assertEquals(1, testStream.read(), "Wrong byte from chunk!");
+        verify(mockSession).executeAsync(mockQuery2);
+        verify(mockSession, never()).executeAsync(mockQuery3);
+
+        testStream.close();
+        verify(mockFuture2).cancel(true);
+    }
+
+    @Test
+    void cachedChunksShouldNotBeFetched() throws IOException {
+        ChunkCache cache = new ChunkCache(100, 0, "");
+        cache.put("one", ByteBuffer.wrap(new byte[] { 1 }));
+        when(mockSession.executeAsync(mockQuery2)).thenReturn(mockFuture2);
+        when(mockFuture2.getUninterruptibly()).thenReturn(mockResultSet);
+        when(mockResultSet.one()).thenReturn(mockRow);
+        when(mockRow.getBytes("chunk")).thenReturn(ByteBuffer.wrap(new byte[] { 2 }));
+
+        try (PrefetchingChunkInputStream testStream = new PrefetchingChunkInputStream(mockSession,
+                        asList(mockQuery1, mockQuery2), 1, 1, cache, asList("one", "two"))) {
+            assertEquals(1, testStream.read(), "Wrong byte from cached chunk!");
+            assertEquals(2, testStream.read(), "Wrong byte from fetched chunk!");
+        }
+        verify(mockSession, never()).executeAsync(mockQuery1);
+        assertEquals(ByteBuffer.wrap(new byte[] { 2 }), cache.get("two"), "Fetched chunk should have been cached!");
+    }
+
+    @Test
+    void noData() {
+        when(mockSession.executeAsync(mockQuery1)).thenReturn(mockFuture1);
+        when(mockFuture1.getUninterruptibly()).thenReturn(mockResultSet);
+        when(mockResultSet.one()).thenReturn(null);
+
+        PrefetchingChunkInputStream testStream = new PrefetchingChunkInputStream(mockSession, asList(mockQuery1), 1,
+                        2);
+        NullPointerException e = assertThrows(NullPointerException.class, testStream::read);
+        assertEquals("Missing binary chunk!", e.getMessage(), "Wrong exception message!");
+    }
+
+    @Test
+    void closedStreamShouldNotFetch() throws IOException {
+        PrefetchingChunkInputStream testStream = new PrefetchingChunkInputStream(mockSession, asList(mockQuery1), 1,
+                        2);
+        testStream.close();
+        assertEquals(-1, testStream.read(), "Closed stream should have no bytes!");
+        verify(mockSession, never()).executeAsync(mockQuery1);
+    }
+}
@@ -0,0 +1,135 @@
+package edu.si.trellis;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.trellisldp.api.Resource.SpecialResources.MISSING_RESOURCE;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.trellisldp.api.Resource;
+
+@ExtendWith(MockitoExtension.class)
+class ResourceCacheTest {
+
+    private static final IRI testId = new SimpleRDF().createIRI("urn:test"),
+                    otherId = new SimpleRDF().createIRI("urn:other");
+
+    @Mock
+    private Resource mockResource;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final Map<IRI, Integer> reads = new HashMap<>();
+
+    private CompletionStage<? extends Resource> read(IRI id) {
+        reads.merge(id, 1, Integer::sum);
+        return completedFuture(mockResource);
+    }
+
+    private CompletionStage<? extends Resource> readMissing(IRI id) {
+        reads.merge(id, 1, Integer::sum);
+        return completedFuture(MISSING_RESOURCE);
+    }
+
+    private ResourceCache cache(int capacity, boolean cacheMissing) {
+        return new ResourceCache(capacity, 1000, cacheMissing, clock::get);
+    }
+
+    private Resource get(ResourceCache cache, IRI id) {
+        return cache.get(id, this::read).toCompletableFuture().join();
+    }
+
+    @Test
+    void cachedResourceShouldNotBeReadAgain() {
+        ResourceCache cache = cache(10, false);
+        assertSame(mockResource, get(cache, testId));
+        assertSame(mockResource, get(cache, testId));
+
+        assertEquals(1, reads.get(testId).intValue(), "Should have read the resource only once!");
+        assertEquals(1, cache.hits(), "Should have counted a hit!");
+        assertEquals(1, cache.misses(), "Should have counted a miss!");
+    }
+
+    @Test
+    void staleResourceShouldBeReadAgain() {
+        ResourceCache cache = cache(10, false);
+        get(cache, testId);
+        clock.addAndGet(MILLISECONDS.toNanos(1001));
+        get(cache, testId);
+
+        assertEquals(2, reads.get(testId).intValue(), "Should have read the stale resource again!");
+    }
+
+    @Test
+    void evictedResourceShouldBeReadAgain() {
+        ResourceCache cache = cache(10, false);
+        get(cache, testId);
+        cache.evict(testId);
+        get(cache, testId);
+
+        assertEquals(2, reads.get(testId).intValue(), "Should have read the evicted resource again!");
+    }
+
+    @Test
+    void readOverlappingWriteShouldNotBeCached() {
+        ResourceCache cache = cache(10, false);
+        CompletableFuture<Resource> reading = new CompletableFuture<>();
+        CompletionStage<? extends Resource> got = cache.get(testId, id -> reading);
+        cache.evict(otherId);
+        reading.complete(mockResource);
+        assertSame(mockResource, got.toCompletableFuture().join());
+        get(cache, testId);
+
+        assertEquals(1, reads.get(testId).intValue(), "Should not have cached a read that overlapped a write!");
+    }
+
+    @Test
+    void missingResourceShouldBeCachedOnlyIfAsked() {
+        ResourceCache cache = cache(10, false);
+        cache.get(testId, this::readMissing).toCompletableFuture().join();
+        cache.get(testId, this::readMissing).toCompletableFuture().join();
+        assertEquals(2, reads.get(testId).intValue(), "Should not have cached a missing resource!");
+
+        ResourceCache negativeCache = cache(10, true);
+        negativeCache.get(otherId, this::readMissing).toCompletableFuture().join();
+        assertSame(MISSING_RESOURCE, negativeCache.get(otherId, this::readMissing).toCompletableFuture().join());
+        assertEquals(1, reads.get(otherId).intValue(), "Should have cached a missing resource!");
+    }
+
+    @Test
+    void leastRecentlyUsedShouldBeDropped() {
+        ResourceCache cache = cache(1, false);
+        get(cache, testId);
+        get(cache, otherId);
+        get(cache, testId);
+
+        assertEquals(2, reads.get(testId).intValue(), "Should have dropped the least recently used resource!");
+    }
+
+    @Test
+    void emptyCacheShouldAlwaysRead() {
+        ResourceCache cache = cache(0, true);
+        get(cache, testId);
+        get(cache, testId);
+
+        assertEquals(2, reads.get(testId).intValue(), "Should not have cached anything!");
+    }
+
+    @Test
+    void negativeSizeShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ResourceCache(-1, 0, false));
+    }
+}
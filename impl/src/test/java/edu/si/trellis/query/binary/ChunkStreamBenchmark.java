@@ -0,0 +1,106 @@
+package edu.si.trellis.query.binary;
+
+import static java.util.stream.IntStream.range;
+
+import edu.si.trellis.ChunkSequenceInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares streaming a binary through a left-deep chain of {@link SequenceInputStream}s, as binaries once were, with
+ * streaming it through one flat {@link ChunkSequenceInputStream}. Chunks are held in memory so that only the cost of
+ * the stream structure is measured. Run {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChunkStreamBenchmark {
+
+    @Param({ "16", "256", "2048" })
+    public int chunkCount;
+
+    @Param({ "1024" })
+    public int chunkLength;
+
+    private byte[][] chunks;
+
+    private final byte[] buffer = new byte[8192];
+
+    @Setup
+    public void setup() {
+        chunks = new byte[chunkCount][chunkLength];
+        for (byte[] chunk : chunks) for (int i = 0; i < chunkLength; i++) chunk[i] = (byte) i;
+    }
+
+    private InputStream chain() {
+        return range(0, chunkCount).<InputStream> mapToObj(i -> new ByteArrayInputStream(chunks[i]))
+                        .reduce(SequenceInputStream::new).get();
+    }
+
+    private InputStream flat() {
+        return new ChunkSequenceInputStream(chunkCount, chunkLength) {
+
+            @Override
+            protected InputStream chunk(int index) {
+                return new ByteArrayInputStream(chunks[index]);
+            }
+        };
+    }
+
+    private long drain(InputStream stream) throws IOException {
+        long total = 0;
+        for (int read; (read = stream.read(buffer)) != -1;) total += read;
+        return total;
+    }
+
+    @Benchmark
+    public void readChain(Blackhole sink) throws IOException {
+        try (InputStream stream = chain()) {
+            sink.consume(drain(stream));
+        }
+    }
+
+    @Benchmark
+    public void readFlat(Blackhole sink) throws IOException {
+        try (InputStream stream = flat()) {
+            sink.consume(drain(stream));
+        }
+    }
+
+    @Benchmark
+    public void skipToLastChunkChain(Blackhole sink) throws IOException {
+        try (InputStream stream = chain()) {
+            sink.consume(stream.skip((long) (chunkCount - 1) * chunkLength));
+            sink.consume(drain(stream));
+        }
+    }
+
+    @Benchmark
+    public void skipToLastChunkFlat(Blackhole sink) throws IOException {
+        try (InputStream stream = flat()) {
+            sink.consume(stream.skip((long) (chunkCount - 1) * chunkLength));
+            sink.consume(drain(stream));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ChunkStreamBenchmark.class.getSimpleName()).forks(1).build()).run();
+    }
+}
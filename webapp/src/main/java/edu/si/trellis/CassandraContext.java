@@ -1,10 +1,11 @@
 package edu.si.trellis;
 
 import static com.datastax.driver.core.TypeCodec.bigint;
-import static edu.si.trellis.DatasetCodec.datasetCodec;
 import static edu.si.trellis.IRICodec.iriCodec;
 import static edu.si.trellis.InputStreamCodec.inputStreamCodec;
 import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static java.util.stream.Collectors.toList;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import com.datastax.driver.core.*;
@@ -14,9 +15,11 @@ import com.datastax.driver.extras.codecs.jdk8.InstantCodec;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -49,6 +52,116 @@ public class CassandraContext {
             "CASSANDRA_MAX_CHUNK_SIZE" }, defaultValue = DefaultChunkSize.value)
     private String defaultChunkSize;
 
+    @Inject
+    @Config(key = "cassandra.smallestChunkSize", alternateKeys = {
+            "CASSANDRA_SMALLEST_CHUNK_SIZE" }, defaultValue = SmallestChunkSize.value)
+    private String smallestChunkSize;
+
+    @Inject
+    @Config(key = "cassandra.largestChunkSize", alternateKeys = {
+            "CASSANDRA_LARGEST_CHUNK_SIZE" }, defaultValue = LargestChunkSize.value)
+    private String largestChunkSize;
+
+    @Inject
+    @Config(key = "cassandra.chunkWriteWindow", alternateKeys = {
+            "CASSANDRA_CHUNK_WRITE_WINDOW" }, defaultValue = ChunkWriteWindow.value)
+    private String chunkWriteWindow;
+
+    @Inject
+    @Config(key = "cassandra.chunkReadAhead", alternateKeys = {
+            "CASSANDRA_CHUNK_READ_AHEAD" }, defaultValue = ChunkReadAhead.value)
+    private String chunkReadAhead;
+
+    @Inject
+    @Config(key = "cassandra.binaryDigestAlgorithms", alternateKeys = {
+            "CASSANDRA_BINARY_DIGEST_ALGORITHMS" }, defaultValue = BinaryDigestAlgorithms.value)
+    private String binaryDigestAlgorithms;
+
+    @Inject
+    @Config(key = "cassandra.binaryCompression", alternateKeys = {
+            "CASSANDRA_BINARY_COMPRESSION" }, defaultValue = BinaryCompression.value)
+    private ChunkCompression binaryCompression;
+
+    @Inject
+    @Config(key = "cassandra.contentDefinedChunking", alternateKeys = {
+            "CASSANDRA_CONTENT_DEFINED_CHUNKING" }, defaultValue = ContentDefinedChunking.value)
+    private String contentDefinedChunking;
+
+    @Inject
+    @Config(key = "cassandra.chunksPerBucket", alternateKeys = {
+            "CASSANDRA_CHUNKS_PER_BUCKET" }, defaultValue = ChunksPerBucket.value)
+    private String chunksPerBucket;
+
+    @Inject
+    @Config(key = "cassandra.inlineBinaryThreshold", alternateKeys = {
+            "CASSANDRA_INLINE_BINARY_THRESHOLD" }, defaultValue = InlineBinaryThreshold.value)
+    private String inlineBinaryThreshold;
+
+    @Inject
+    @Config(key = "cassandra.chunkBufferPoolSize", alternateKeys = {
+            "CASSANDRA_CHUNK_BUFFER_POOL_SIZE" }, defaultValue = ChunkBufferPoolSize.value)
+    private String chunkBufferPoolSize;
+
+    @Inject
+    @Config(key = "cassandra.chunkCacheSize", alternateKeys = {
+            "CASSANDRA_CHUNK_CACHE_SIZE" }, defaultValue = ChunkCacheSize.value)
+    private String chunkCacheSize;
+
+    @Inject
+    @Config(key = "cassandra.chunkCacheDiskSize", alternateKeys = {
+            "CASSANDRA_CHUNK_CACHE_DISK_SIZE" }, defaultValue = ChunkCacheDiskSize.value)
+    private String chunkCacheDiskSize;
+
+    @Inject
+    @Config(key = "cassandra.chunkCacheDirectory", alternateKeys = {
+            "CASSANDRA_CHUNK_CACHE_DIRECTORY" }, defaultValue = ChunkCacheDirectory.value)
+    private String chunkCacheDirectory;
+
+    @Inject
+    @Config(key = "cassandra.binaryIngestBudget", alternateKeys = {
+            "CASSANDRA_BINARY_INGEST_BUDGET" }, defaultValue = BinaryIngestBudget.value)
+    private String binaryIngestBudget;
+
+    @Inject
+    @Config(key = "cassandra.orphanGracePeriod", alternateKeys = {
+            "CASSANDRA_ORPHAN_GRACE_PERIOD" }, defaultValue = OrphanGracePeriod.value)
+    private String orphanGracePeriod;
+
+    @Inject
+    @Config(key = "cassandra.orphanSweepRate", alternateKeys = {
+            "CASSANDRA_ORPHAN_SWEEP_RATE" }, defaultValue = OrphanSweepRate.value)
+    private String orphanSweepRate;
+
+    @Inject
+    @Config(key = "cassandra.deferredBinaryPurge", alternateKeys = {
+            "CASSANDRA_DEFERRED_BINARY_PURGE" }, defaultValue = DeferredBinaryPurge.value)
+    private String deferredBinaryPurge;
+
+    @Inject
+    @Config(key = "cassandra.binaryPurgeRate", alternateKeys = {
+            "CASSANDRA_BINARY_PURGE_RATE" }, defaultValue = BinaryPurgeRate.value)
+    private String binaryPurgeRate;
+
+    @Inject
+    @Config(key = "cassandra.resourceCacheSize", alternateKeys = {
+            "CASSANDRA_RESOURCE_CACHE_SIZE" }, defaultValue = ResourceCacheSize.value)
+    private String resourceCacheSize;
+
+    @Inject
+    @Config(key = "cassandra.resourceCacheStaleness", alternateKeys = {
+            "CASSANDRA_RESOURCE_CACHE_STALENESS" }, defaultValue = ResourceCacheStaleness.value)
+    private String resourceCacheStaleness;
+
+    @Inject
+    @Config(key = "cassandra.negativeResourceCaching", alternateKeys = {
+            "CASSANDRA_NEGATIVE_RESOURCE_CACHING" }, defaultValue = NegativeResourceCaching.value)
+    private String negativeResourceCaching;
+
+    @Inject
+    @Config(key = "cassandra.datasetFormat", alternateKeys = {
+            "CASSANDRA_DATASET_FORMAT" }, defaultValue = ResourceDatasetFormat.value)
+    private DatasetFormat datasetFormat;
+
     @Inject
     @Config(key = "cassandra.binaryReadConsistency", alternateKeys = { "CASSANDRA_BINARY_READ_CONSISTENCY" }, defaultValue = "ONE")
     private ConsistencyLevel binaryReadConsistency;
@@ -74,6 +187,207 @@ public class CassandraContext {
         return parseInt(defaultChunkSize);
     }
 
+    /**
+     * @return the smallest size of chunk that a {@link CassandraBinaryService} will choose
+     */
+    @Produces
+    @SmallestChunkSize
+    public int smallestChunkSize() {
+        return parseInt(smallestChunkSize);
+    }
+
+    /**
+     * @return the largest size of chunk that a {@link CassandraBinaryService} will choose
+     */
+    @Produces
+    @LargestChunkSize
+    public int largestChunkSize() {
+        return parseInt(largestChunkSize);
+    }
+
+    /**
+     * @return the maximum number of chunk writes in flight at once for any one binary
+     */
+    @Produces
+    @ChunkWriteWindow
+    public int chunkWriteWindow() {
+        return parseInt(chunkWriteWindow);
+    }
+
+    /**
+     * @return the number of chunks to fetch ahead of the chunk being read when streaming a binary
+     */
+    @Produces
+    @ChunkReadAhead
+    public int chunkReadAhead() {
+        return parseInt(chunkReadAhead);
+    }
+
+    /**
+     * @return the names of the digest algorithms with which to digest binaries as they are recorded
+     */
+    @Produces
+    @BinaryDigestAlgorithms
+    public List<String> binaryDigestAlgorithms() {
+        return Stream.of(binaryDigestAlgorithms.split(",")).map(String::trim).filter(a -> !a.isEmpty())
+                        .collect(toList());
+    }
+
+    /**
+     * @return the compression with which to record binary chunks
+     */
+    @Produces
+    @BinaryCompression
+    public ChunkCompression binaryCompression() {
+        return binaryCompression;
+    }
+
+    /**
+     * @return whether to cut new binaries into content-defined chunks stored by content hash
+     */
+    @Produces
+    @ContentDefinedChunking
+    public boolean contentDefinedChunking() {
+        return Boolean.parseBoolean(contentDefinedChunking);
+    }
+
+    /**
+     * @return how many chunks of a binary to record in each bucket, or {@code 0} not to bucket chunks
+     */
+    @Produces
+    @ChunksPerBucket
+    public int chunksPerBucket() {
+        return parseInt(chunksPerBucket);
+    }
+
+    /**
+     * @return the length in bytes up to which to record binaries whole in their manifests, or {@code 0} never to
+     *         inline binaries
+     */
+    @Produces
+    @InlineBinaryThreshold
+    public int inlineBinaryThreshold() {
+        return parseInt(inlineBinaryThreshold);
+    }
+
+    /**
+     * @return how many idle chunk buffers to keep for reuse between chunk writes
+     */
+    @Produces
+    @ChunkBufferPoolSize
+    public int chunkBufferPoolSize() {
+        return parseInt(chunkBufferPoolSize);
+    }
+
+    /**
+     * @return how many bytes of binary chunks to cache in memory
+     */
+    @Produces
+    @ChunkCacheSize
+    public long chunkCacheSize() {
+        return parseLong(chunkCacheSize);
+    }
+
+    /**
+     * @return how many bytes of binary chunks to cache on local disk
+     */
+    @Produces
+    @ChunkCacheDiskSize
+    public long chunkCacheDiskSize() {
+        return parseLong(chunkCacheDiskSize);
+    }
+
+    /**
+     * @return the local directory in which to cache binary chunks on disk, or empty for a temporary directory
+     */
+    @Produces
+    @ChunkCacheDirectory
+    public String chunkCacheDirectory() {
+        return chunkCacheDirectory;
+    }
+
+    /**
+     * @return how many bytes of binary content may be held in memory at once across all uploads, or {@code 0} for no
+     *         limit
+     */
+    @Produces
+    @BinaryIngestBudget
+    public long binaryIngestBudget() {
+        return parseLong(binaryIngestBudget);
+    }
+
+    /**
+     * @return how long, in seconds, a binary must have gone unwritten before an {@link OrphanSweeper} may purge it
+     */
+    @Produces
+    @OrphanGracePeriod
+    public long orphanGracePeriod() {
+        return parseLong(orphanGracePeriod);
+    }
+
+    /**
+     * @return how many binaries per second an {@link OrphanSweeper} examines at most, or {@code 0} not to sweep
+     */
+    @Produces
+    @OrphanSweepRate
+    public int orphanSweepRate() {
+        return parseInt(orphanSweepRate);
+    }
+
+    /**
+     * @return whether to queue purges of binaries to be carried out in the background by a {@link DeferredPurger}
+     */
+    @Produces
+    @DeferredBinaryPurge
+    public boolean deferredBinaryPurge() {
+        return Boolean.parseBoolean(deferredBinaryPurge);
+    }
+
+    /**
+     * @return how many deferred purges of binaries a {@link DeferredPurger} carries out each second at most
+     */
+    @Produces
+    @BinaryPurgeRate
+    public int binaryPurgeRate() {
+        return parseInt(binaryPurgeRate);
+    }
+
+    /**
+     * @return how many resources a {@link ResourceCache} holds, or {@code 0} not to cache resources
+     */
+    @Produces
+    @ResourceCacheSize
+    public int resourceCacheSize() {
+        return parseInt(resourceCacheSize);
+    }
+
+    /**
+     * @return how long, in milliseconds, a {@link ResourceCache} serves a resource before reading it again
+     */
+    @Produces
+    @ResourceCacheStaleness
+    public long resourceCacheStaleness() {
+        return parseLong(resourceCacheStaleness);
+    }
+
+    /**
+     * @return whether a {@link ResourceCache} caches that resources are missing
+     */
+    @Produces
+    @NegativeResourceCaching
+    public boolean negativeResourceCaching() {
+        return Boolean.parseBoolean(negativeResourceCaching);
+    }
+
+    /**
+     * @return the format in which to record the quads of resources
+     */
+    @Produces
+    @ResourceDatasetFormat
+    public DatasetFormat datasetFormat() {
+        return datasetFormat;
+    }
+
     /**
      * @return the read-consistency to use querying Cassandra binary data
      */
@@ -122,7 +436,7 @@ public class CassandraContext {
     private static final int POLL_TIMEOUT = 1000;
 
     private static final TypeCodec<?>[] STANDARD_CODECS = new TypeCodec<?>[] { SimpleTimestampCodec.instance,
-            inputStreamCodec, iriCodec, datasetCodec, bigint(), InstantCodec.instance };
+            inputStreamCodec, iriCodec, bigint(), InstantCodec.instance };
 
     /**
      * Connect to Cassandra, lazily.
@@ -136,6 +450,8 @@ public class CassandraContext {
                         .withPort(parseInt(contactPort)).build();
         if (log.isDebugEnabled()) cluster.register(QueryLogger.builder().withMaxParameterValueLength(1000).build());
         cluster.getConfiguration().getCodecRegistry().register(STANDARD_CODECS);
+        log.info("Recording resource quads as {}", datasetFormat);
+        cluster.getConfiguration().getCodecRegistry().register(DatasetCodec.writing(datasetFormat));
         Timer connector = new Timer("Cassandra Connection Maker", true);
         log.info("Connecting to Cassandra...");
         connector.schedule(new TimerTask() {
@@ -31,6 +31,18 @@ public class CassandraServiceBundler implements ServiceBundler {
     @Inject
     private CassandraBinaryService binaryService;
 
+    /**
+     * Injected only so that it starts sweeping with the application.
+     */
+    @Inject
+    private OrphanSweeper orphanSweeper;
+
+    /**
+     * Injected only so that it starts draining with the application.
+     */
+    @Inject
+    private DeferredPurger deferredPurger;
+
     @Inject
     private AgentService agentService;
 